@@ -9,6 +9,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.Socket;
 
 public class PixClient {
@@ -100,13 +102,22 @@ public class PixClient {
 
     public static class TransactionResult extends OperationResult {
         private String transacoesJson; // Manter como string para evitar complexidade de parsing aqui
+        private String proximoCursor;
 
         public TransactionResult(boolean success, String message, String transacoesJson) {
+            this(success, message, transacoesJson, null);
+        }
+
+        public TransactionResult(boolean success, String message, String transacoesJson, String proximoCursor) {
             super(success, message);
             this.transacoesJson = transacoesJson;
+            this.proximoCursor = proximoCursor;
         }
 
         public String getTransacoes() { return transacoesJson; }
+
+        /** Cursor para a próxima página do extrato, ou null se não houver mais. */
+        public String getProximoCursor() { return proximoCursor; }
     }
 
     // --- Métodos de Operação --- //
@@ -207,7 +218,7 @@ public class PixClient {
             ObjectNode req = mapper.createObjectNode();
             req.put("operacao", "transacao_criar");
             req.put("token", token);
-            req.put("valor", valor);
+            req.put("valor", duasCasas(valor));
             req.put("cpf_destino", cpfDestino);
             JsonNode resp = sendRequest(req);
             return new OperationResult(resp.path("status").asBoolean(), resp.path("info").asText());
@@ -221,7 +232,7 @@ public class PixClient {
             ObjectNode req = mapper.createObjectNode();
             req.put("operacao", "depositar");
             req.put("token", token);
-            req.put("valor_enviado", valor);
+            req.put("valor_enviado", duasCasas(valor));
             JsonNode resp = sendRequest(req);
             return new OperationResult(resp.path("status").asBoolean(), resp.path("info").asText());
         } catch (IOException e) {
@@ -229,18 +240,39 @@ public class PixClient {
         }
     }
 
+    // O servidor trabalha em centavos e recusa valores com mais de duas casas decimais
+    private static BigDecimal duasCasas(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_EVEN);
+    }
+
     public TransactionResult lerTransacoes(String token, String dataInicial, String dataFinal) {
+        return lerTransacoes(token, dataInicial, dataFinal, null, 0);
+    }
+
+    /**
+     * Lê uma página do extrato. Passe o cursor devolvido pela página anterior para
+     * continuar; limite &lt;= 0 usa o padrão do servidor.
+     */
+    public TransactionResult lerTransacoes(String token, String dataInicial, String dataFinal, String cursor, int limite) {
         try {
             ObjectNode req = mapper.createObjectNode();
             req.put("operacao", "transacao_ler");
             req.put("token", token);
             req.put("data_inicial", dataInicial);
             req.put("data_final", dataFinal);
+            if (cursor != null) {
+                req.put("cursor", cursor);
+            }
+            if (limite > 0) {
+                req.put("limite", limite);
+            }
             JsonNode resp = sendRequest(req);
             boolean status = resp.path("status").asBoolean();
             String info = resp.path("info").asText();
             String transacoesJson = status ? resp.path("dados").path("transacoes").toString() : null;
-            return new TransactionResult(status, info, transacoesJson);
+            JsonNode cursorNode = resp.path("dados").path("proximo_cursor");
+            String proximo = cursorNode.isTextual() ? cursorNode.asText() : null;
+            return new TransactionResult(status, info, transacoesJson, proximo);
         } catch (IOException e) {
             return new TransactionResult(false, "Erro de comunicação: " + e.getMessage(), null);
         }
@@ -0,0 +1,892 @@
+package com.pix.dao;
+
+import com.pix.model.PerfilUsuario;
+import com.pix.model.ResultadoTransferencia;
+import com.pix.model.Transacao;
+import com.pix.model.Usuario;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Motor de armazenamento todo em memória, sem banco: serve para rodar o
+ * protocolo inteiro em testes e laboratórios de carga, na velocidade da memória.
+ * Sozinho, nada sobrevive a um reinício; com um {@link Diario} (ver
+ * {@link DiarioMapeado}) cada mudança é registrada antes de ser aplicada e o
+ * estado é reconstruído na subida, a partir do último {@link SnapshotSaldos}
+ * mais a cauda do diário.
+ * <p>
+ * As contas ficam numa tabela de hash aberta com chave primitiva (o CPF
+ * {@code ###.###.###-##} como número de 11 dígitos), dividida em segmentos; cada
+ * segmento guarda chaves, saldos, nomes, senhas e o histórico de ids de
+ * transação de cada conta em vetores paralelos, sob o seu próprio lock. Uma
+ * transferência trava os segmentos das duas contas em ordem crescente de
+ * índice, como em {@link LocksContas}, e tudo (débito, crédito e registro)
+ * acontece com os dois travados.
+ * <p>
+ * As transações vão para um log só de acréscimo, em blocos de colunas
+ * primitivas (origem, destino, valor, data) alocados sob demanda e endereçados
+ * pelo id; os objetos {@link Transacao} só são montados nas consultas.
+ */
+public class ArmazenamentoMemoria {
+    private static final long VAZIO = -1;
+    private static final int BITS_BLOCO = 16;
+    private static final int TAMANHO_BLOCO = 1 << BITS_BLOCO;
+    private static final int MAX_BLOCOS = 1 << 15;
+
+    /**
+     * Registro durável das mudanças. Os métodos são chamados com os locks das
+     * contas envolvidas travados, antes de a memória mudar (se lançarem exceção,
+     * nada muda), e devolvem o número de sequência do registro; depois de
+     * destravar, o motor chama {@link #aguardar} para esperar a durabilidade
+     * conforme a política do diário.
+     */
+    public interface Diario {
+        long cadastro(long cpf, String nome, String senha, long saldo);
+
+        long atualizacao(long cpf, String nome, String senha);
+
+        long deposito(long cpf, long valor);
+
+        long transferencia(long id, long origem, long destino, long valor, long criadoEmMs);
+
+        void aguardar(long seq);
+
+        /** Número de sequência do último registro feito. */
+        long ultimoSeq();
+
+        /** Chamado na subida do servidor. */
+        default void iniciar() {}
+
+        /** Chamado na parada do servidor. */
+        default void parar() {}
+
+        /** Métricas do diário, ou {@code null} se ele não tiver. */
+        default String estatisticas() {
+            return null;
+        }
+    }
+
+    private final Segmento[] segmentos;
+    private final int mascara;
+    private final Diario diario;
+    private final AtomicLong proximoId = new AtomicLong(1);
+    private final AtomicReferenceArray<Bloco> blocos = new AtomicReferenceArray<>(MAX_BLOCOS);
+    private final Usuarios usuarios = new Usuarios();
+    private final Transacoes transacoes = new Transacoes();
+    private SnapshotSaldos snapshots;
+    // Seq do diário já refletido em cada segmento do snapshot carregado (null sem snapshot)
+    private long[] seqsSnapshot;
+    private int mascaraSnapshot;
+
+    /**
+     * @param numSegmentos número de segmentos (e de locks), arredondado para a próxima potência de 2.
+     */
+    public ArmazenamentoMemoria(int numSegmentos) {
+        this(numSegmentos, null);
+    }
+
+    /**
+     * @param diario onde registrar cada mudança, ou {@code null} para nenhum.
+     */
+    public ArmazenamentoMemoria(int numSegmentos, Diario diario) {
+        int n = Integer.highestOneBit(Math.max(1, numSegmentos - 1)) << 1;
+        segmentos = new Segmento[n];
+        for (int i = 0; i < n; i++) {
+            segmentos[i] = new Segmento(64);
+        }
+        mascara = n - 1;
+        this.diario = diario;
+    }
+
+    /** Cria o motor com {@code pix.memoria.segmentos} segmentos (padrão 256). */
+    static ArmazenamentoMemoria fromSystemProperties(Diario diario) {
+        return new ArmazenamentoMemoria(Integer.getInteger("pix.memoria.segmentos", 256), diario);
+    }
+
+    public UsuarioRepository usuarios() {
+        return usuarios;
+    }
+
+    public TransacaoRepository transacoes() {
+        return transacoes;
+    }
+
+    /** Passa a gravar snapshots periódicos, iniciados e parados junto com o diário. */
+    void usarSnapshots(SnapshotSaldos snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    // Tabela das contas
+
+    private static final class Segmento {
+        final ReentrantLock lock = new ReentrantLock();
+        long[] chaves;
+        long[] saldos;
+        String[] nomes;
+        String[] senhas;
+        long[][] historicos;
+        int[] numHistorico;
+        int tamanho;
+
+        Segmento(int capacidade) {
+            alocar(capacidade);
+        }
+
+        private void alocar(int capacidade) {
+            chaves = new long[capacidade];
+            Arrays.fill(chaves, VAZIO);
+            saldos = new long[capacidade];
+            nomes = new String[capacidade];
+            senhas = new String[capacidade];
+            historicos = new long[capacidade][];
+            numHistorico = new int[capacidade];
+        }
+
+        /** Posição da chave, ou {@code -(posição livre) - 1} se ela não estiver na tabela. */
+        int posicao(long chave) {
+            int m = chaves.length - 1;
+            int i = (int) misturar(chave) & m;
+            while (true) {
+                long k = chaves[i];
+                if (k == chave) {
+                    return i;
+                }
+                if (k == VAZIO) {
+                    return -i - 1;
+                }
+                i = (i + 1) & m;
+            }
+        }
+
+        /** Insere a conta (que não pode existir) e devolve a posição. */
+        int inserir(long chave, String nome, String senha, long saldo) {
+            if ((tamanho + 1) * 4 > chaves.length * 3) {
+                crescer();
+            }
+            int i = -posicao(chave) - 1;
+            chaves[i] = chave;
+            nomes[i] = nome;
+            senhas[i] = senha;
+            saldos[i] = saldo;
+            tamanho++;
+            return i;
+        }
+
+        private void crescer() {
+            long[] chavesAntigas = chaves;
+            long[] saldosAntigos = saldos;
+            String[] nomesAntigos = nomes;
+            String[] senhasAntigas = senhas;
+            long[][] historicosAntigos = historicos;
+            int[] numHistoricoAntigo = numHistorico;
+            alocar(chavesAntigas.length * 2);
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (chavesAntigas[j] != VAZIO) {
+                    int i = -posicao(chavesAntigas[j]) - 1;
+                    chaves[i] = chavesAntigas[j];
+                    saldos[i] = saldosAntigos[j];
+                    nomes[i] = nomesAntigos[j];
+                    senhas[i] = senhasAntigas[j];
+                    historicos[i] = historicosAntigos[j];
+                    numHistorico[i] = numHistoricoAntigo[j];
+                }
+            }
+        }
+
+        void registrarNoHistorico(int i, long idTransacao) {
+            long[] h = historicos[i];
+            int n = numHistorico[i];
+            if (h == null) {
+                h = historicos[i] = new long[4];
+            } else if (n == h.length) {
+                h = historicos[i] = Arrays.copyOf(h, n * 2);
+            }
+            h[n] = idTransacao;
+            numHistorico[i] = n + 1;
+        }
+    }
+
+    private static long misturar(long chave) {
+        long h = chave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int indiceSegmento(long chave) {
+        return (int) (misturar(chave) >>> 40) & mascara;
+    }
+
+    private Segmento segmento(long chave) {
+        return segmentos[indiceSegmento(chave)];
+    }
+
+    /**
+     * CPF no formato {@code ###.###.###-##} como número de 11 dígitos, ou -1 se o
+     * texto não estiver nesse formato (nenhuma conta pode ter um CPF assim).
+     */
+    static long chave(String cpf) {
+        if (cpf == null || cpf.length() != 14
+                || cpf.charAt(3) != '.' || cpf.charAt(7) != '.' || cpf.charAt(11) != '-') {
+            return -1;
+        }
+        long v = 0;
+        for (int i = 0; i < 14; i++) {
+            if (i == 3 || i == 7 || i == 11) {
+                continue;
+            }
+            char c = cpf.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    static String formatar(long chave) {
+        char[] c = new char[14];
+        long v = chave;
+        for (int i = 13; i >= 0; i--) {
+            if (i == 3 || i == 7) {
+                c[i] = '.';
+            } else if (i == 11) {
+                c[i] = '-';
+            } else {
+                c[i] = (char) ('0' + v % 10);
+                v /= 10;
+            }
+        }
+        return new String(c);
+    }
+
+    private String nome(String cpf) {
+        long k = chave(cpf);
+        if (k < 0) {
+            return null;
+        }
+        Segmento s = segmento(k);
+        s.lock.lock();
+        try {
+            int i = s.posicao(k);
+            return i >= 0 ? s.nomes[i] : null;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    // Log de transações
+
+    private static final class Bloco {
+        final long[] origens;
+        final long[] destinos;
+        final long[] valores;
+        // 0 enquanto a posição não foi gravada
+        final long[] criadosMs;
+
+        Bloco() {
+            this(new long[TAMANHO_BLOCO], new long[TAMANHO_BLOCO], new long[TAMANHO_BLOCO], new long[TAMANHO_BLOCO]);
+        }
+
+        Bloco(long[] origens, long[] destinos, long[] valores, long[] criadosMs) {
+            this.origens = origens;
+            this.destinos = destinos;
+            this.valores = valores;
+            this.criadosMs = criadosMs;
+        }
+    }
+
+    private void guardar(long id, long origem, long destino, long valor, long criadoEmMs) {
+        int b = (int) (id >>> BITS_BLOCO);
+        if (b >= MAX_BLOCOS) {
+            throw new IllegalStateException("Capacidade do log de transações em memória esgotada");
+        }
+        Bloco bloco = blocos.get(b);
+        if (bloco == null) {
+            blocos.compareAndSet(b, null, new Bloco());
+            bloco = blocos.get(b);
+        }
+        int i = (int) id & (TAMANHO_BLOCO - 1);
+        bloco.origens[i] = origem;
+        bloco.destinos[i] = destino;
+        bloco.valores[i] = valor;
+        bloco.criadosMs[i] = criadoEmMs;
+    }
+
+    private long criadoEmMs(long id) {
+        return blocos.get((int) (id >>> BITS_BLOCO)).criadosMs[(int) id & (TAMANHO_BLOCO - 1)];
+    }
+
+    /** Monta a transação, ou {@code null} se o id ainda não foi gravado. */
+    private Transacao transacao(long id) {
+        Bloco bloco = blocos.get((int) (id >>> BITS_BLOCO));
+        int i = (int) id & (TAMANHO_BLOCO - 1);
+        if (bloco == null || bloco.criadosMs[i] == 0) {
+            return null;
+        }
+        LocalDateTime criado = paraData(bloco.criadosMs[i]);
+        return new Transacao(id, formatar(bloco.origens[i]), formatar(bloco.destinos[i]), bloco.valores[i],
+                criado, criado);
+    }
+
+    // Mesma convenção do cursor de PaginaTransacoes: LocalDateTime lido como UTC
+    private static long paraMs(LocalDateTime data) {
+        return data.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private long ultimoCriadoMs(Segmento s, int i) {
+        int n = s.numHistorico[i];
+        return n == 0 ? Long.MIN_VALUE : criadoEmMs(s.historicos[i][n - 1]);
+    }
+
+    /**
+     * Primeira posição do histórico {@code h[0..n)}, em ordem de (criado, id), que
+     * não vem antes de ({@code ms}, {@code id}).
+     */
+    private int primeiraNaoAnterior(long[] h, int n, long ms, long id) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            long c = criadoEmMs(h[m]);
+            if (c < ms || (c == ms && h[m] < id)) {
+                lo = m + 1;
+            } else {
+                hi = m;
+            }
+        }
+        return lo;
+    }
+
+    private static LocalDateTime paraData(long epochMs) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMs, 1000L),
+                (int) Math.floorMod(epochMs, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private void aguardar(long seq) {
+        if (seq > 0) {
+            diario.aguardar(seq);
+        }
+    }
+
+    // Snapshot: cópia de cada segmento e restauração na subida
+
+    /** Cópia de um segmento, junto com o seq do diário que ela já reflete. */
+    static final class CopiaSegmento {
+        final long seq;
+        final long[] chaves;
+        final long[] saldos;
+        final String[] nomes;
+        final String[] senhas;
+        // Só as posições abaixo de numHistorico; elas nunca mudam depois de gravadas
+        final long[][] historicos;
+        final int[] numHistorico;
+        final int tamanho;
+
+        private CopiaSegmento(long seq, Segmento s) {
+            this.seq = seq;
+            this.chaves = s.chaves.clone();
+            this.saldos = s.saldos.clone();
+            this.nomes = s.nomes.clone();
+            this.senhas = s.senhas.clone();
+            this.historicos = s.historicos.clone();
+            this.numHistorico = s.numHistorico.clone();
+            this.tamanho = s.tamanho;
+        }
+    }
+
+    int numSegmentos() {
+        return segmentos.length;
+    }
+
+    long proximoId() {
+        return proximoId.get();
+    }
+
+    /**
+     * Copia o segmento sob o seu lock. Como toda mudança é registrada no diário e
+     * aplicada com o lock do segmento travado, a cópia contém exatamente os
+     * registros até o seq lido aqui que tocam este segmento.
+     */
+    CopiaSegmento copiarSegmento(int i) {
+        Segmento s = segmentos[i];
+        s.lock.lock();
+        try {
+            return new CopiaSegmento(diario != null ? diario.ultimoSeq() : 0, s);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Colunas (origens, destinos, valores, datas) do bloco {@code b} do log, ou
+     * {@code null} se ele não existe. As posições gravadas nunca mudam.
+     */
+    long[][] colunasBloco(int b) {
+        Bloco bloco = blocos.get(b);
+        return bloco == null ? null : new long[][] {bloco.origens, bloco.destinos, bloco.valores, bloco.criadosMs};
+    }
+
+    void restaurarConta(long cpf, String nome, String senha, long saldo, long[] historico) {
+        Segmento s = segmento(cpf);
+        s.lock.lock();
+        try {
+            int i = s.inserir(cpf, nome, senha, saldo);
+            if (historico.length > 0) {
+                s.historicos[i] = historico;
+                s.numHistorico[i] = historico.length;
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    void restaurarBloco(int b, long[] origens, long[] destinos, long[] valores, long[] criadosMs) {
+        blocos.set(b, new Bloco(origens, destinos, valores, criadosMs));
+    }
+
+    /**
+     * Registra os seqs do snapshot carregado, um por segmento do snapshot (que
+     * pode ter outro número de segmentos), para a reprodução do diário não
+     * aplicar de novo o que ele já contém.
+     */
+    void restaurarSeqs(long[] seqs, long proximo) {
+        seqsSnapshot = seqs;
+        mascaraSnapshot = seqs.length - 1;
+        proximoId.accumulateAndGet(proximo, Math::max);
+    }
+
+    private boolean noSnapshot(long cpf, long seq) {
+        return seqsSnapshot != null && seq <= seqsSnapshot[(int) (misturar(cpf) >>> 40) & mascaraSnapshot];
+    }
+
+    // Reprodução do diário na subida: aplica sem registrar de novo nem conferir
+    // saldo, pulando o que o snapshot já contém para cada conta
+
+    void reproduzirCadastro(long seq, long cpf, String nome, String senha, long saldo) {
+        if (noSnapshot(cpf, seq)) {
+            return;
+        }
+        Segmento s = segmento(cpf);
+        s.lock.lock();
+        try {
+            int i = s.posicao(cpf);
+            if (i >= 0) {
+                s.nomes[i] = nome;
+                s.senhas[i] = senha;
+            } else {
+                s.inserir(cpf, nome, senha, saldo);
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    void reproduzirAtualizacao(long seq, long cpf, String nome, String senha) {
+        if (noSnapshot(cpf, seq)) {
+            return;
+        }
+        Segmento s = segmento(cpf);
+        s.lock.lock();
+        try {
+            int i = s.posicao(cpf);
+            if (i >= 0) {
+                s.nomes[i] = nome;
+                s.senhas[i] = senha;
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    void reproduzirDeposito(long seq, long cpf, long valor) {
+        if (noSnapshot(cpf, seq)) {
+            return;
+        }
+        Segmento s = segmento(cpf);
+        s.lock.lock();
+        try {
+            int i = s.posicao(cpf);
+            if (i >= 0) {
+                s.saldos[i] += valor;
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    void reproduzirTransferencia(long seq, long id, long origem, long destino, long valor, long criadoEmMs) {
+        // O log é endereçado pelo id: gravar de novo uma transação do snapshot não muda nada
+        guardar(id, origem, destino, valor, criadoEmMs);
+        proximoId.accumulateAndGet(id + 1, Math::max);
+        if (!noSnapshot(origem, seq)) {
+            Segmento so = segmento(origem);
+            so.lock.lock();
+            try {
+                int i = so.posicao(origem);
+                if (i >= 0) {
+                    so.saldos[i] -= valor;
+                    so.registrarNoHistorico(i, id);
+                }
+            } finally {
+                so.lock.unlock();
+            }
+        }
+        if (destino == origem) {
+            reproduzirDeposito(seq, destino, valor);
+            return;
+        }
+        if (noSnapshot(destino, seq)) {
+            return;
+        }
+        Segmento sd = segmento(destino);
+        sd.lock.lock();
+        try {
+            int i = sd.posicao(destino);
+            if (i >= 0) {
+                sd.saldos[i] += valor;
+                sd.registrarNoHistorico(i, id);
+            }
+        } finally {
+            sd.lock.unlock();
+        }
+    }
+
+    private final class Usuarios implements UsuarioRepository {
+
+        @Override
+        public void salvar(Usuario usuario) {
+            long k = chave(usuario.getCpf());
+            if (k < 0) {
+                System.err.println("[ArmazenamentoMemoria] CPF fora do formato: " + usuario.getCpf());
+                return;
+            }
+            long seq = 0;
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                if (i >= 0) {
+                    // Mesmo comportamento do MySQL com CPF duplicado: atualiza
+                    if (diario != null) {
+                        seq = diario.atualizacao(k, usuario.getNome(), usuario.getSenha());
+                    }
+                    s.nomes[i] = usuario.getNome();
+                    s.senhas[i] = usuario.getSenha();
+                } else {
+                    if (diario != null) {
+                        seq = diario.cadastro(k, usuario.getNome(), usuario.getSenha(), usuario.getSaldoCentavos());
+                    }
+                    s.inserir(k, usuario.getNome(), usuario.getSenha(), usuario.getSaldoCentavos());
+                }
+            } finally {
+                s.lock.unlock();
+            }
+            aguardar(seq);
+        }
+
+        @Override
+        public void atualizar(Usuario usuario) {
+            long k = chave(usuario.getCpf());
+            if (k < 0) {
+                return;
+            }
+            long seq = 0;
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                if (i >= 0) {
+                    if (diario != null) {
+                        seq = diario.atualizacao(k, usuario.getNome(), usuario.getSenha());
+                    }
+                    s.nomes[i] = usuario.getNome();
+                    s.senhas[i] = usuario.getSenha();
+                }
+            } finally {
+                s.lock.unlock();
+            }
+            aguardar(seq);
+        }
+
+        @Override
+        public boolean trocarSenha(String cpf, String atual, String nova) {
+            long k = chave(cpf);
+            if (k < 0) {
+                return false;
+            }
+            long seq = 0;
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                if (i < 0 || !s.senhas[i].equals(atual)) {
+                    return false;
+                }
+                if (diario != null) {
+                    seq = diario.atualizacao(k, s.nomes[i], nova);
+                }
+                s.senhas[i] = nova;
+            } finally {
+                s.lock.unlock();
+            }
+            aguardar(seq);
+            return true;
+        }
+
+        @Override
+        public Long creditar(String cpf, long centavos) {
+            long k = chave(cpf);
+            if (k < 0) {
+                return null;
+            }
+            long seq = 0;
+            long novoSaldo;
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                if (i < 0) {
+                    return null;
+                }
+                novoSaldo = Math.addExact(s.saldos[i], centavos);
+                if (diario != null) {
+                    seq = diario.deposito(k, centavos);
+                }
+                s.saldos[i] = novoSaldo;
+            } finally {
+                s.lock.unlock();
+            }
+            aguardar(seq);
+            return novoSaldo;
+        }
+
+        @Override
+        public PerfilUsuario buscarPerfil(String cpf) {
+            long k = chave(cpf);
+            if (k < 0) {
+                return null;
+            }
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                return i >= 0 ? new PerfilUsuario(cpf, s.nomes[i], s.senhas[i]) : null;
+            } finally {
+                s.lock.unlock();
+            }
+        }
+
+        @Override
+        public Usuario buscarPorCpf(String cpf) {
+            long k = chave(cpf);
+            if (k < 0) {
+                return null;
+            }
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                return i >= 0 ? new Usuario(s.nomes[i], cpf, s.senhas[i], s.saldos[i]) : null;
+            } finally {
+                s.lock.unlock();
+            }
+        }
+
+        @Override
+        public List<Usuario> listarTodos() {
+            List<Usuario> lista = new ArrayList<>();
+            for (Segmento s : segmentos) {
+                s.lock.lock();
+                try {
+                    for (int i = 0; i < s.chaves.length; i++) {
+                        if (s.chaves[i] != VAZIO) {
+                            lista.add(new Usuario(s.nomes[i], formatar(s.chaves[i]), s.senhas[i], s.saldos[i]));
+                        }
+                    }
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            return lista;
+        }
+    }
+
+    private final class Transacoes implements TransacaoRepository {
+
+        @Override
+        public void iniciar() {
+            if (diario != null) {
+                diario.iniciar();
+            }
+            if (snapshots != null) {
+                snapshots.iniciar();
+            }
+        }
+
+        @Override
+        public void parar() {
+            // O último snapshot sai antes de o diário parar, para a próxima subida reproduzir pouco
+            if (snapshots != null) {
+                snapshots.parar();
+            }
+            if (diario != null) {
+                diario.parar();
+            }
+        }
+
+        @Override
+        public String estatisticas() {
+            return diario == null ? null : diario.estatisticas();
+        }
+
+        @Override
+        public ResultadoTransferencia salvar(Transacao t) {
+            long ko = chave(t.getCpfOrigem());
+            if (ko < 0) {
+                return ResultadoTransferencia.SALDO_INSUFICIENTE;
+            }
+            long kd = chave(t.getCpfDestino());
+            if (kd < 0) {
+                return ResultadoTransferencia.DESTINO_INEXISTENTE;
+            }
+            int a = indiceSegmento(ko);
+            int b = indiceSegmento(kd);
+            // Ordem canônica: o segmento de menor índice primeiro
+            Segmento primeiro = segmentos[Math.min(a, b)];
+            Segmento segundo = segmentos[Math.max(a, b)];
+            long[] seq = new long[1];
+            ResultadoTransferencia r;
+            primeiro.lock.lock();
+            try {
+                if (segundo != primeiro) {
+                    segundo.lock.lock();
+                }
+                try {
+                    r = transferir(t, segmentos[a], ko, segmentos[b], kd, seq);
+                } finally {
+                    if (segundo != primeiro) {
+                        segundo.lock.unlock();
+                    }
+                }
+            } finally {
+                primeiro.lock.unlock();
+            }
+            aguardar(seq[0]);
+            return r;
+        }
+
+        private ResultadoTransferencia transferir(Transacao t, Segmento so, long ko, Segmento sd, long kd,
+                                                  long[] seq) {
+            long valor = t.getValorCentavos();
+            int io = so.posicao(ko);
+            if (io < 0 || so.saldos[io] < valor) {
+                return ResultadoTransferencia.SALDO_INSUFICIENTE;
+            }
+            int id = sd.posicao(kd);
+            if (id < 0) {
+                return ResultadoTransferencia.DESTINO_INEXISTENTE;
+            }
+            long novoDestino = ko == kd ? sd.saldos[id] : Math.addExact(sd.saldos[id], valor);
+            long idTransacao = proximoId.getAndIncrement();
+            // A data não recua no histórico de nenhuma das contas: ele fica em ordem de
+            // (criado, id) e o extrato acha o cursor por busca binária
+            long criadoEmMs = paraMs(t.getCriadoEm());
+            long piso = Math.max(ultimoCriadoMs(so, io), ultimoCriadoMs(sd, id));
+            if (criadoEmMs < piso) {
+                criadoEmMs = piso;
+                t.setCriadoEm(paraData(criadoEmMs));
+            }
+            if (diario != null) {
+                seq[0] = diario.transferencia(idTransacao, ko, kd, valor, criadoEmMs);
+            }
+            // Para a própria conta o débito e o crédito se anulam
+            if (ko != kd) {
+                so.saldos[io] -= valor;
+                sd.saldos[id] = novoDestino;
+            }
+            t.setId(idTransacao);
+            guardar(idTransacao, ko, kd, valor, criadoEmMs);
+            so.registrarNoHistorico(io, idTransacao);
+            if (ko != kd) {
+                sd.registrarNoHistorico(id, idTransacao);
+            }
+            return ResultadoTransferencia.SUCESSO;
+        }
+
+        @Override
+        public List<Transacao> listarTodas() {
+            List<Transacao> lista = new ArrayList<>();
+            for (long id = proximoId.get() - 1; id >= 1; id--) {
+                Transacao t = transacao(id);
+                if (t != null) {
+                    lista.add(t);
+                }
+            }
+            return lista;
+        }
+
+        @Override
+        public PaginaTransacoes listarPorParticipante(String cpf, LocalDateTime inicio, LocalDateTime fim,
+                                                      String cursor, int limite) {
+            PaginaTransacoes.Posicao pos = cursor == null ? null : PaginaTransacoes.Posicao.decodificar(cursor);
+            long k = chave(cpf);
+            if (k < 0) {
+                return new PaginaTransacoes(new ArrayList<>(), null);
+            }
+            long inicioMs = paraMs(inicio);
+            // Fim exclusivo em (criado, id): o cursor ou, se vier antes, o fim do período
+            long ateMs = paraMs(fim);
+            long ateId = Long.MAX_VALUE;
+            if (pos != null && paraMs(pos.criadoEm) <= ateMs) {
+                ateMs = paraMs(pos.criadoEm);
+                ateId = pos.id;
+            }
+
+            // O histórico está em ordem de (criado, id): a página são as até limite + 1
+            // posições logo antes do fim, sem percorrer o resto
+            long[] encontrados = new long[0];
+            int total = 0;
+            Segmento s = segmento(k);
+            s.lock.lock();
+            try {
+                int i = s.posicao(k);
+                if (i >= 0 && s.historicos[i] != null) {
+                    long[] h = s.historicos[i];
+                    int fimPos = primeiraNaoAnterior(h, s.numHistorico[i], ateMs, ateId);
+                    encontrados = new long[(int) Math.min(fimPos, limite + 1L)];
+                    for (int j = fimPos - 1; j >= 0 && total < encontrados.length; j--) {
+                        if (criadoEmMs(h[j]) < inicioMs) {
+                            break;
+                        }
+                        encontrados[total++] = h[j];
+                    }
+                }
+            } finally {
+                s.lock.unlock();
+            }
+
+            int n = Math.min(total, limite);
+            List<Transacao> pagina = new ArrayList<>(n);
+            Map<String, String> nomes = new HashMap<>();
+            for (int j = 0; j < n; j++) {
+                Transacao t = transacao(encontrados[j]);
+                t.setNomeOrigem(nomes.computeIfAbsent(t.getCpfOrigem(), ArmazenamentoMemoria.this::nome));
+                t.setNomeDestino(nomes.computeIfAbsent(t.getCpfDestino(), ArmazenamentoMemoria.this::nome));
+                pagina.add(t);
+            }
+            String proximo = total > limite ? PaginaTransacoes.codificarCursor(pagina.get(limite - 1)) : null;
+            return new PaginaTransacoes(pagina, proximo);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.pix.dao;
+
+import com.pix.model.PerfilUsuario;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Cache em memória, limitado, dos perfis de usuário ({@link PerfilUsuario}),
+ * consultado antes do banco ("read-through"). É dividido em segmentos, cada um
+ * um {@link LinkedHashMap} em ordem de acesso com trava própria, e descarta o
+ * item usado há mais tempo (LRU) quando o segmento enche. Itens expiram após o
+ * TTL, e {@link UsuarioDAO} invalida o CPF a cada escrita.
+ * <p>
+ * Uma carga do banco que corre junto com uma invalidação do mesmo segmento não é
+ * guardada: cada segmento conta invalidações, e a carga só entra se a contagem
+ * não mudou desde que começou. Assim um valor antigo nunca sobrescreve uma escrita.
+ */
+public class CacheUsuarios {
+    private static final int SEGMENTOS = 16;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final long ttlNanos;
+    private final boolean ativo;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder expirados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+
+    /**
+     * @param capacidade número máximo de perfis; 0 desliga o cache.
+     * @param ttlMs      tempo de vida de cada perfil.
+     */
+    public CacheUsuarios(int capacidade, long ttlMs) {
+        this.ativo = capacidade > 0;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        int porSegmento = Math.max(1, (capacidade + SEGMENTOS - 1) / SEGMENTOS);
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(porSegmento);
+        }
+    }
+
+    /**
+     * Cria o cache a partir de {@code pix.cache.usuarios.max} (padrão 10000) e
+     * {@code pix.cache.usuarios.ttlMs} (padrão 60 s).
+     */
+    static CacheUsuarios fromSystemProperties() {
+        return new CacheUsuarios(Integer.getInteger("pix.cache.usuarios.max", 10_000),
+                Long.getLong("pix.cache.usuarios.ttlMs", 60_000L));
+    }
+
+    /**
+     * Devolve o perfil do cache ou, se ausente ou expirado, o carrega com
+     * {@code carregar} (que pode devolver {@code null}; ausências não são guardadas).
+     */
+    public PerfilUsuario buscar(String cpf, Function<String, PerfilUsuario> carregar) {
+        if (!ativo) {
+            return carregar.apply(cpf);
+        }
+        Segmento s = segmento(cpf);
+        long versao;
+        s.lock.lock();
+        try {
+            Entrada e = s.mapa.get(cpf);
+            if (e != null) {
+                if (System.nanoTime() - e.expiraEm < 0) {
+                    acertos.increment();
+                    return e.perfil;
+                }
+                s.mapa.remove(cpf);
+                expirados.increment();
+            }
+            versao = s.versao;
+        } finally {
+            s.lock.unlock();
+        }
+
+        faltas.increment();
+        PerfilUsuario perfil = carregar.apply(cpf);
+        if (perfil != null) {
+            guardar(s, perfil, versao);
+        }
+        return perfil;
+    }
+
+    /**
+     * Remove o CPF do cache. Deve ser chamado depois que a escrita no banco foi feita.
+     */
+    public void invalidar(String cpf) {
+        if (!ativo) {
+            return;
+        }
+        Segmento s = segmento(cpf);
+        s.lock.lock();
+        try {
+            s.mapa.remove(cpf);
+            s.versao++;
+        } finally {
+            s.lock.unlock();
+        }
+        invalidacoes.increment();
+    }
+
+    private void guardar(Segmento s, PerfilUsuario perfil, long versao) {
+        s.lock.lock();
+        try {
+            if (s.versao == versao) {
+                s.mapa.put(perfil.getCpf(), new Entrada(perfil, System.nanoTime() + ttlNanos));
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    private Segmento segmento(String cpf) {
+        int h = cpf.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (SEGMENTOS - 1)];
+    }
+
+    public int getTamanho() {
+        int n = 0;
+        for (Segmento s : segmentos) {
+            s.lock.lock();
+            try {
+                n += s.mapa.size();
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    public long getAcertos() { return acertos.sum(); }
+    public long getFaltas() { return faltas.sum(); }
+    public long getDescartados() { return descartados.sum(); }
+    public long getInvalidacoes() { return invalidacoes.sum(); }
+
+    public String estatisticas() {
+        long total = Math.max(1, acertos.sum() + faltas.sum());
+        return String.format("cache_usuarios[tamanho=%d, acertos=%d, faltas=%d, taxa_acerto=%.1f%%, "
+                + "expirados=%d, descartados=%d, invalidacoes=%d]",
+                getTamanho(), getAcertos(), getFaltas(), 100.0 * acertos.sum() / total,
+                expirados.sum(), getDescartados(), getInvalidacoes());
+    }
+
+    private static final class Entrada {
+        final PerfilUsuario perfil;
+        final long expiraEm;
+
+        Entrada(PerfilUsuario perfil, long expiraEm) {
+            this.perfil = perfil;
+            this.expiraEm = expiraEm;
+        }
+    }
+
+    private final class Segmento {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, Entrada> mapa;
+        // Incrementada a cada invalidação; protegida por lock
+        long versao;
+
+        Segmento(int capacidade) {
+            this.mapa = new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entrada> maisAntigo) {
+                    if (size() > capacidade) {
+                        descartados.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.pix.dao;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Pool de conexões JDBC. As conexões entregues são proxies: {@code close()} devolve
+ * a conexão física ao pool em vez de encerrá-la, de modo que os DAOs continuam
+ * usando try-with-resources normalmente.
+ * <p>
+ * Recursos: tamanho mínimo/máximo, validação de conexões ociosas antes do
+ * empréstimo, remoção das ociosas acima do mínimo, detecção de vazamento
+ * (conexão emprestada por tempo demais) e métricas de espera.
+ * <p>
+ * Um vazamento é reportado com a thread e o horário do empréstimo. A pilha de
+ * quem pegou a conexão só é capturada com {@code pilhaVazamento} ligado, porque
+ * custa um {@code Throwable} por empréstimo.
+ */
+public class ConnectionPool implements DataSource {
+    private static final int TIMEOUT_VALIDACAO_SEG = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int tamanhoMinimo;
+    private final int tamanhoMaximo;
+    private final long timeoutEsperaMs;
+    private final long ociosoMaxMs;
+    private final long validarAposMs;
+    private final long limiteVazamentoMs;
+    private final boolean pilhaVazamento;
+
+    // LIFO: a conexão devolvida por último (mais "quente") é a próxima emprestada
+    private final LinkedBlockingDeque<Entrada> livres = new LinkedBlockingDeque<>();
+    private final Set<Entrada> emprestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permissoes;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado;
+
+    // Métricas
+    private final LongAdder emprestimos = new LongAdder();
+    private final LongAdder tempoEsperaNanos = new LongAdder();
+    private final AtomicLong maiorEsperaNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder criadas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final LongAdder vazamentos = new LongAdder();
+
+    private PrintWriter logWriter;
+
+    public ConnectionPool(String url, String user, String password, int tamanhoMinimo, int tamanhoMaximo,
+            long timeoutEsperaMs, long ociosoMaxMs, long limiteVazamentoMs, boolean pilhaVazamento) {
+        if (tamanhoMinimo < 0 || tamanhoMaximo < 1 || tamanhoMinimo > tamanhoMaximo) {
+            throw new IllegalArgumentException("Tamanhos de pool inválidos: min=" + tamanhoMinimo + ", max=" + tamanhoMaximo);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.tamanhoMinimo = tamanhoMinimo;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.timeoutEsperaMs = timeoutEsperaMs;
+        this.ociosoMaxMs = ociosoMaxMs;
+        this.validarAposMs = 30_000;
+        this.limiteVazamentoMs = limiteVazamentoMs;
+        this.pilhaVazamento = pilhaVazamento && limiteVazamentoMs > 0;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-db-pool-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1_000, Math.min(ociosoMaxMs, limiteVazamentoMs) / 2);
+        manutencao.scheduleWithFixedDelay(this::manter, 0, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (fechado) {
+            throw new SQLException("Pool de conexões encerrado.");
+        }
+        long inicio = System.nanoTime();
+        boolean obteve;
+        try {
+            obteve = permissoes.tryAcquire(timeoutEsperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool.", e);
+        }
+        long espera = System.nanoTime() - inicio;
+        tempoEsperaNanos.add(espera);
+        maiorEsperaNanos.accumulateAndGet(espera, Math::max);
+        if (!obteve) {
+            timeouts.increment();
+            throw new SQLTransientConnectionException("Tempo esgotado (" + timeoutEsperaMs
+                    + " ms) aguardando conexão do pool. " + estatisticas());
+        }
+
+        try {
+            Entrada e;
+            while ((e = livres.pollFirst()) != null) {
+                if (valida(e)) {
+                    break;
+                }
+                descartar(e);
+            }
+            if (e == null) {
+                e = criar();
+            }
+            e.emprestadaEm = System.nanoTime();
+            e.vazamentoReportado = false;
+            e.emprestadaEmMs = System.currentTimeMillis();
+            e.threadEmprestimo = Thread.currentThread().getName();
+            e.origem = pilhaVazamento ? new Exception("Conexão emprestada aqui") : null;
+            emprestadas.add(e);
+            emprestimos.increment();
+            return e.novoHandle();
+        } catch (SQLException | RuntimeException ex) {
+            permissoes.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("O pool usa credenciais fixas.");
+    }
+
+    /**
+     * Encerra o pool e todas as conexões ociosas. Conexões emprestadas são
+     * fechadas quando forem devolvidas.
+     */
+    public void fechar() {
+        fechado = true;
+        manutencao.shutdownNow();
+        Entrada e;
+        while ((e = livres.pollFirst()) != null) {
+            descartar(e);
+        }
+    }
+
+    private Entrada criar() throws SQLException {
+        Connection fisica = DriverManager.getConnection(url, user, password);
+        fisica.setAutoCommit(true);
+        total.incrementAndGet();
+        criadas.increment();
+        return new Entrada(fisica);
+    }
+
+    private boolean valida(Entrada e) {
+        try {
+            if (e.fisica.isClosed()) {
+                return false;
+            }
+            long ocioso = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - e.devolvidaEm);
+            return ocioso < validarAposMs || e.fisica.isValid(TIMEOUT_VALIDACAO_SEG);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void descartar(Entrada e) {
+        total.decrementAndGet();
+        descartadas.increment();
+        try {
+            e.fisica.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void devolver(Entrada e) {
+        emprestadas.remove(e);
+        boolean reutilizavel = !fechado;
+        try {
+            if (reutilizavel && !e.fisica.getAutoCommit()) {
+                // Transação deixada aberta pelo chamador: desfaz antes de reutilizar
+                e.fisica.rollback();
+                e.fisica.setAutoCommit(true);
+            }
+            reutilizavel = reutilizavel && !e.fisica.isClosed();
+        } catch (SQLException ex) {
+            reutilizavel = false;
+        }
+        if (reutilizavel) {
+            e.devolvidaEm = System.nanoTime();
+            livres.offerFirst(e);
+        } else {
+            descartar(e);
+        }
+        permissoes.release();
+    }
+
+    /**
+     * Tarefa periódica: remove conexões ociosas há muito tempo (respeitando o
+     * mínimo), repõe o mínimo e reporta possíveis vazamentos.
+     */
+    private void manter() {
+        try {
+            long agora = System.nanoTime();
+            Iterator<Entrada> it = livres.descendingIterator();
+            while (it.hasNext() && total.get() > tamanhoMinimo) {
+                Entrada e = it.next();
+                if (TimeUnit.NANOSECONDS.toMillis(agora - e.devolvidaEm) > ociosoMaxMs && livres.remove(e)) {
+                    descartar(e);
+                }
+            }
+
+            while (!fechado && total.get() < tamanhoMinimo && permissoes.tryAcquire()) {
+                try {
+                    Entrada e = criar();
+                    e.devolvidaEm = System.nanoTime();
+                    livres.offerLast(e);
+                } finally {
+                    permissoes.release();
+                }
+            }
+
+            if (limiteVazamentoMs > 0) {
+                for (Entrada e : emprestadas) {
+                    long emUso = TimeUnit.NANOSECONDS.toMillis(agora - e.emprestadaEm);
+                    if (emUso > limiteVazamentoMs && !e.vazamentoReportado) {
+                        e.vazamentoReportado = true;
+                        vazamentos.increment();
+                        System.err.println("[ConnectionPool] Possível vazamento: conexão emprestada há " + emUso
+                                + " ms pela thread " + e.threadEmprestimo + " em " + Instant.ofEpochMilli(e.emprestadaEmMs));
+                        if (e.origem != null) {
+                            e.origem.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[ConnectionPool] Falha ao repor conexões mínimas: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Métricas
+
+    public int getTotal() { return total.get(); }
+    public int getAtivas() { return emprestadas.size(); }
+    public int getOciosas() { return livres.size(); }
+    public int getAguardando() { return permissoes.getQueueLength(); }
+    public long getEmprestimos() { return emprestimos.sum(); }
+    public long getTimeouts() { return timeouts.sum(); }
+    public long getVazamentos() { return vazamentos.sum(); }
+    public long getCriadas() { return criadas.sum(); }
+    public long getDescartadas() { return descartadas.sum(); }
+    public long getTempoEsperaTotalNanos() { return tempoEsperaNanos.sum(); }
+    public long getMaiorEsperaNanos() { return maiorEsperaNanos.get(); }
+
+    public String estatisticas() {
+        long n = Math.max(1, emprestimos.sum() + timeouts.sum());
+        return String.format("pool[total=%d, ativas=%d, ociosas=%d, aguardando=%d, emprestimos=%d, "
+                + "espera_media=%.3fms, espera_max=%.3fms, timeouts=%d, vazamentos=%d]",
+                getTotal(), getAtivas(), getOciosas(), getAguardando(), getEmprestimos(),
+                tempoEsperaNanos.sum() / (double) n / 1e6, maiorEsperaNanos.get() / 1e6,
+                getTimeouts(), getVazamentos());
+    }
+
+    // DataSource
+
+    @Override
+    public PrintWriter getLogWriter() { return logWriter; }
+
+    @Override
+    public void setLogWriter(PrintWriter out) { this.logWriter = out; }
+
+    @Override
+    public void setLoginTimeout(int seconds) { DriverManager.setLoginTimeout(seconds); }
+
+    @Override
+    public int getLoginTimeout() { return DriverManager.getLoginTimeout(); }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Não é um wrapper de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Conexão física mantida pelo pool.
+     */
+    private final class Entrada {
+        final Connection fisica;
+        volatile long emprestadaEm;
+        volatile long emprestadaEmMs;
+        volatile String threadEmprestimo;
+        volatile long devolvidaEm = System.nanoTime();
+        volatile boolean vazamentoReportado;
+        // Só com pilhaVazamento ligado
+        volatile Exception origem;
+
+        Entrada(Connection fisica) {
+            this.fisica = fisica;
+        }
+
+        /**
+         * Cada empréstimo recebe um proxy próprio, para que um {@code close()}
+         * repetido ou o uso após o fechamento não afete o próximo dono da conexão.
+         */
+        Connection novoHandle() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final Entrada entrada;
+        private boolean devolvida;
+
+        Handle(Entrada entrada) {
+            this.entrada = entrada;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "close":
+                if (!devolvida) {
+                    devolvida = true;
+                    devolver(entrada);
+                }
+                return null;
+            case "isClosed":
+                return devolvida || entrada.fisica.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "PooledConnection[" + entrada.fisica + "]";
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            default:
+                break;
+            }
+            if (devolvida) {
+                throw new SQLException("Conexão já devolvida ao pool.");
+            }
+            try {
+                return method.invoke(entrada.fisica, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
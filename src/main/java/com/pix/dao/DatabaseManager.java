@@ -1,44 +1,67 @@
 package com.pix.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
+/**
+ * Ponto de acesso ao banco. Mantém um {@link ConnectionPool} único; cada chamada a
+ * {@link #getConnection()} empresta uma conexão que deve ser fechada (devolvida)
+ * pelo chamador, tipicamente com try-with-resources.
+ * <p>
+ * O pool pode ser ajustado pelas propriedades de sistema {@code pix.db.pool.min},
+ * {@code pix.db.pool.max}, {@code pix.db.pool.timeoutMs}, {@code pix.db.pool.ociosoMs}
+ * e {@code pix.db.pool.vazamentoMs}. Com {@code -Dpix.db.pool.vazamentoPilha=true}
+ * o pool guarda a pilha de cada empréstimo para o relatório de vazamento (só para
+ * depuração: custa uma exceção por empréstimo).
+ */
 public class DatabaseManager {
-    private static DatabaseManager instance;
-    private Connection connection;
+    private static final String URL = "jdbc:mysql://localhost:3306/sistema_pix?useSSL=false&serverTimezone=UTC"
+            // INSERTs em batch (group commit) viram um único INSERT de várias linhas
+            + "&rewriteBatchedStatements=true";
+    private static final String USER = "root";
+    private static final String PASSWORD = "";
 
-    private final String URL = "jdbc:mysql://localhost:3306/sistema_pix?useSSL=false&serverTimezone=UTC";
-    private final String USER = "root";
-    private final String PASSWORD = "";
+    private final ConnectionPool pool;
 
     private DatabaseManager() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
-            this.connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            this.connection.setAutoCommit(true);
-        } catch (ClassNotFoundException | SQLException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Erro ao conectar ao banco de dados.", e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Driver JDBC do MySQL não encontrado.", e);
         }
+        this.pool = new ConnectionPool(URL, USER, PASSWORD,
+                Integer.getInteger("pix.db.pool.min", 2),
+                Integer.getInteger("pix.db.pool.max", 20),
+                Long.getLong("pix.db.pool.timeoutMs", 5_000L),
+                Long.getLong("pix.db.pool.ociosoMs", 10 * 60_000L),
+                Long.getLong("pix.db.pool.vazamentoMs", 60_000L),
+                Boolean.getBoolean("pix.db.pool.vazamentoPilha"));
     }
 
-    public static synchronized DatabaseManager getInstance() {
-        if (instance == null) {
-            instance = new DatabaseManager();
-        } else {
-            try {
-                if (instance.connection == null || instance.connection.isClosed()) {
-                    instance = new DatabaseManager();
-                }
-            } catch (SQLException e) {
-                instance = new DatabaseManager();
-            }
-        }
-        return instance;
+    // Inicialização preguiçosa e sem lock (idiom do holder): nada de monitor no
+    // caminho quente, o que também evita prender carriers de threads virtuais.
+    private static final class Holder {
+        static final DatabaseManager INSTANCE = new DatabaseManager();
+    }
+
+    public static DatabaseManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Empresta uma conexão do pool. O chamador deve fechá-la para devolvê-la.
+     */
+    public Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    public DataSource getDataSource() {
+        return pool;
     }
 
-    public Connection getConnection() {
-        return connection;
+    public ConnectionPool getPool() {
+        return pool;
     }
 }
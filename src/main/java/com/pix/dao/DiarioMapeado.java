@@ -0,0 +1,713 @@
+package com.pix.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diário só de acréscimo em arquivos mapeados em memória, usado pelo motor
+ * {@code diario} de {@link Repositorios}: o {@link ArmazenamentoMemoria} mantém
+ * contas e saldos em memória e registra aqui cada mudança antes de aplicá-la; na
+ * subida o estado é reconstruído reproduzindo o diário, inteiro ou só a cauda
+ * posterior ao último {@link SnapshotSaldos}. Os segmentos inteiramente cobertos
+ * por um snapshot gravado são apagados ({@link #descartarAte}).
+ * <p>
+ * O diário é uma sequência de segmentos {@code diario-<primeiro seq>.seg} de
+ * tamanho fixo, cada um com um cabeçalho (mágico {@code PXDJ}, versão e primeiro
+ * número de sequência) seguido dos registros:
+ * <pre>
+ *   int   crc32c   (dos bytes seguintes do registro)
+ *   short tamanho  (do registro inteiro, múltiplo de 8; 0 = fim do segmento)
+ *   byte  tipo, byte reservado
+ *   long  seq      (consecutivo entre todos os segmentos)
+ *   dados
+ * </pre>
+ * Depósitos (32 bytes) e transferências (56 bytes) são registros de tamanho
+ * fixo; cadastros e atualizações levam nome e senha em UTF-8. Quando um
+ * registro não cabe no segmento atual, ele é forçado para o disco e um novo é
+ * criado; o mapeamento do anterior é liberado logo, para ele poder ser apagado
+ * depois. O segmento novo só recebe registros depois de o cabeçalho e a entrada
+ * no diretório estarem no disco. Na reprodução, o primeiro registro com CRC,
+ * tamanho ou sequência inválidos marca o fim do diário (escrita interrompida por
+ * uma queda), e o resto do segmento é zerado antes de voltar a escrever; um
+ * último segmento ainda sem cabeçalho (queda logo depois de criado) é refeito.
+ * <p>
+ * A durabilidade segue {@code pix.diario.fsync}:
+ * <ul>
+ *   <li>{@code escrita}: cada registro é forçado para o disco antes de a operação responder;</li>
+ *   <li>{@code lote} (padrão): as operações esperam um thread que força o disco
+ *       para todos os registros acumulados de uma vez (group commit);</li>
+ *   <li>{@code periodico}: o disco é forçado a cada {@code pix.diario.fsyncMs} e as
+ *       operações não esperam; uma queda pode perder esse último intervalo.</li>
+ * </ul>
+ */
+public class DiarioMapeado implements ArmazenamentoMemoria.Diario {
+
+    /** Política de fsync. */
+    public enum Fsync { ESCRITA, LOTE, PERIODICO }
+
+    static final int MAGICO = 0x5058444A; // "PXDJ"
+    static final int VERSAO = 1;
+    static final int CABECALHO_SEGMENTO = 16;
+    static final int CABECALHO_REGISTRO = 16;
+    // Limite de nome/senha em bytes, para o registro caber no campo de tamanho
+    private static final int MAX_TEXTO = 4096;
+
+    static final byte CADASTRO = 1;
+    static final byte ATUALIZACAO = 2;
+    static final byte DEPOSITO = 3;
+    static final byte TRANSFERENCIA = 4;
+
+    private final Path dir;
+    private final int tamanhoSegmento;
+    private final Fsync fsync;
+    private final long fsyncMs;
+
+    // Tudo abaixo é protegido por lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition haPendentes = lock.newCondition();
+    private final Condition gravados = lock.newCondition();
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer registro = ByteBuffer.allocate(64 * 1024);
+    private MappedByteBuffer atual;
+    // Segmentos já trocados, desmapeados quando nenhum fsync fora do lock os usa
+    private final List<MappedByteBuffer> aposentados = new ArrayList<>();
+    private int forcasEmAndamento;
+    private int posicao;
+    private long proximoSeq = 1;
+    private long seqDuravel;
+    private boolean rodando;
+    private Thread gravador;
+    private long segmentos;
+    private long descartados;
+    private long forcas;
+
+    public DiarioMapeado(Path dir, int tamanhoSegmento, Fsync fsync, long fsyncMs) {
+        this.dir = dir;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.fsync = fsync;
+        this.fsyncMs = fsyncMs;
+    }
+
+    /**
+     * Cria o diário a partir de {@code pix.diario.dir} (padrão {@code diario}),
+     * {@code pix.diario.segmentoMb} (padrão 64), {@code pix.diario.fsync} (padrão
+     * {@code lote}) e {@code pix.diario.fsyncMs} (padrão 100, só para {@code periodico}).
+     */
+    static DiarioMapeado fromSystemProperties() {
+        return new DiarioMapeado(Paths.get(System.getProperty("pix.diario.dir", "diario")),
+                Integer.getInteger("pix.diario.segmentoMb", 64) * 1024 * 1024,
+                Fsync.valueOf(System.getProperty("pix.diario.fsync", "lote").toUpperCase(Locale.ROOT)),
+                Long.getLong("pix.diario.fsyncMs", 100L));
+    }
+
+    /**
+     * Reproduz todos os segmentos em {@code destino} e deixa o diário pronto para
+     * escrever depois do último registro válido.
+     *
+     * @return o número de registros reproduzidos.
+     */
+    public long reproduzir(ArmazenamentoMemoria destino) throws IOException {
+        return reproduzir(destino, 0);
+    }
+
+    /**
+     * Reproduz em {@code destino} só os registros depois de {@code desdeSeq} (o
+     * seq de um snapshot já carregado nele), sem abrir os segmentos anteriores.
+     *
+     * @return o número de registros reproduzidos.
+     * @throws IOException se o diário estiver corrompido ou não tiver os registros
+     *         logo depois de {@code desdeSeq}.
+     */
+    public long reproduzir(ArmazenamentoMemoria destino, long desdeSeq) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> arquivos = listarSegmentos();
+        // Pula os segmentos cujo sucessor já começa dentro da cauda
+        int primeiro = 0;
+        while (primeiro + 1 < arquivos.size() && primeiroSeq(arquivos.get(primeiro + 1)) <= desdeSeq + 1) {
+            primeiro++;
+        }
+        if (primeiro < arquivos.size()) {
+            proximoSeq = primeiroSeq(arquivos.get(primeiro));
+        }
+        if (proximoSeq > desdeSeq + 1 || (arquivos.isEmpty() && desdeSeq > 0)) {
+            throw new IOException("O diário em " + dir + " não contém os registros seguintes ao snapshot (seq "
+                    + desdeSeq + ")");
+        }
+        long reproduzidos = 0;
+        ByteBuffer leitura = null;
+        for (int a = primeiro; a < arquivos.size(); a++) {
+            boolean ultimo = a == arquivos.size() - 1;
+            if (ultimo && semCabecalho(arquivos.get(a))) {
+                if (primeiroSeq(arquivos.get(a)) != proximoSeq) {
+                    throw new IOException("Segmento do diário fora de ordem: " + arquivos.get(a));
+                }
+                // Criado antes de uma queda e sem registros: é recriado abaixo
+                System.err.println("[DiarioMapeado] Segmento sem cabeçalho recriado: " + arquivos.get(a));
+                Files.delete(arquivos.remove(a));
+                break;
+            }
+            // Só o último segmento, onde a escrita continua, é mapeado; os anteriores
+            // são lidos para a memória, já que serão apagados depois de um snapshot
+            ByteBuffer seg;
+            if (ultimo) {
+                seg = mapear(arquivos.get(a));
+            } else {
+                leitura = ler(arquivos.get(a), leitura);
+                seg = leitura;
+            }
+            if (seg.getInt(0) != MAGICO || seg.getInt(4) != VERSAO || seg.getLong(8) != proximoSeq) {
+                throw new IOException("Segmento do diário inválido ou fora de ordem: " + arquivos.get(a));
+            }
+            ByteBuffer corpo = seg.duplicate();
+            int pos = CABECALHO_SEGMENTO;
+            while (true) {
+                int tamanho = validar(seg, corpo, pos);
+                if (tamanho <= 0) {
+                    break;
+                }
+                if (proximoSeq > desdeSeq) {
+                    aplicar(seg, pos, proximoSeq, destino);
+                    reproduzidos++;
+                }
+                proximoSeq++;
+                pos += tamanho;
+            }
+            if (!ultimo && validarFim(seg, pos)) {
+                continue;
+            }
+            if (!ultimo) {
+                throw new IOException("Diário interrompido antes do último segmento: " + arquivos.get(a));
+            }
+            // Descarta o que sobrou de uma escrita interrompida
+            MappedByteBuffer mapeado = (MappedByteBuffer) seg;
+            if (!zerado(seg, pos)) {
+                zerar(seg, pos);
+                mapeado.force();
+            }
+            atual = mapeado;
+            posicao = pos;
+        }
+        seqDuravel = proximoSeq - 1;
+        segmentos = arquivos.size() - primeiro;
+        if (atual == null) {
+            novoSegmento();
+        }
+        return reproduzidos;
+    }
+
+    private List<Path> listarSegmentos() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> p.getFileName().toString().matches("diario-\\d{20}\\.seg"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long primeiroSeq(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        return Long.parseLong(nome.substring("diario-".length(), nome.length() - ".seg".length()));
+    }
+
+    /**
+     * Apaga os segmentos cujos registros têm todos seq até {@code seq}; o segmento
+     * atual nunca é apagado. Chamado depois de um snapshot com esse seq estar no disco.
+     *
+     * @return quantos segmentos foram apagados.
+     */
+    int descartarAte(long seq) throws IOException {
+        lock.lock();
+        try {
+            liberarAposentados();
+        } finally {
+            lock.unlock();
+        }
+        List<Path> arquivos = listarSegmentos();
+        int apagados = 0;
+        for (int a = 0; a + 1 < arquivos.size() && primeiroSeq(arquivos.get(a + 1)) <= seq + 1; a++) {
+            try {
+                Files.deleteIfExists(arquivos.get(a));
+                apagados++;
+            } catch (IOException e) {
+                // Ainda em uso (no Windows, um mapeamento vivo); fica para o próximo snapshot
+                System.err.println("[DiarioMapeado] Segmento não apagado: " + e.getMessage());
+            }
+        }
+        lock.lock();
+        try {
+            segmentos -= apagados;
+            descartados += apagados;
+        } finally {
+            lock.unlock();
+        }
+        return apagados;
+    }
+
+    /** Indica se o segmento não chegou a ter o cabeçalho gravado (curto ou zerado no início). */
+    private static boolean semCabecalho(Path arquivo) throws IOException {
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO_SEGMENTO);
+            while (cabecalho.hasRemaining()) {
+                if (ch.read(cabecalho) < 0) {
+                    break;
+                }
+            }
+            return cabecalho.hasRemaining() || zerado(cabecalho.flip(), 0);
+        }
+    }
+
+    /** Força a lista de arquivos do diretório para o disco (criação, troca ou remoção de arquivos). */
+    static void forcarDiretorio(Path dir) throws IOException {
+        try (FileChannel canal = FileChannel.open(dir, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Windows não abre diretórios; lá o NTFS já registra a criação no seu journal
+            if (!System.getProperty("os.name", "").startsWith("Windows")) {
+                throw e;
+            }
+        }
+    }
+
+    private static MappedByteBuffer mapear(Path arquivo) throws IOException {
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+        }
+    }
+
+    /** Lê o segmento inteiro para {@code reuso} (ou um buffer novo, se não couber); o limite é o tamanho. */
+    private static ByteBuffer ler(Path arquivo, ByteBuffer reuso) throws IOException {
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segmento do diário grande demais: " + arquivo);
+            }
+            int tamanho = (int) ch.size();
+            ByteBuffer buf = reuso != null && reuso.capacity() >= tamanho ? reuso : ByteBuffer.allocate(tamanho);
+            buf.clear().limit(tamanho);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) {
+                    throw new IOException("Segmento do diário truncado: " + arquivo);
+                }
+            }
+            return buf.flip();
+        }
+    }
+
+    /** Tamanho do registro em {@code pos} se ele for íntegro e o próximo da sequência; senão 0. */
+    private int validar(ByteBuffer seg, ByteBuffer corpo, int pos) {
+        if (pos + CABECALHO_REGISTRO > seg.limit()) {
+            return 0;
+        }
+        int tamanho = seg.getShort(pos + 4) & 0xFFFF;
+        if (tamanho < CABECALHO_REGISTRO || (tamanho & 7) != 0 || pos + tamanho > seg.limit()
+                || seg.getLong(pos + 8) != proximoSeq) {
+            return 0;
+        }
+        corpo.limit(pos + tamanho).position(pos + 4);
+        crc.reset();
+        crc.update(corpo);
+        return (int) crc.getValue() == seg.getInt(pos) ? tamanho : 0;
+    }
+
+    // Um segmento fechado termina com zeros (o registro seguinte não coube)
+    private static boolean validarFim(ByteBuffer seg, int pos) {
+        return pos + CABECALHO_REGISTRO > seg.limit() || seg.getShort(pos + 4) == 0;
+    }
+
+    // As posições de registro são múltiplas de 8, assim como o tamanho do segmento
+    private static boolean zerado(ByteBuffer seg, int desde) {
+        for (int i = desde; i + 8 <= seg.limit(); i += 8) {
+            if (seg.getLong(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void zerar(ByteBuffer seg, int desde) {
+        for (int i = desde; i + 8 <= seg.limit(); i += 8) {
+            seg.putLong(i, 0);
+        }
+    }
+
+    private static void aplicar(ByteBuffer b, int pos, long seq, ArmazenamentoMemoria destino) {
+        int p = pos + CABECALHO_REGISTRO;
+        switch (b.get(pos + 6)) {
+        case CADASTRO: {
+            long cpf = b.getLong(p);
+            long saldo = b.getLong(p + 8);
+            String nome = lerTexto(b, p + 16);
+            String senha = lerTexto(b, p + 18 + b.getShort(p + 16));
+            destino.reproduzirCadastro(seq, cpf, nome, senha, saldo);
+            break;
+        }
+        case ATUALIZACAO: {
+            long cpf = b.getLong(p);
+            String nome = lerTexto(b, p + 8);
+            String senha = lerTexto(b, p + 10 + b.getShort(p + 8));
+            destino.reproduzirAtualizacao(seq, cpf, nome, senha);
+            break;
+        }
+        case DEPOSITO:
+            destino.reproduzirDeposito(seq, b.getLong(p), b.getLong(p + 8));
+            break;
+        case TRANSFERENCIA:
+            destino.reproduzirTransferencia(seq, b.getLong(p), b.getLong(p + 8), b.getLong(p + 16), b.getLong(p + 24),
+                    b.getLong(p + 32));
+            break;
+        default:
+            throw new IllegalStateException("Tipo de registro desconhecido no diário: " + b.get(pos + 6));
+        }
+    }
+
+    private static String lerTexto(ByteBuffer b, int pos) {
+        int n = b.getShort(pos);
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = b.get(pos + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Escrita
+
+    private static byte[] texto(String valor) {
+        byte[] b = valor.getBytes(StandardCharsets.UTF_8);
+        if (b.length > MAX_TEXTO) {
+            throw new IllegalArgumentException("Texto grande demais para o diário: " + b.length + " bytes");
+        }
+        return b;
+    }
+
+    @Override
+    public long cadastro(long cpf, String nome, String senha, long saldo) {
+        byte[] n = texto(nome);
+        byte[] s = texto(senha);
+        lock.lock();
+        try {
+            ByteBuffer r = iniciarRegistro(CADASTRO);
+            r.putLong(cpf).putLong(saldo);
+            r.putShort((short) n.length).put(n).putShort((short) s.length).put(s);
+            return anexar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long atualizacao(long cpf, String nome, String senha) {
+        byte[] n = texto(nome);
+        byte[] s = texto(senha);
+        lock.lock();
+        try {
+            ByteBuffer r = iniciarRegistro(ATUALIZACAO);
+            r.putLong(cpf);
+            r.putShort((short) n.length).put(n).putShort((short) s.length).put(s);
+            return anexar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long deposito(long cpf, long valor) {
+        lock.lock();
+        try {
+            iniciarRegistro(DEPOSITO).putLong(cpf).putLong(valor);
+            return anexar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long transferencia(long id, long origem, long destino, long valor, long criadoEmMs) {
+        lock.lock();
+        try {
+            iniciarRegistro(TRANSFERENCIA).putLong(id).putLong(origem).putLong(destino).putLong(valor)
+                    .putLong(criadoEmMs);
+            return anexar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer iniciarRegistro(byte tipo) {
+        registro.clear();
+        registro.putInt(0).putShort((short) 0).put(tipo).put((byte) 0).putLong(proximoSeq);
+        return registro;
+    }
+
+    /** Completa o registro em {@link #registro} e o copia para o segmento. */
+    private long anexar() {
+        while ((registro.position() & 7) != 0) {
+            registro.put((byte) 0);
+        }
+        int tamanho = registro.position();
+        registro.putShort(4, (short) tamanho);
+        crc.reset();
+        crc.update(registro.array(), 4, tamanho - 4);
+        registro.putInt(0, (int) crc.getValue());
+
+        if (posicao + tamanho > atual.capacity()) {
+            atual.force();
+            forcas++;
+            aposentados.add(atual);
+            novoSegmento();
+            liberarAposentados();
+        }
+        atual.position(posicao);
+        atual.put(registro.array(), 0, tamanho);
+        posicao += tamanho;
+        long seq = proximoSeq++;
+        if (fsync == Fsync.ESCRITA) {
+            atual.force();
+            forcas++;
+            seqDuravel = seq;
+        } else if (fsync == Fsync.LOTE) {
+            haPendentes.signal();
+        }
+        return seq;
+    }
+
+    private void novoSegmento() {
+        Path arquivo = dir.resolve(String.format("diario-%020d.seg", proximoSeq));
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            atual = ch.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+            atual.putInt(0, MAGICO).putInt(4, VERSAO).putLong(8, proximoSeq);
+            // Cabeçalho, tamanho do arquivo e entrada no diretório vão para o disco
+            // antes do primeiro registro, que pode ser dado como durável sozinho
+            atual.force();
+            ch.force(true);
+            forcarDiretorio(dir);
+            forcas++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o segmento do diário " + arquivo, e);
+        }
+        posicao = CABECALHO_SEGMENTO;
+        segmentos++;
+    }
+
+    @Override
+    public long ultimoSeq() {
+        lock.lock();
+        try {
+            return proximoSeq - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Com a política {@code lote}, espera o registro {@code seq} chegar ao disco.
+     */
+    @Override
+    public void aguardar(long seq) {
+        if (fsync != Fsync.LOTE) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (seqDuravel < seq && rodando) {
+                gravados.awaitUninterruptibly();
+            }
+            if (seqDuravel >= seq) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Sem o thread de fsync (parado ou não iniciado): força aqui mesmo
+        forcar();
+    }
+
+    /**
+     * Inicia o thread que força o disco (políticas {@code lote} e {@code periodico}).
+     */
+    @Override
+    public void iniciar() {
+        lock.lock();
+        try {
+            if (rodando || fsync == Fsync.ESCRITA) {
+                return;
+            }
+            rodando = true;
+            gravador = new Thread(this::gravar, "pix-diario-fsync");
+            gravador.setDaemon(true);
+            gravador.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Para o thread de fsync e força o que falta para o disco. */
+    @Override
+    public void parar() {
+        Thread t;
+        lock.lock();
+        try {
+            rodando = false;
+            haPendentes.signalAll();
+            gravados.signalAll();
+            t = gravador;
+            gravador = null;
+        } finally {
+            lock.unlock();
+        }
+        if (t != null) {
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        forcar();
+    }
+
+    private void gravar() {
+        while (true) {
+            MappedByteBuffer seg;
+            long alvo;
+            lock.lock();
+            try {
+                if (fsync == Fsync.PERIODICO) {
+                    haPendentes.await(fsyncMs, TimeUnit.MILLISECONDS);
+                } else {
+                    while (rodando && seqDuravel == proximoSeq - 1) {
+                        haPendentes.await();
+                    }
+                }
+                if (!rodando) {
+                    return;
+                }
+                if (seqDuravel == proximoSeq - 1) {
+                    continue;
+                }
+                seg = atual;
+                alvo = proximoSeq - 1;
+                forcasEmAndamento++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            // Fora do lock: as escritas continuam enquanto o disco é forçado. Um
+            // segmento trocado no meio tempo já foi forçado na troca.
+            seg.force();
+            lock.lock();
+            try {
+                forcas++;
+                seqDuravel = Math.max(seqDuravel, alvo);
+                forcasEmAndamento--;
+                liberarAposentados();
+                gravados.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Força para o disco todos os registros feitos até agora. */
+    void forcar() {
+        MappedByteBuffer seg;
+        long alvo;
+        lock.lock();
+        try {
+            seg = atual;
+            alvo = proximoSeq - 1;
+            if (seg == null) {
+                return;
+            }
+            forcasEmAndamento++;
+        } finally {
+            lock.unlock();
+        }
+        seg.force();
+        lock.lock();
+        try {
+            forcas++;
+            seqDuravel = Math.max(seqDuravel, alvo);
+            forcasEmAndamento--;
+            liberarAposentados();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Mapeamentos
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            invokeCleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Sem o Unsafe os mapeamentos só são liberados pelo GC
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Desmapeia os segmentos trocados, se nenhum fsync fora do lock estiver em
+     * andamento; no Windows um arquivo mapeado não pode ser apagado. Chamado com
+     * {@link #lock} travado.
+     */
+    private void liberarAposentados() {
+        if (forcasEmAndamento > 0) {
+            return;
+        }
+        for (MappedByteBuffer m : aposentados) {
+            liberar(m);
+        }
+        aposentados.clear();
+    }
+
+    /** Libera o mapeamento já; ele não pode mais ser usado depois disso. */
+    private static void liberar(MappedByteBuffer m) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, m);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fica para o GC
+        }
+    }
+
+    @Override
+    public String estatisticas() {
+        lock.lock();
+        try {
+            return String.format("diario[fsync=%s, registros=%d, duraveis=%d, segmentos=%d, descartados=%d, "
+                    + "forcas=%d]", fsync.name().toLowerCase(Locale.ROOT), proximoSeq - 1, seqDuravel, segmentos,
+                    descartados, forcas);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.pix.dao;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de CPFs. Responde "certamente ausente" ou "talvez presente";
+ * nunca dá falso negativo para um CPF adicionado. Inserções e consultas são
+ * livres de trava (bits em {@link AtomicLongArray}).
+ */
+final class FiltroBloom {
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * @param capacidade  número de CPFs esperado.
+     * @param taxaFalsoPositivo taxa de falsos positivos desejada nessa capacidade.
+     */
+    FiltroBloom(int capacidade, double taxaFalsoPositivo) {
+        long m = (long) Math.ceil(-capacidade * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        this.numBits = m;
+        this.numHashes = Math.max(1, (int) Math.round((double) m / capacidade * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (m / 64));
+    }
+
+    void adicionar(String cpf) {
+        long h = hash(cpf);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = indice(h1 + i * h2);
+            int palavra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long atual;
+            while (((atual = bits.get(palavra)) & mascara) == 0
+                    && !bits.compareAndSet(palavra, atual, atual | mascara)) {
+                // outra thread mudou a palavra; tenta de novo
+            }
+        }
+    }
+
+    boolean talvezContenha(String cpf) {
+        long h = hash(cpf);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = indice(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getNumBits() { return numBits; }
+    int getNumHashes() { return numHashes; }
+
+    private long indice(int combinado) {
+        return (combinado & 0x7fffffffL) % numBits;
+    }
+
+    // Hash de 64 bits dos caracteres (FNV-1a seguido da mistura final do MurmurHash3)
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,403 @@
+package com.pix.dao;
+
+import com.pix.model.Dinheiro;
+import com.pix.model.ResultadoTransferencia;
+import com.pix.model.Transacao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Group commit das transferências: os pedidos entram numa fila e um único thread
+ * gravador os junta em lotes (até {@code maxLote} pedidos ou {@code janelaMs}
+ * depois do primeiro) e grava cada lote numa só transação do banco, com um
+ * commit (e um fsync do MySQL) para o lote inteiro em vez de um por transferência.
+ * <p>
+ * Dentro da transação o lote é aplicado em três passos com batching JDBC: os
+ * débitos condicionais ({@code saldo >= valor}), os créditos dos pedidos
+ * debitados (com estorno na origem quando o destino não existe) e os INSERTs
+ * das transferências que deram certo. O número de linhas afetadas de cada
+ * comando decide o resultado de cada pedido, então saldo insuficiente ou destino
+ * inexistente falham só o próprio pedido. Os débitos vêm antes dos créditos do
+ * lote: uma transferência pode ser recusada por saldo que só chegaria por outra
+ * do mesmo lote, o mesmo resultado de ela ter chegado antes.
+ * <p>
+ * Como no caminho normal, as contas do lote são travadas em {@link LocksContas}
+ * (todas as faixas, em ordem canônica) antes de pegar a conexão e só destravadas
+ * depois do commit, então o lote não disputa linhas com transferências
+ * individuais nem com as operações de saldo do {@link UsuarioDAO} deste processo.
+ * Os débitos vão ao banco ordenados pelo CPF de origem e os créditos pelo de
+ * destino (a ordem entre pedidos da mesma conta é mantida), para que lotes de
+ * servidores diferentes travem as linhas de cada passo na mesma ordem; o que
+ * sobrar de impasse entre processos o MySQL detecta, e o lote desfeito é refeito
+ * pedido a pedido.
+ * <p>
+ * Se o lote falhar no banco antes do commit, ele é desfeito e cada pedido é
+ * refeito sozinho pelo caminho normal ({@link TransacaoDAO#salvarIndividual}),
+ * para um pedido ruim não derrubar os outros. Se o próprio commit falhar, o lote
+ * pode ter sido gravado: nada é refeito e os pedidos terminam como
+ * {@link ResultadoTransferencia#INCERTO}. Qualquer outra exceção falha só os
+ * pedidos do lote; se o gravador morrer, o pipeline para e os pedidos na fila
+ * (e os seguintes) voltam ao caminho normal.
+ */
+public class GroupCommitTransacoes {
+    private static final String DEBITA = "UPDATE usuarios SET saldo = saldo - ? WHERE cpf = ? AND saldo >= ?";
+    private static final String CREDITA = "UPDATE usuarios SET saldo = saldo + ? WHERE cpf = ?";
+    private static final String INSERT_TX = "INSERT INTO transacoes (cpf_origem, cpf_destino, valor, criado_em, "
+            + "atualizado_em) VALUES (?, ?, ?, ?, ?)";
+
+    private static final class Pedido {
+        final Transacao transacao;
+        final CompletableFuture<ResultadoTransferencia> resultado = new CompletableFuture<>();
+
+        Pedido(Transacao transacao) {
+            this.transacao = transacao;
+        }
+    }
+
+    private final TransacaoDAO dao;
+    private final int maxLote;
+    private final long janelaNanos;
+    private final BlockingQueue<Pedido> fila;
+    private volatile boolean rodando = true;
+    private final Thread gravador;
+
+    // Métricas
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder pedidos = new LongAdder();
+    private final LongAdder lotesRefeitos = new LongAdder();
+    private final LongAdder lotesIncertos = new LongAdder();
+    private final AtomicLong maiorLote = new AtomicLong();
+
+    public GroupCommitTransacoes(TransacaoDAO dao, int maxLote, long janelaMs, int capacidadeFila) {
+        this.dao = dao;
+        this.maxLote = maxLote;
+        this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(janelaMs);
+        this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+        this.gravador = new Thread(this::executar, "pix-group-commit");
+        this.gravador.setDaemon(true);
+        this.gravador.start();
+    }
+
+    /**
+     * Cria o pipeline a partir de {@code pix.groupCommit.maxLote} (padrão 256),
+     * {@code pix.groupCommit.janelaMs} (padrão 2 ms) e {@code pix.groupCommit.fila}
+     * (padrão 10.000).
+     */
+    static GroupCommitTransacoes fromSystemProperties(TransacaoDAO dao) {
+        return new GroupCommitTransacoes(dao,
+                Integer.getInteger("pix.groupCommit.maxLote", 256),
+                Long.getLong("pix.groupCommit.janelaMs", 2L),
+                Integer.getInteger("pix.groupCommit.fila", 10_000));
+    }
+
+    /**
+     * Enfileira a transferência e espera o commit do lote em que ela entrou.
+     *
+     * @return o resultado, ou {@code null} se o pipeline já foi parado (o chamador
+     *         grava pelo caminho normal).
+     * @throws RejectedExecutionException se a fila estiver cheia.
+     */
+    ResultadoTransferencia salvar(Transacao t) {
+        if (!rodando) {
+            return null;
+        }
+        Pedido p = new Pedido(t);
+        if (!fila.offer(p)) {
+            throw new RejectedExecutionException("Fila do group commit cheia");
+        }
+        // Corrida com parar(): se o gravador já esvaziou a fila pela última vez,
+        // o pedido é retirado de volta e gravado pelo chamador
+        if (!rodando && fila.remove(p)) {
+            return null;
+        }
+        while (true) {
+            try {
+                return p.resultado.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // O gravador sempre conclui os pedidos que tira da fila; se ele
+                // morreu com este ainda lá, o pedido é gravado pelo chamador
+                if (!gravador.isAlive() && !p.resultado.isDone()) {
+                    return fila.remove(p) ? null : ResultadoTransferencia.INCERTO;
+                }
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                throw causa instanceof RuntimeException ? (RuntimeException) causa
+                        : new IllegalStateException("Falha no group commit", causa);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return fila.remove(p) ? null : ResultadoTransferencia.INCERTO;
+            }
+        }
+    }
+
+    /**
+     * Para de aceitar pedidos e espera o gravador terminar os que estão na fila.
+     */
+    public void parar() {
+        rodando = false;
+        try {
+            gravador.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executar() {
+        try {
+            executarLotes();
+        } finally {
+            // Parada normal ou morte do gravador: o que restou na fila volta aos chamadores
+            rodando = false;
+            Pedido p;
+            while ((p = fila.poll()) != null) {
+                p.resultado.complete(null);
+            }
+        }
+    }
+
+    private void executarLotes() {
+        List<Pedido> lote = new ArrayList<>(maxLote);
+        while (true) {
+            Pedido primeiro;
+            try {
+                primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (primeiro == null) {
+                if (!rodando) {
+                    break;
+                }
+                continue;
+            }
+            lote.add(primeiro);
+            long limite = System.nanoTime() + janelaNanos;
+            try {
+                while (lote.size() < maxLote) {
+                    long resta = limite - System.nanoTime();
+                    Pedido p = resta > 0 ? fila.poll(resta, TimeUnit.NANOSECONDS) : fila.poll();
+                    if (p == null) {
+                        break;
+                    }
+                    lote.add(p);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gravarLote(lote);
+            lote.clear();
+        }
+        // Sobras da fila depois da parada
+        Pedido p;
+        while ((p = fila.poll()) != null) {
+            lote.add(p);
+            if (lote.size() == maxLote) {
+                gravarLote(lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            gravarLote(lote);
+        }
+    }
+
+    /**
+     * Grava o lote sem deixar exceção escapar com pedidos pendentes: qualquer
+     * falha termina os futuros do lote; um {@link Error} ainda encerra o gravador.
+     */
+    private void gravarLote(List<Pedido> lote) {
+        try {
+            gravarComIsolamento(lote);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            for (Pedido p : lote) {
+                p.resultado.completeExceptionally(t);
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+        }
+    }
+
+    private void gravarComIsolamento(List<Pedido> lote) {
+        lotes.increment();
+        pedidos.add(lote.size());
+        maiorLote.accumulateAndGet(lote.size(), Math::max);
+        ResultadoTransferencia[] resultados = gravar(lote);
+        if (resultados == null) {
+            lotesRefeitos.increment();
+            for (Pedido p : lote) {
+                try {
+                    p.resultado.complete(dao.salvarIndividual(p.transacao));
+                } catch (Throwable e) {
+                    p.resultado.completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            lote.get(i).resultado.complete(resultados[i]);
+        }
+    }
+
+    /**
+     * Grava o lote numa transação.
+     *
+     * @return o resultado de cada pedido, ou {@code null} se o lote foi desfeito
+     *         antes do commit (e pode ser refeito).
+     */
+    private ResultadoTransferencia[] gravar(List<Pedido> lote) {
+        int n = lote.size();
+        ResultadoTransferencia[] resultados = new ResultadoTransferencia[n];
+        List<String> cpfs = new ArrayList<>(2 * n);
+        for (Pedido p : lote) {
+            cpfs.add(p.transacao.getCpfOrigem());
+            cpfs.add(p.transacao.getCpfDestino());
+        }
+        LocksContas locks = LocksContas.getInstance();
+        int[] travadas = locks.travar(cpfs);
+        Connection conn = null;
+        boolean commitEnviado = false;
+        try {
+            conn = DatabaseManager.getInstance().getConnection();
+            conn.setAutoCommit(false);
+
+            // Ordenação estável: pedidos da mesma conta seguem na ordem de chegada
+            Integer[] porOrigem = ordenar(lote, n, Transacao::getCpfOrigem);
+            int[] debitos = new int[n];
+            try (PreparedStatement pst = conn.prepareStatement(DEBITA)) {
+                for (int i : porOrigem) {
+                    Transacao t = lote.get(i).transacao;
+                    pst.setBigDecimal(1, Dinheiro.decimal(t.getValorCentavos()));
+                    pst.setString(2, t.getCpfOrigem());
+                    pst.setBigDecimal(3, Dinheiro.decimal(t.getValorCentavos()));
+                    pst.addBatch();
+                }
+                int[] linhas = pst.executeBatch();
+                for (int j = 0; j < n; j++) {
+                    debitos[porOrigem[j]] = linhas[j];
+                }
+            }
+
+            // Créditos só dos debitados; indices[k] é o pedido do k-ésimo comando
+            int[] indices = new int[n];
+            int k = 0;
+            try (PreparedStatement pst = conn.prepareStatement(CREDITA)) {
+                for (int i : ordenar(lote, n, Transacao::getCpfDestino)) {
+                    if (debitos[i] <= 0) {
+                        resultados[i] = ResultadoTransferencia.SALDO_INSUFICIENTE;
+                        continue;
+                    }
+                    Transacao t = lote.get(i).transacao;
+                    pst.setBigDecimal(1, Dinheiro.decimal(t.getValorCentavos()));
+                    pst.setString(2, t.getCpfDestino());
+                    pst.addBatch();
+                    indices[k++] = i;
+                }
+                if (k > 0) {
+                    int[] creditos = pst.executeBatch();
+                    boolean estornar = false;
+                    for (int j = 0; j < k; j++) {
+                        if (creditos[j] <= 0) {
+                            resultados[indices[j]] = ResultadoTransferencia.DESTINO_INEXISTENTE;
+                            estornar = true;
+                        }
+                    }
+                    if (estornar) {
+                        // Devolve à origem o débito das transferências sem destino
+                        for (int j = 0; j < k; j++) {
+                            if (resultados[indices[j]] == ResultadoTransferencia.DESTINO_INEXISTENTE) {
+                                Transacao t = lote.get(indices[j]).transacao;
+                                pst.setBigDecimal(1, Dinheiro.decimal(t.getValorCentavos()));
+                                pst.setString(2, t.getCpfOrigem());
+                                pst.addBatch();
+                            }
+                        }
+                        pst.executeBatch();
+                    }
+                }
+            }
+
+            k = 0;
+            try (PreparedStatement ptx = conn.prepareStatement(INSERT_TX, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < n; i++) {
+                    if (resultados[i] != null) {
+                        continue;
+                    }
+                    Transacao t = lote.get(i).transacao;
+                    ptx.setString(1, t.getCpfOrigem());
+                    ptx.setString(2, t.getCpfDestino());
+                    ptx.setBigDecimal(3, Dinheiro.decimal(t.getValorCentavos()));
+                    ptx.setTimestamp(4, Timestamp.valueOf(t.getCriadoEm()));
+                    ptx.setTimestamp(5, Timestamp.valueOf(t.getAtualizadoEm()));
+                    ptx.addBatch();
+                    indices[k++] = i;
+                }
+                if (k > 0) {
+                    ptx.executeBatch();
+                    try (ResultSet keys = ptx.getGeneratedKeys()) {
+                        for (int j = 0; j < k && keys.next(); j++) {
+                            lote.get(indices[j]).transacao.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+
+            commitEnviado = true;
+            conn.commit();
+            for (int j = 0; j < k; j++) {
+                resultados[indices[j]] = ResultadoTransferencia.SUCESSO;
+            }
+            return resultados;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+            }
+            if (commitEnviado) {
+                // Sem saber se o commit chegou ao banco, refazer poderia aplicar tudo em dobro
+                lotesIncertos.increment();
+                Arrays.fill(resultados, ResultadoTransferencia.INCERTO);
+                return resultados;
+            }
+            return null;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { ex.printStackTrace(); }
+                try { conn.close(); } catch (SQLException ex) { ex.printStackTrace(); }
+            }
+            locks.destravar(travadas);
+        }
+    }
+
+    private static Integer[] ordenar(List<Pedido> lote, int n, Function<Transacao, String> cpf) {
+        Integer[] ordem = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, Comparator.comparing(i -> cpf.apply(lote.get(i).transacao)));
+        return ordem;
+    }
+
+    public String estatisticas() {
+        long l = Math.max(1, lotes.sum());
+        return String.format("group_commit[lotes=%d, pedidos=%d, lote_medio=%.1f, maior_lote=%d, "
+                + "lotes_refeitos=%d, lotes_incertos=%d, fila=%d]", lotes.sum(), pedidos.sum(),
+                pedidos.sum() / (double) l, maiorLote.get(), lotesRefeitos.sum(), lotesIncertos.sum(), fila.size());
+    }
+}
@@ -0,0 +1,184 @@
+package com.pix.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice em memória dos CPFs cadastrados, para recusar CPFs inexistentes sem ir
+ * ao banco: um {@link FiltroBloom} com todos os CPFs mais um cache negativo, de
+ * vida curta, dos CPFs que o banco acabou de dizer que não existem (cobre os
+ * falsos positivos do filtro repetidos).
+ * <p>
+ * O filtro é montado a partir da tabela por um thread de fundo e remontado
+ * periodicamente, para absorver cadastros feitos fora deste servidor; até a
+ * primeira carga terminar, toda consulta vai ao banco. {@link UsuarioDAO#salvar}
+ * alimenta o filtro e limpa o cache negativo.
+ * <p>
+ * Um cadastro feito por outra instância só entra no filtro na reconstrução
+ * seguinte, então a ausência no filtro só é definitiva com uma única instância
+ * sobre o banco ({@code instanciaUnica}). Com várias, o filtro não é montado e
+ * só o cache negativo, confirmado pelo banco e de vida curta, recusa CPFs.
+ */
+public class IndiceCpfs {
+    private final int capacidade;
+    private final double taxaFalsoPositivo;
+    private final long reconstrucaoMs;
+    private final long ttlNegativoNanos;
+    private final int maxNegativos;
+    private final boolean instanciaUnica;
+
+    // null até a primeira carga; trocado inteiro a cada reconstrução
+    private volatile FiltroBloom filtro;
+    // Filtro sendo montado; recebe também os cadastros feitos durante a montagem
+    private volatile FiltroBloom emConstrucao;
+    private final Map<String, Long> negativos = new ConcurrentHashMap<>();
+    private final AtomicLong cadastros = new AtomicLong();
+    private ScheduledExecutorService agendador;
+
+    private final LongAdder recusadosPeloFiltro = new LongAdder();
+    private final LongAdder recusadosPeloCacheNegativo = new LongAdder();
+    private final LongAdder consultasAoBanco = new LongAdder();
+    private final LongAdder reconstrucoes = new LongAdder();
+
+    public IndiceCpfs(int capacidade, double taxaFalsoPositivo, long reconstrucaoMs, long ttlNegativoMs,
+            int maxNegativos, boolean instanciaUnica) {
+        this.capacidade = capacidade;
+        this.taxaFalsoPositivo = taxaFalsoPositivo;
+        this.reconstrucaoMs = reconstrucaoMs;
+        this.ttlNegativoNanos = ttlNegativoMs * 1_000_000L;
+        this.maxNegativos = maxNegativos;
+        this.instanciaUnica = instanciaUnica;
+    }
+
+    /**
+     * Cria o índice a partir de {@code pix.bloom.capacidade} (padrão 1.000.000),
+     * {@code pix.bloom.reconstrucaoMs} (padrão 10 min), {@code pix.cache.negativo.ttlMs}
+     * (padrão 5 s), {@code pix.cache.negativo.max} (padrão 100.000) e
+     * {@code pix.bloom.instanciaUnica} (padrão false: o filtro fica desligado).
+     */
+    static IndiceCpfs fromSystemProperties() {
+        return new IndiceCpfs(Integer.getInteger("pix.bloom.capacidade", 1_000_000), 0.01,
+                Long.getLong("pix.bloom.reconstrucaoMs", 10 * 60_000L),
+                Long.getLong("pix.cache.negativo.ttlMs", 5_000L),
+                Integer.getInteger("pix.cache.negativo.max", 100_000),
+                Boolean.getBoolean("pix.bloom.instanciaUnica"));
+    }
+
+    /**
+     * Inicia a carga do filtro em segundo plano e as reconstruções periódicas
+     * (só com {@code instanciaUnica}).
+     */
+    public synchronized void iniciar(UsuarioDAO dao) {
+        if (agendador != null || !instanciaUnica) {
+            return;
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-indice-cpfs");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(() -> reconstruir(dao), 0, reconstrucaoMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+            agendador = null;
+        }
+    }
+
+    private void reconstruir(UsuarioDAO dao) {
+        FiltroBloom novo = new FiltroBloom(capacidade, taxaFalsoPositivo);
+        // Publicado antes da varredura: um cadastro confirmado antes daqui aparece
+        // na varredura, e um confirmado depois é adicionado pelo salvar
+        emConstrucao = novo;
+        try {
+            if (!dao.percorrerCpfs(novo::adicionar)) {
+                return; // banco indisponível: mantém o filtro anterior (ou nenhum)
+            }
+            filtro = novo;
+            reconstrucoes.increment();
+            limparNegativosExpirados();
+        } finally {
+            emConstrucao = null;
+        }
+    }
+
+    /**
+     * Indica se o CPF certamente não está cadastrado, sem consultar o banco.
+     * {@code false} quer dizer "talvez exista": a decisão fica com o banco.
+     */
+    public boolean certamenteInexistente(String cpf) {
+        FiltroBloom f = filtro;
+        if (f != null && !f.talvezContenha(cpf)) {
+            recusadosPeloFiltro.increment();
+            return true;
+        }
+        Long expiraEm = negativos.get(cpf);
+        if (expiraEm != null) {
+            if (System.nanoTime() - expiraEm < 0) {
+                recusadosPeloCacheNegativo.increment();
+                return true;
+            }
+            negativos.remove(cpf, expiraEm);
+        }
+        consultasAoBanco.increment();
+        return false;
+    }
+
+    /**
+     * Marca o início de uma consulta ao banco, para {@link #registrarInexistente}.
+     */
+    long marcarConsulta() {
+        return cadastros.get();
+    }
+
+    /**
+     * Registra que o banco não encontrou o CPF. Se houve algum cadastro desde
+     * {@code marca}, a ausência pode já estar desatualizada e não é guardada.
+     */
+    void registrarInexistente(String cpf, long marca) {
+        if (cadastros.get() == marca && negativos.size() < maxNegativos) {
+            negativos.put(cpf, System.nanoTime() + ttlNegativoNanos);
+        }
+    }
+
+    /** Registra um CPF recém-cadastrado (depois do commit). */
+    void registrarCadastro(String cpf) {
+        cadastros.incrementAndGet();
+        negativos.remove(cpf);
+        // emConstrucao antes de filtro: se já for null, a reconstrução terminou e
+        // filtro é o novo, ou ainda não começou e a varredura verá o cadastro
+        FiltroBloom c = emConstrucao;
+        if (c != null) {
+            c.adicionar(cpf);
+        }
+        FiltroBloom f = filtro;
+        if (f != null) {
+            f.adicionar(cpf);
+        }
+    }
+
+    private void limparNegativosExpirados() {
+        long agora = System.nanoTime();
+        negativos.values().removeIf(expiraEm -> agora - expiraEm >= 0);
+    }
+
+    public boolean isPronto() {
+        return filtro != null;
+    }
+
+    public String estatisticas() {
+        FiltroBloom f = filtro;
+        return String.format("indice_cpfs[instancia_unica=%b, pronto=%b, bits=%d, hashes=%d, recusados_filtro=%d, "
+                + "recusados_cache_negativo=%d, consultas_banco=%d, negativos=%d, reconstrucoes=%d]",
+                instanciaUnica, f != null, f != null ? f.getNumBits() : 0, f != null ? f.getNumHashes() : 0,
+                recusadosPeloFiltro.sum(), recusadosPeloCacheNegativo.sum(), consultasAoBanco.sum(),
+                negativos.size(), reconstrucoes.sum());
+    }
+}
@@ -0,0 +1,141 @@
+package com.pix.dao;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks em memória por conta (CPF), em faixas: cada CPF cai sempre na mesma
+ * faixa de um vetor fixo de {@link ReentrantLock}. As operações que mexem no
+ * saldo travam as faixas das contas envolvidas antes de abrir a transação no
+ * banco, então duas transferências sobre a mesma conta esperam uma pela outra
+ * aqui, num lock barato, e não em lock de linha do MySQL.
+ * <p>
+ * Com duas contas as faixas são travadas sempre em ordem crescente de índice (a
+ * ordem canônica), o que torna impossível o impasse entre A→B e B→A; se as duas
+ * caírem na mesma faixa ela é travada uma vez só. A proteção vale para este
+ * processo: outros servidores no mesmo banco continuam dependendo dos locks de
+ * linha.
+ */
+public final class LocksContas {
+    private final ReentrantLock[] faixas;
+    private final int mascara;
+
+    // Métricas
+    private final LongAdder aquisicoes = new LongAdder();
+    private final LongAdder contendidas = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final AtomicLong maiorEsperaNanos = new AtomicLong();
+
+    /**
+     * @param numFaixas número de faixas, arredondado para a próxima potência de 2.
+     */
+    public LocksContas(int numFaixas) {
+        int n = Integer.highestOneBit(Math.max(1, numFaixas - 1)) << 1;
+        faixas = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            faixas[i] = new ReentrantLock();
+        }
+        mascara = n - 1;
+    }
+
+    private static final class Holder {
+        static final LocksContas INSTANCE = new LocksContas(Integer.getInteger("pix.locks.faixas", 1024));
+    }
+
+    /** Instância compartilhada pelos DAOs; o número de faixas vem de {@code pix.locks.faixas} (padrão 1024). */
+    public static LocksContas getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private int faixa(String cpf) {
+        int h = cpf.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    /** Trava a conta; deve ser seguido de {@link #destravar(String)} num {@code finally}. */
+    public void travar(String cpf) {
+        adquirir(faixa(cpf));
+    }
+
+    public void destravar(String cpf) {
+        faixas[faixa(cpf)].unlock();
+    }
+
+    /**
+     * Trava as duas contas em ordem canônica; deve ser seguido de
+     * {@link #destravar(String, String)} com os mesmos CPFs num {@code finally}.
+     */
+    public void travar(String cpfA, String cpfB) {
+        int a = faixa(cpfA);
+        int b = faixa(cpfB);
+        adquirir(Math.min(a, b));
+        if (a != b) {
+            adquirir(Math.max(a, b));
+        }
+    }
+
+    public void destravar(String cpfA, String cpfB) {
+        int a = faixa(cpfA);
+        int b = faixa(cpfB);
+        if (a != b) {
+            faixas[Math.max(a, b)].unlock();
+        }
+        faixas[Math.min(a, b)].unlock();
+    }
+
+    /**
+     * Trava as contas de um lote inteiro: as faixas, sem repetição, em ordem
+     * crescente (a mesma ordem canônica dos pares).
+     *
+     * @return as faixas travadas, a passar para {@link #destravar(int[])} num {@code finally}.
+     */
+    public int[] travar(Collection<String> cpfs) {
+        int[] f = new int[cpfs.size()];
+        int n = 0;
+        for (String cpf : cpfs) {
+            f[n++] = faixa(cpf);
+        }
+        Arrays.sort(f);
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintas == 0 || f[i] != f[distintas - 1]) {
+                f[distintas++] = f[i];
+            }
+        }
+        f = Arrays.copyOf(f, distintas);
+        for (int i : f) {
+            adquirir(i);
+        }
+        return f;
+    }
+
+    public void destravar(int[] travadas) {
+        for (int i = travadas.length - 1; i >= 0; i--) {
+            faixas[travadas[i]].unlock();
+        }
+    }
+
+    private void adquirir(int i) {
+        ReentrantLock lock = faixas[i];
+        aquisicoes.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        lock.lock();
+        long espera = System.nanoTime() - inicio;
+        contendidas.increment();
+        esperaTotalNanos.add(espera);
+        maiorEsperaNanos.accumulateAndGet(espera, Math::max);
+    }
+
+    public String estatisticas() {
+        long c = contendidas.sum();
+        return String.format("locks_contas[faixas=%d, aquisicoes=%d, contendidas=%d, espera_media=%.3fms, "
+                + "espera_max=%.3fms]", faixas.length, aquisicoes.sum(), c,
+                c == 0 ? 0.0 : esperaTotalNanos.sum() / (double) c / 1e6, maiorEsperaNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,62 @@
+package com.pix.dao;
+
+import com.pix.model.Transacao;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Uma página do extrato, com o cursor para buscar a próxima.
+ * <p>
+ * O cursor é a posição (criado_em, id) da última transação devolvida, codificada
+ * como {@code "<epoch-ms>:<id>"}; a próxima página começa logo depois dela.
+ */
+public class PaginaTransacoes {
+    private final List<Transacao> transacoes;
+    private final String proximoCursor;
+
+    public PaginaTransacoes(List<Transacao> transacoes, String proximoCursor) {
+        this.transacoes = transacoes;
+        this.proximoCursor = proximoCursor;
+    }
+
+    public List<Transacao> getTransacoes() { return transacoes; }
+
+    /** Cursor da próxima página, ou {@code null} se esta for a última. */
+    public String getProximoCursor() { return proximoCursor; }
+
+    static String codificarCursor(Transacao ultima) {
+        long epochMs = ultima.getCriadoEm().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return epochMs + ":" + ultima.getId();
+    }
+
+    /**
+     * Posição decodificada de um cursor.
+     */
+    static final class Posicao {
+        final LocalDateTime criadoEm;
+        final long id;
+
+        private Posicao(LocalDateTime criadoEm, long id) {
+            this.criadoEm = criadoEm;
+            this.id = id;
+        }
+
+        static Posicao decodificar(String cursor) {
+            int sep = cursor.indexOf(':');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            try {
+                long epochMs = Long.parseLong(cursor.substring(0, sep));
+                long id = Long.parseLong(cursor.substring(sep + 1));
+                LocalDateTime criadoEm = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMs, 1000L),
+                        (int) Math.floorMod(epochMs, 1000L) * 1_000_000, ZoneOffset.UTC);
+                return new Posicao(criadoEm, id);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.pix.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Repositórios (contas, transações e, se houver, revogações de tokens) de um
+ * motor de armazenamento, escolhido na subida do servidor por {@code pix.armazenamento}:
+ * <ul>
+ *   <li>{@code mysql} (padrão): {@link UsuarioDAO}, {@link TransacaoDAO} e {@link RevogacaoDAO};</li>
+ *   <li>{@code memoria}: {@link ArmazenamentoMemoria}, sem banco e sem persistência;</li>
+ *   <li>{@code diario}: {@link ArmazenamentoMemoria} com as mudanças gravadas num
+ *       {@link DiarioMapeado}; na criação o último {@link SnapshotSaldos} é
+ *       carregado e só a cauda do diário é reproduzida.</li>
+ * </ul>
+ * Os motores sem banco atendem uma instância só e não compartilham revogações.
+ */
+public final class Repositorios {
+    private final String motor;
+    private final UsuarioRepository usuarios;
+    private final TransacaoRepository transacoes;
+    private final RevogacaoRepository revogacoes;
+
+    private Repositorios(String motor, UsuarioRepository usuarios, TransacaoRepository transacoes,
+                         RevogacaoRepository revogacoes) {
+        this.motor = motor;
+        this.usuarios = usuarios;
+        this.transacoes = transacoes;
+        this.revogacoes = revogacoes;
+    }
+
+    public static Repositorios fromSystemProperties() {
+        return criar(System.getProperty("pix.armazenamento", "mysql"));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o motor não existir.
+     * @throws UncheckedIOException se o snapshot ou o diário não puderem ser lidos.
+     */
+    public static Repositorios criar(String motor) {
+        String nome = motor.trim().toLowerCase(Locale.ROOT);
+        switch (nome) {
+        case "mysql":
+            return new Repositorios(nome, new UsuarioDAO(), new TransacaoDAO(), new RevogacaoDAO());
+        case "memoria": {
+            ArmazenamentoMemoria memoria = ArmazenamentoMemoria.fromSystemProperties(null);
+            return new Repositorios(nome, memoria.usuarios(), memoria.transacoes(), null);
+        }
+        case "diario": {
+            DiarioMapeado diario = DiarioMapeado.fromSystemProperties();
+            ArmazenamentoMemoria memoria = ArmazenamentoMemoria.fromSystemProperties(diario);
+            SnapshotSaldos snapshots = SnapshotSaldos.fromSystemProperties(memoria, diario);
+            try {
+                long inicio = System.nanoTime();
+                long desdeSeq = snapshots.carregar();
+                long carregado = System.nanoTime();
+                long n = diario.reproduzir(memoria, desdeSeq);
+                System.out.printf("[Repositorios] Snapshot até o registro %d carregado em %d ms; "
+                        + "diário reproduzido: %d registros em %d ms%n", desdeSeq, (carregado - inicio) / 1_000_000,
+                        n, (System.nanoTime() - carregado) / 1_000_000);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao carregar o snapshot ou reproduzir o diário", e);
+            }
+            memoria.usarSnapshots(snapshots);
+            return new Repositorios(nome, memoria.usuarios(), memoria.transacoes(), null);
+        }
+        default:
+            throw new IllegalArgumentException("Motor de armazenamento desconhecido: " + motor);
+        }
+    }
+
+    public String getMotor() { return motor; }
+    public UsuarioRepository getUsuarios() { return usuarios; }
+    public TransacaoRepository getTransacoes() { return transacoes; }
+
+    /** Revogações de tokens compartilhadas, ou {@code null} se o motor não as guarda. */
+    public RevogacaoRepository getRevogacoes() { return revogacoes; }
+}
@@ -0,0 +1,76 @@
+package com.pix.dao;
+
+import com.pix.model.RevogacaoToken;
+
+import java.sql.*;
+import java.util.function.Consumer;
+
+/**
+ * Revogações de tokens assinados na tabela {@code revogacoes_tokens} do MySQL
+ * ({@link RevogacaoRepository}).
+ */
+public class RevogacaoDAO implements RevogacaoRepository {
+
+    @Override
+    public boolean gravar(RevogacaoToken revogacao) {
+        String sql = "INSERT INTO revogacoes_tokens (cpf, token_hash, ate_ms, expira_em_ms) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, revogacao.getCpf());
+            stmt.setString(2, revogacao.getTokenHash());
+            stmt.setLong(3, revogacao.getAteMs());
+            stmt.setLong(4, revogacao.getExpiraEmMs());
+            stmt.executeUpdate();
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    @Override
+    public long lerDesde(long desdeId, long agoraMs, Consumer<RevogacaoToken> destino) {
+        String sql = "SELECT id, cpf, token_hash, ate_ms, expira_em_ms FROM revogacoes_tokens "
+                + "WHERE id > ? AND expira_em_ms > ? ORDER BY id";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, desdeId);
+            stmt.setLong(2, agoraMs);
+            long ultimo = desdeId;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ultimo = rs.getLong("id");
+                    destino.accept(new RevogacaoToken(rs.getString("cpf"), rs.getString("token_hash"),
+                            rs.getLong("ate_ms"), rs.getLong("expira_em_ms")));
+                }
+            }
+            return ultimo;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public void apagarVencidas(long agoraMs) {
+        String sql = "DELETE FROM revogacoes_tokens WHERE expira_em_ms <= ?";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, agoraMs);
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
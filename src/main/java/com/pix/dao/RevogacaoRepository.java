@@ -0,0 +1,27 @@
+package com.pix.dao;
+
+import com.pix.model.RevogacaoToken;
+
+import java.util.function.Consumer;
+
+/**
+ * Registro compartilhado das revogações de tokens assinados. Cada instância grava
+ * as suas e lê periodicamente as novas, para um logout ou uma troca de senha
+ * valer em todos os servidores e sobreviver a reinícios.
+ */
+public interface RevogacaoRepository {
+
+    /** @return {@code false} se a revogação não pôde ser gravada. */
+    boolean gravar(RevogacaoToken revogacao);
+
+    /**
+     * Entrega a {@code destino} as revogações ainda não vencidas gravadas depois de
+     * {@code desdeId}, em ordem.
+     *
+     * @return o maior id lido ({@code desdeId} se não houver novas), ou -1 se a leitura falhou.
+     */
+    long lerDesde(long desdeId, long agoraMs, Consumer<RevogacaoToken> destino);
+
+    /** Apaga as revogações vencidas até {@code agoraMs}. */
+    void apagarVencidas(long agoraMs);
+}
@@ -0,0 +1,343 @@
+package com.pix.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot binário das contas (saldo, nome, senha e ids das transações de cada
+ * uma) e do log de transações do motor {@code diario}, para a subida carregar o
+ * estado daqui e reproduzir só a cauda do {@link DiarioMapeado}, em vez do diário
+ * inteiro.
+ * <pre>
+ *   cabeçalho: magic (int) | versão (int) | desdeSeq (long) | proximoId (long) | gravadoEm epoch-ms (long)
+ *              | nº de segmentos (int) | nº de blocos (int) | crc32c do diretório (int) | reservado (int)
+ *   diretório: por parte, offset (long) | tamanho (int) | crc32c (int) | seq ou nº do bloco (long)
+ *              | nº de itens (int) | reservado (int)
+ *   conta:     cpf (long) | saldo (long) | nº de ids (int) | nome e senha (short + UTF-8) | ids (long)
+ *   bloco:     as colunas origem, destino, valor e data (long), uma após a outra
+ * </pre>
+ * Cada segmento da tabela de contas vira uma parte, copiada sob o lock do próprio
+ * segmento e marcada com o seq do diário naquele instante; o resto do servidor
+ * só espera pela cópia de um segmento de cada vez. Por isso as partes não são do
+ * mesmo instante: o snapshot é marcado com o seq lido antes da primeira cópia
+ * ({@code desdeSeq}), a cauda é reproduzida a partir dele e cada registro só é
+ * aplicado às contas cujo segmento ainda não o continha. O log de transações
+ * entra até o {@code proximoId} lido logo depois de {@code desdeSeq}; as
+ * posteriores estão todas na cauda.
+ * <p>
+ * Antes de o snapshot valer, o diário é forçado para o disco (o snapshot nunca
+ * fica à frente dele); depois, os segmentos do diário anteriores a
+ * {@code desdeSeq} são apagados. A gravação vai para um arquivo temporário que
+ * substitui o anterior (com o diretório forçado para o disco antes de apagar
+ * qualquer segmento), e a leitura decodifica as partes em paralelo, cada uma lida
+ * à parte e conferida pelo seu CRC.
+ */
+public final class SnapshotSaldos {
+    private static final int MAGIC = 0x5058534E; // "PXSN"
+    private static final int VERSAO = 1;
+    private static final int TAM_CABECALHO = 48;
+    private static final int TAM_ENTRADA = 32;
+    private static final int BITS_BLOCO = 16;
+
+    private final Path arquivo;
+    private final ArmazenamentoMemoria memoria;
+    private final DiarioMapeado diario;
+    private final long intervaloMs;
+    private ScheduledExecutorService agendador;
+
+    public SnapshotSaldos(Path arquivo, ArmazenamentoMemoria memoria, DiarioMapeado diario, long intervaloMs) {
+        this.arquivo = arquivo;
+        this.memoria = memoria;
+        this.diario = diario;
+        this.intervaloMs = intervaloMs;
+    }
+
+    /**
+     * Snapshot em {@code pix.snapshot.arquivo} (padrão {@code saldos.snap} no
+     * diretório do diário), gravado a cada {@code pix.snapshot.intervaloMs} (padrão
+     * 5 min; 0 grava só na parada).
+     */
+    static SnapshotSaldos fromSystemProperties(ArmazenamentoMemoria memoria, DiarioMapeado diario) {
+        String padrao = Paths.get(System.getProperty("pix.diario.dir", "diario"), "saldos.snap").toString();
+        return new SnapshotSaldos(Paths.get(System.getProperty("pix.snapshot.arquivo", padrao)), memoria, diario,
+                Long.getLong("pix.snapshot.intervaloMs", 300_000L));
+    }
+
+    // Gravação
+
+    /**
+     * Grava o snapshot e apaga os segmentos do diário que ele cobre.
+     *
+     * @return o seq a partir do qual o diário precisa ser reproduzido sobre ele.
+     */
+    public long gravar() throws IOException {
+        long inicio = System.nanoTime();
+        // Nesta ordem: toda transação com id a partir de proximoId tem seq depois de desdeSeq
+        long desdeSeq = diario.ultimoSeq();
+        long proximoId = memoria.proximoId();
+        int numSegmentos = memoria.numSegmentos();
+        int numBlocos = proximoId <= 1 ? 0 : (int) ((proximoId - 1) >>> BITS_BLOCO) + 1;
+        int partes = numSegmentos + numBlocos;
+        long contas = 0;
+
+        ByteBuffer diretorio = ByteBuffer.allocate(partes * TAM_ENTRADA);
+        CRC32C crc = new CRC32C();
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = TAM_CABECALHO + (long) partes * TAM_ENTRADA;
+            for (int s = 0; s < numSegmentos; s++) {
+                ArmazenamentoMemoria.CopiaSegmento copia = memoria.copiarSegmento(s);
+                ByteBuffer parte = codificar(copia);
+                contas += copia.tamanho;
+                offset += escreverParte(canal, offset, parte, diretorio, crc, copia.seq, copia.tamanho);
+            }
+            for (int b = 0; b < numBlocos; b++) {
+                int itens = (int) Math.min(1L << BITS_BLOCO, proximoId - ((long) b << BITS_BLOCO));
+                long[][] colunas = memoria.colunasBloco(b);
+                if (colunas == null) {
+                    // Ids reservados por transferências que falharam ao registrar no diário
+                    colunas = new long[4][itens];
+                }
+                ByteBuffer parte = ByteBuffer.allocate(4 * 8 * itens);
+                for (long[] coluna : colunas) {
+                    parte.asLongBuffer().put(coluna, 0, itens);
+                    parte.position(parte.position() + 8 * itens);
+                }
+                parte.flip();
+                offset += escreverParte(canal, offset, parte, diretorio, crc, b, itens);
+            }
+
+            diretorio.flip();
+            crc.reset();
+            crc.update(diretorio.duplicate());
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAM_CABECALHO);
+            cabecalho.putInt(MAGIC).putInt(VERSAO).putLong(desdeSeq).putLong(proximoId)
+                    .putLong(System.currentTimeMillis()).putInt(numSegmentos).putInt(numBlocos)
+                    .putInt((int) crc.getValue()).putInt(0).flip();
+            escreverTudo(canal, 0, cabecalho);
+            escreverTudo(canal, TAM_CABECALHO, diretorio);
+
+            // As cópias podem refletir registros além de desdeSeq que ainda não foram forçados
+            diario.forcar();
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // A troca do arquivo precisa estar no disco antes de apagar os segmentos
+        // que o snapshot anterior ainda usaria
+        DiarioMapeado.forcarDiretorio(arquivo.toAbsolutePath().getParent());
+        int apagados = diario.descartarAte(desdeSeq);
+        System.out.printf("[SnapshotSaldos] Snapshot gravado: %d contas, %d transações, seq %d, em %d ms "
+                + "(%d segmentos do diário apagados)%n", contas, proximoId - 1, desdeSeq,
+                (System.nanoTime() - inicio) / 1_000_000, apagados);
+        return desdeSeq;
+    }
+
+    private static ByteBuffer codificar(ArmazenamentoMemoria.CopiaSegmento c) {
+        byte[][] nomes = new byte[c.chaves.length][];
+        byte[][] senhas = new byte[c.chaves.length][];
+        int tamanho = 0;
+        for (int i = 0; i < c.chaves.length; i++) {
+            if (c.chaves[i] != -1) {
+                nomes[i] = c.nomes[i].getBytes(StandardCharsets.UTF_8);
+                senhas[i] = c.senhas[i].getBytes(StandardCharsets.UTF_8);
+                tamanho += 8 + 8 + 4 + 2 + nomes[i].length + 2 + senhas[i].length + 8 * c.numHistorico[i];
+            }
+        }
+        ByteBuffer parte = ByteBuffer.allocate(tamanho);
+        for (int i = 0; i < c.chaves.length; i++) {
+            if (c.chaves[i] == -1) {
+                continue;
+            }
+            int n = c.numHistorico[i];
+            parte.putLong(c.chaves[i]).putLong(c.saldos[i]).putInt(n);
+            parte.putShort((short) nomes[i].length).put(nomes[i]);
+            parte.putShort((short) senhas[i].length).put(senhas[i]);
+            if (n > 0) {
+                parte.asLongBuffer().put(c.historicos[i], 0, n);
+                parte.position(parte.position() + 8 * n);
+            }
+        }
+        return parte.flip();
+    }
+
+    private static int escreverParte(FileChannel canal, long offset, ByteBuffer parte, ByteBuffer diretorio,
+                                     CRC32C crc, long valor, int itens) throws IOException {
+        int tamanho = parte.remaining();
+        crc.reset();
+        crc.update(parte.duplicate());
+        diretorio.putLong(offset).putInt(tamanho).putInt((int) crc.getValue()).putLong(valor).putInt(itens)
+                .putInt(0);
+        escreverTudo(canal, offset, parte);
+        return tamanho;
+    }
+
+    private static void escreverTudo(FileChannel canal, long offset, ByteBuffer buf) throws IOException {
+        long pos = offset;
+        while (buf.hasRemaining()) {
+            pos += canal.write(buf, pos);
+        }
+    }
+
+    // Leitura
+
+    /**
+     * Carrega o snapshot na memória (que deve estar vazia), em paralelo.
+     *
+     * @return o seq a partir do qual o diário deve ser reproduzido, ou 0 se não há snapshot.
+     * @throws IOException se o arquivo estiver corrompido ou for de outra versão.
+     */
+    public long carregar() throws IOException {
+        if (!Files.exists(arquivo)) {
+            return 0;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAM_CABECALHO);
+            lerTudo(canal, 0, cabecalho);
+            if (cabecalho.getInt(0) != MAGIC || cabecalho.getInt(4) != VERSAO) {
+                throw new IOException("Snapshot de saldos em formato desconhecido: " + arquivo);
+            }
+            long desdeSeq = cabecalho.getLong(8);
+            long proximoId = cabecalho.getLong(16);
+            int numSegmentos = cabecalho.getInt(32);
+            int numBlocos = cabecalho.getInt(36);
+            if (Integer.bitCount(numSegmentos) != 1 || numBlocos < 0) {
+                throw new IOException("Snapshot de saldos com cabeçalho inválido: " + arquivo);
+            }
+            ByteBuffer diretorio = ByteBuffer.allocate((numSegmentos + numBlocos) * TAM_ENTRADA);
+            lerTudo(canal, TAM_CABECALHO, diretorio);
+            CRC32C crc = new CRC32C();
+            crc.update(diretorio.duplicate());
+            if ((int) crc.getValue() != cabecalho.getInt(40)) {
+                throw new IOException("Snapshot de saldos corrompido (CRC do diretório): " + arquivo);
+            }
+
+            long[] seqs = new long[numSegmentos];
+            IntStream.range(0, numSegmentos + numBlocos).parallel().forEach(p -> {
+                int e = p * TAM_ENTRADA;
+                try {
+                    ByteBuffer parte = lerParte(canal, diretorio.getLong(e), diretorio.getInt(e + 8),
+                            diretorio.getInt(e + 12));
+                    if (p < numSegmentos) {
+                        seqs[p] = diretorio.getLong(e + 16);
+                        decodificarContas(parte, diretorio.getInt(e + 24));
+                    } else {
+                        decodificarBloco(parte, (int) diretorio.getLong(e + 16), diretorio.getInt(e + 24));
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            memoria.restaurarSeqs(seqs, proximoId);
+            return desdeSeq;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Lida para a memória e não mapeada: no Windows o arquivo mapeado não poderia ser substituído depois
+    private ByteBuffer lerParte(FileChannel canal, long offset, int tamanho, int crcEsperado) throws IOException {
+        if (tamanho < 0 || offset + tamanho > canal.size()) {
+            throw new IOException("Snapshot de saldos truncado: " + arquivo);
+        }
+        ByteBuffer parte = ByteBuffer.allocate(tamanho);
+        lerTudo(canal, offset, parte);
+        CRC32C crc = new CRC32C();
+        crc.update(parte.duplicate());
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new IOException("Snapshot de saldos corrompido (CRC de uma parte): " + arquivo);
+        }
+        return parte;
+    }
+
+    private void decodificarContas(ByteBuffer parte, int contas) {
+        for (int i = 0; i < contas; i++) {
+            long cpf = parte.getLong();
+            long saldo = parte.getLong();
+            int n = parte.getInt();
+            String nome = texto(parte);
+            String senha = texto(parte);
+            long[] historico = new long[n];
+            parte.asLongBuffer().get(historico);
+            parte.position(parte.position() + 8 * n);
+            memoria.restaurarConta(cpf, nome, senha, saldo, historico);
+        }
+    }
+
+    private void decodificarBloco(ByteBuffer parte, int b, int itens) {
+        long[][] colunas = new long[4][1 << BITS_BLOCO];
+        for (long[] coluna : colunas) {
+            parte.asLongBuffer().get(coluna, 0, itens);
+            parte.position(parte.position() + 8 * itens);
+        }
+        memoria.restaurarBloco(b, colunas[0], colunas[1], colunas[2], colunas[3]);
+    }
+
+    private static String texto(ByteBuffer parte) {
+        byte[] b = new byte[parte.getShort()];
+        parte.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void lerTudo(FileChannel canal, long offset, ByteBuffer buf) throws IOException {
+        long pos = offset;
+        while (buf.hasRemaining()) {
+            int n = canal.read(buf, pos);
+            if (n < 0) {
+                throw new IOException("Snapshot de saldos truncado: " + canal);
+            }
+            pos += n;
+        }
+        buf.flip();
+    }
+
+    // Agendamento
+
+    /** Passa a gravar um snapshot a cada {@code intervaloMs}, se positivo. */
+    public synchronized void iniciar() {
+        if (agendador != null || intervaloMs <= 0) {
+            return;
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-snapshot-saldos");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(this::gravarSemFalhar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Para o agendamento e grava um último snapshot. */
+    public synchronized void parar() {
+        if (agendador != null) {
+            agendador.shutdown();
+            try {
+                agendador.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            agendador = null;
+        }
+        gravarSemFalhar();
+    }
+
+    private void gravarSemFalhar() {
+        try {
+            gravar();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[SnapshotSaldos] Falha ao gravar snapshot de saldos: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.pix.dao;
 
+import com.pix.model.Dinheiro;
+import com.pix.model.ResultadoTransferencia;
 import com.pix.model.Transacao;
 
 import java.sql.*;
@@ -8,56 +10,152 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * DAO para persistir transações. Ao salvar, também atualiza os saldos dos usuários envolvidos.
+ * DAO para persistir transações no MySQL (motor padrão de {@link TransacaoRepository}). Ao salvar, também atualiza os saldos dos usuários envolvidos.
+ * Cada operação empresta uma conexão do pool e a devolve ao final.
  */
-public class TransacaoDAO {
+public class TransacaoDAO implements TransacaoRepository {
+    // Pipeline de group commit; null quando desligado (pix.groupCommit.ativo)
+    private volatile GroupCommitTransacoes grupo;
 
-    public void salvar(Transacao t) {
-        String insertTx = "INSERT INTO transacoes (cpf_origem, cpf_destino, valor, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?)";
-        String debita = "UPDATE usuarios SET saldo = saldo - ? WHERE cpf = ?";
+    /**
+     * Liga o group commit das transferências se {@code pix.groupCommit.ativo} for
+     * true (padrão false); ver {@link GroupCommitTransacoes}.
+     */
+    public synchronized void iniciarGroupCommit() {
+        if (grupo == null && Boolean.getBoolean("pix.groupCommit.ativo")) {
+            grupo = GroupCommitTransacoes.fromSystemProperties(this);
+        }
+    }
+
+    /** Grava o que está na fila do group commit e volta ao caminho normal. */
+    public synchronized void pararGroupCommit() {
+        if (grupo != null) {
+            grupo.parar();
+            grupo = null;
+        }
+    }
+
+    @Override
+    public void iniciar() {
+        iniciarGroupCommit();
+    }
+
+    @Override
+    public void parar() {
+        pararGroupCommit();
+    }
+
+    /** Métricas do group commit (se ligado) e dos locks das contas. */
+    @Override
+    public String estatisticas() {
+        GroupCommitTransacoes g = grupo;
+        String locks = LocksContas.getInstance().estatisticas();
+        return g == null ? locks : g.estatisticas() + "\n" + locks;
+    }
+
+    /**
+     * Executa a transferência numa única transação: débito condicional
+     * ({@code saldo >= valor}), crédito e registro. O número de linhas afetadas
+     * decide o resultado, sem leituras prévias nem corrida entre checar e debitar.
+     * Em caso de sucesso o id gerado é atribuído a {@code t}.
+     * <p>
+     * As duas contas são travadas em {@link LocksContas} (em ordem canônica)
+     * antes de pegar a conexão, e só destravadas depois do commit.
+     * <p>
+     * Com o group commit ligado, a transferência entra no próximo lote, que trava
+     * do mesmo modo as contas de todos os seus pedidos, e este método espera o
+     * commit dele; se o pipeline tiver parado, ela é gravada aqui.
+     * Um commit que falhou sem resposta do banco volta como
+     * {@link ResultadoTransferencia#INCERTO} e não é repetido.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException se a fila do group commit estiver cheia.
+     */
+    @Override
+    public ResultadoTransferencia salvar(Transacao t) {
+        GroupCommitTransacoes g = grupo;
+        if (g != null) {
+            ResultadoTransferencia r = g.salvar(t);
+            if (r != null) {
+                return r;
+            }
+        }
+        return salvarIndividual(t);
+    }
+
+    /** Transferência na sua própria transação do banco. */
+    ResultadoTransferencia salvarIndividual(Transacao t) {
+        LocksContas locks = LocksContas.getInstance();
+        locks.travar(t.getCpfOrigem(), t.getCpfDestino());
+        try {
+            return transferir(t);
+        } finally {
+            locks.destravar(t.getCpfOrigem(), t.getCpfDestino());
+        }
+    }
+
+    private ResultadoTransferencia transferir(Transacao t) {
+        String debita = "UPDATE usuarios SET saldo = saldo - ? WHERE cpf = ? AND saldo >= ?";
         String credita = "UPDATE usuarios SET saldo = saldo + ? WHERE cpf = ?";
+        String insertTx = "INSERT INTO transacoes (cpf_origem, cpf_destino, valor, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?)";
 
         Connection conn = null;
+        boolean commitEnviado = false;
         try {
             conn = DatabaseManager.getInstance().getConnection();
             conn.setAutoCommit(false);
 
-            try (PreparedStatement ptx = conn.prepareStatement(insertTx, Statement.RETURN_GENERATED_KEYS)) {
-                ptx.setString(1, t.getCpfOrigem());
-                ptx.setString(2, t.getCpfDestino());
-                ptx.setDouble(3, t.getValor());
-                ptx.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
-                ptx.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
-                ptx.executeUpdate();
-            }
-
             try (PreparedStatement pst = conn.prepareStatement(debita)) {
-                pst.setDouble(1, t.getValor());
+                pst.setBigDecimal(1, Dinheiro.decimal(t.getValorCentavos()));
                 pst.setString(2, t.getCpfOrigem());
-                pst.executeUpdate();
+                pst.setBigDecimal(3, Dinheiro.decimal(t.getValorCentavos()));
+                if (pst.executeUpdate() == 0) {
+                    conn.rollback();
+                    return ResultadoTransferencia.SALDO_INSUFICIENTE;
+                }
             }
 
             try (PreparedStatement pst = conn.prepareStatement(credita)) {
-                pst.setDouble(1, t.getValor());
+                pst.setBigDecimal(1, Dinheiro.decimal(t.getValorCentavos()));
                 pst.setString(2, t.getCpfDestino());
-                pst.executeUpdate();
+                if (pst.executeUpdate() == 0) {
+                    conn.rollback();
+                    return ResultadoTransferencia.DESTINO_INEXISTENTE;
+                }
             }
 
+            try (PreparedStatement ptx = conn.prepareStatement(insertTx, Statement.RETURN_GENERATED_KEYS)) {
+                ptx.setString(1, t.getCpfOrigem());
+                ptx.setString(2, t.getCpfDestino());
+                ptx.setBigDecimal(3, Dinheiro.decimal(t.getValorCentavos()));
+                ptx.setTimestamp(4, Timestamp.valueOf(t.getCriadoEm()));
+                ptx.setTimestamp(5, Timestamp.valueOf(t.getAtualizadoEm()));
+                ptx.executeUpdate();
+                try (ResultSet keys = ptx.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        t.setId(keys.getLong(1));
+                    }
+                }
+            }
+
+            commitEnviado = true;
             conn.commit();
-            System.out.println("[TransacaoDAO] Transação salva.");
+            return ResultadoTransferencia.SUCESSO;
 
         } catch (SQLException e) {
             e.printStackTrace();
             if (conn != null) {
                 try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
             }
+            return commitEnviado ? ResultadoTransferencia.INCERTO : ResultadoTransferencia.ERRO;
         } finally {
             if (conn != null) {
                 try { conn.setAutoCommit(true); } catch (SQLException ex) { ex.printStackTrace(); }
+                try { conn.close(); } catch (SQLException ex) { ex.printStackTrace(); }
             }
         }
     }
 
+    @Override
     public List<Transacao> listarTodas() {
         List<Transacao> lista = new ArrayList<>();
         String sql = "SELECT id, cpf_origem, cpf_destino, valor, criado_em FROM transacoes ORDER BY criado_em DESC";
@@ -69,7 +167,7 @@ public class TransacaoDAO {
             while (rs.next()) {
                 String origem = rs.getString("cpf_origem");
                 String destino = rs.getString("cpf_destino");
-                double valor = rs.getDouble("valor");
+                long valor = Dinheiro.centavos(rs.getBigDecimal("valor"));
                 Transacao t = new Transacao(origem, destino, valor);
                 lista.add(t);
             }
@@ -80,4 +178,88 @@ public class TransacaoDAO {
 
         return lista;
     }
+
+    /**
+     * Lista as transações em que o CPF participa (como origem ou destino) dentro
+     * do período, da mais recente para a mais antiga, em páginas de até
+     * {@code limite} itens. Cada lado do UNION usa o índice composto
+     * (cpf_*, criado_em) correspondente, e a paginação por cursor evita OFFSET.
+     * Os nomes do enviador e do recebedor vêm na mesma consulta (JOIN com
+     * usuarios), sem uma ida ao banco por linha.
+     *
+     * @param cursor cursor devolvido pela página anterior, ou {@code null} para a primeira.
+     */
+    @Override
+    public PaginaTransacoes listarPorParticipante(String cpf, LocalDateTime inicio, LocalDateTime fim,
+                                                  String cursor, int limite) {
+        PaginaTransacoes.Posicao pos = cursor == null ? null : PaginaTransacoes.Posicao.decodificar(cursor);
+        String filtroCursor = pos == null ? "" : " AND (criado_em < ? OR (criado_em = ? AND id < ?))";
+        String colunas = "SELECT id, cpf_origem, cpf_destino, valor, criado_em, atualizado_em FROM transacoes";
+        String sql = "SELECT t.*, uo.nome AS nome_origem, ud.nome AS nome_destino FROM ("
+                + "(" + colunas + " WHERE cpf_origem = ? AND criado_em BETWEEN ? AND ?" + filtroCursor
+                + " ORDER BY criado_em DESC, id DESC LIMIT ?)"
+                + " UNION ALL "
+                + "(" + colunas + " WHERE cpf_destino = ? AND cpf_origem <> ? AND criado_em BETWEEN ? AND ?" + filtroCursor
+                + " ORDER BY criado_em DESC, id DESC LIMIT ?)"
+                + ") t"
+                + " LEFT JOIN usuarios uo ON uo.cpf = t.cpf_origem"
+                + " LEFT JOIN usuarios ud ON ud.cpf = t.cpf_destino"
+                + " ORDER BY t.criado_em DESC, t.id DESC LIMIT ?";
+
+        // Busca um item a mais para saber se existe próxima página
+        int buscar = limite + 1;
+        List<Transacao> lista = new ArrayList<>(Math.min(buscar, 1024));
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            stmt.setString(i++, cpf);
+            stmt.setTimestamp(i++, Timestamp.valueOf(inicio));
+            stmt.setTimestamp(i++, Timestamp.valueOf(fim));
+            i = bindCursor(stmt, i, pos);
+            stmt.setInt(i++, buscar);
+            stmt.setString(i++, cpf);
+            stmt.setString(i++, cpf);
+            stmt.setTimestamp(i++, Timestamp.valueOf(inicio));
+            stmt.setTimestamp(i++, Timestamp.valueOf(fim));
+            i = bindCursor(stmt, i, pos);
+            stmt.setInt(i++, buscar);
+            stmt.setInt(i, buscar);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Transacao t = new Transacao(
+                            rs.getLong("id"),
+                            rs.getString("cpf_origem"),
+                            rs.getString("cpf_destino"),
+                            Dinheiro.centavos(rs.getBigDecimal("valor")),
+                            rs.getTimestamp("criado_em").toLocalDateTime(),
+                            rs.getTimestamp("atualizado_em").toLocalDateTime());
+                    t.setNomeOrigem(rs.getString("nome_origem"));
+                    t.setNomeDestino(rs.getString("nome_destino"));
+                    lista.add(t);
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        String proximo = null;
+        if (lista.size() > limite) {
+            lista = lista.subList(0, limite);
+            proximo = PaginaTransacoes.codificarCursor(lista.get(limite - 1));
+        }
+        return new PaginaTransacoes(lista, proximo);
+    }
+
+    private static int bindCursor(PreparedStatement stmt, int i, PaginaTransacoes.Posicao pos) throws SQLException {
+        if (pos != null) {
+            stmt.setTimestamp(i++, Timestamp.valueOf(pos.criadoEm));
+            stmt.setTimestamp(i++, Timestamp.valueOf(pos.criadoEm));
+            stmt.setLong(i++, pos.id);
+        }
+        return i;
+    }
 }
@@ -0,0 +1,42 @@
+package com.pix.dao;
+
+import com.pix.model.ResultadoTransferencia;
+import com.pix.model.Transacao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Armazenamento das transferências e do extrato. Ver {@link UsuarioRepository}.
+ */
+public interface TransacaoRepository {
+
+    /**
+     * Executa a transferência de forma atômica: débito condicional na origem,
+     * crédito no destino e registro. Em caso de sucesso o id é atribuído a {@code t}.
+     */
+    ResultadoTransferencia salvar(Transacao t);
+
+    List<Transacao> listarTodas();
+
+    /**
+     * Transações em que o CPF é origem ou destino dentro do período, da mais
+     * recente para a mais antiga, em páginas de até {@code limite} itens, com os
+     * nomes dos participantes preenchidos (ver {@link PaginaTransacoes} para o cursor).
+     *
+     * @param cursor cursor devolvido pela página anterior, ou {@code null} para a primeira.
+     */
+    PaginaTransacoes listarPorParticipante(String cpf, LocalDateTime inicio, LocalDateTime fim,
+                                           String cursor, int limite);
+
+    /** Chamado na subida do servidor (tarefas de fundo do motor). */
+    default void iniciar() {}
+
+    /** Chamado na parada do servidor. */
+    default void parar() {}
+
+    /** Métricas internas do motor, uma por linha, ou {@code null} se ele não tiver. */
+    default String estatisticas() {
+        return null;
+    }
+}
@@ -1,17 +1,47 @@
 package com.pix.dao;
 
+import com.pix.model.Dinheiro;
+import com.pix.model.PerfilUsuario;
 import com.pix.model.Usuario;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * DAO para persistência de Usuario.
+ * DAO para persistência de Usuario no MySQL (motor padrão de {@link UsuarioRepository}).
  * Observação: o campo 'cpf' é tratado como chave primária natural.
+ * Cada operação empresta uma conexão do pool e a devolve ao final do try-with-resources.
+ * <p>
+ * Os perfis (nome e senha) passam por um {@link CacheUsuarios} compartilhado, que
+ * as escritas deste DAO invalidam; o saldo nunca vem do cache.
  */
-public class UsuarioDAO {
+public class UsuarioDAO implements UsuarioRepository {
+    private static final CacheUsuarios cache = CacheUsuarios.fromSystemProperties();
+    private static final IndiceCpfs indice = IndiceCpfs.fromSystemProperties();
 
+    public static CacheUsuarios getCache() {
+        return cache;
+    }
+
+    /** Índice de CPFs cadastrados; {@link IndiceCpfs#iniciar} deve ser chamado na subida do servidor. */
+    public static IndiceCpfs getIndice() {
+        return indice;
+    }
+
+    /** Inicia a carga do {@link IndiceCpfs}. */
+    @Override
+    public void iniciar() {
+        indice.iniciar(this);
+    }
+
+    @Override
+    public void parar() {
+        indice.parar();
+    }
+
+    @Override
     public void salvar(Usuario usuario) {
         String sql = "INSERT INTO usuarios (cpf, nome, senha, saldo) VALUES (?, ?, ?, ?)";
 
@@ -21,8 +51,10 @@ public class UsuarioDAO {
             stmt.setString(1, usuario.getCpf());
             stmt.setString(2, usuario.getNome());
             stmt.setString(3, usuario.getSenha());
-            stmt.setDouble(4, usuario.getSaldo());
+            stmt.setBigDecimal(4, Dinheiro.decimal(usuario.getSaldoCentavos()));
             stmt.executeUpdate();
+            cache.invalidar(usuario.getCpf());
+            indice.registrarCadastro(usuario.getCpf());
 
             System.out.println("[UsuarioDAO] Usuário salvo: " + usuario.getCpf());
 
@@ -36,17 +68,22 @@ public class UsuarioDAO {
         }
     }
 
+    /**
+     * Atualiza nome e senha. O saldo não é regravado a partir do objeto em memória
+     * (isso desfaria transferências concorrentes); use {@link #creditar}.
+     */
+    @Override
     public void atualizar(Usuario usuario) {
-        String sql = "UPDATE usuarios SET nome = ?, senha = ?, saldo = ? WHERE cpf = ?";
+        String sql = "UPDATE usuarios SET nome = ?, senha = ? WHERE cpf = ?";
 
         try (Connection conn = DatabaseManager.getInstance().getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, usuario.getNome());
             stmt.setString(2, usuario.getSenha());
-            stmt.setDouble(3, usuario.getSaldo());
-            stmt.setString(4, usuario.getCpf());
+            stmt.setString(3, usuario.getCpf());
             stmt.executeUpdate();
+            cache.invalidar(usuario.getCpf());
 
             System.out.println("[UsuarioDAO] Usuário atualizado: " + usuario.getCpf());
 
@@ -55,6 +92,139 @@ public class UsuarioDAO {
         }
     }
 
+    /**
+     * Troca a senha armazenada só se ela ainda for {@code atual} (usado para
+     * regravar o hash depois do login sem desfazer uma troca de senha concorrente).
+     *
+     * @return {@code true} se a linha foi alterada.
+     */
+    @Override
+    public boolean trocarSenha(String cpf, String atual, String nova) {
+        String sql = "UPDATE usuarios SET senha = ? WHERE cpf = ? AND senha = ?";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, nova);
+            stmt.setString(2, cpf);
+            stmt.setString(3, atual);
+            boolean alterada = stmt.executeUpdate() > 0;
+            cache.invalidar(cpf);
+            return alterada;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Soma {@code centavos} ao saldo de forma atômica no banco e devolve o novo
+     * saldo, ou {@code null} se o CPF não existir. A conta fica travada em
+     * {@link LocksContas} durante a transação, como nas transferências.
+     */
+    @Override
+    public Long creditar(String cpf, long centavos) {
+        LocksContas locks = LocksContas.getInstance();
+        locks.travar(cpf);
+        try {
+            return executarCredito(cpf, centavos);
+        } finally {
+            locks.destravar(cpf);
+        }
+    }
+
+    private Long executarCredito(String cpf, long centavos) {
+        String credita = "UPDATE usuarios SET saldo = saldo + ? WHERE cpf = ?";
+        String consulta = "SELECT saldo FROM usuarios WHERE cpf = ?";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(credita)) {
+                    stmt.setBigDecimal(1, Dinheiro.decimal(centavos));
+                    stmt.setString(2, cpf);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return null;
+                    }
+                }
+                long novoSaldo;
+                try (PreparedStatement stmt = conn.prepareStatement(consulta)) {
+                    stmt.setString(1, cpf);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        novoSaldo = Dinheiro.centavos(rs.getBigDecimal("saldo"));
+                    }
+                }
+                conn.commit();
+                return novoSaldo;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Perfil do usuário (sem saldo), servido pelo cache quando possível. CPFs que o
+     * {@link IndiceCpfs} sabe que não existem são respondidos sem ir ao banco.
+     *
+     * @return o perfil, ou {@code null} se o CPF não existir.
+     * @throws IllegalStateException se o banco falhar: uma falha não pode virar
+     *         "inexistente", nem para quem chamou nem no cache negativo.
+     */
+    @Override
+    public PerfilUsuario buscarPerfil(String cpf) {
+        return cache.buscar(cpf, this::carregarPerfil);
+    }
+
+    private PerfilUsuario carregarPerfil(String cpf) {
+        if (indice.certamenteInexistente(cpf)) {
+            return null;
+        }
+        long marca = indice.marcarConsulta();
+        PerfilUsuario perfil;
+        try {
+            perfil = lerPerfil(cpf);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Falha ao consultar o usuário no banco", e);
+        }
+        if (perfil == null) {
+            indice.registrarInexistente(cpf, marca);
+        }
+        return perfil;
+    }
+
+    private PerfilUsuario lerPerfil(String cpf) throws SQLException {
+        String sql = "SELECT nome, senha FROM usuarios WHERE cpf = ?";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, cpf);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new PerfilUsuario(cpf, rs.getString("nome"), rs.getString("senha"));
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Lê o usuário completo direto do banco, com o saldo atual.
+     */
+    @Override
     public Usuario buscarPorCpf(String cpf) {
         String sql = "SELECT cpf, nome, senha, saldo FROM usuarios WHERE cpf = ?";
 
@@ -66,12 +236,8 @@ public class UsuarioDAO {
                 if (rs.next()) {
                     String nome = rs.getString("nome");
                     String senha = rs.getString("senha");
-                    double saldo = rs.getDouble("saldo");
-                    Usuario u = new Usuario(nome, cpf, senha);
-                    double diff = saldo - u.getSaldo();
-                    if (diff > 0) u.addSaldo(diff);
-                    else if (diff < 0) u.subSaldo(-diff);
-                    return u;
+                    long saldo = Dinheiro.centavos(rs.getBigDecimal("saldo"));
+                    return new Usuario(nome, cpf, senha, saldo);
                 }
             }
 
@@ -82,6 +248,34 @@ public class UsuarioDAO {
         return null;
     }
 
+    /**
+     * Percorre os CPFs cadastrados sem montar a lista em memória (o driver do
+     * MySQL só faz streaming do resultado com fetch size {@code Integer.MIN_VALUE}).
+     *
+     * @return {@code false} se a leitura falhou.
+     */
+    boolean percorrerCpfs(Consumer<String> consumidor) {
+        String sql = "SELECT cpf FROM usuarios";
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    consumidor.accept(rs.getString(1));
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    @Override
     public List<Usuario> listarTodos() {
         List<Usuario> usuarios = new ArrayList<>();
         String sql = "SELECT cpf, nome, senha, saldo FROM usuarios";
@@ -94,12 +288,8 @@ public class UsuarioDAO {
                 String cpf = rs.getString("cpf");
                 String nome = rs.getString("nome");
                 String senha = rs.getString("senha");
-                double saldo = rs.getDouble("saldo");
-                Usuario u = new Usuario(nome, cpf, senha);
-                double diff = saldo - u.getSaldo();
-                if (diff > 0) u.addSaldo(diff);
-                else if (diff < 0) u.subSaldo(-diff);
-                usuarios.add(u);
+                long saldo = Dinheiro.centavos(rs.getBigDecimal("saldo"));
+                usuarios.add(new Usuario(nome, cpf, senha, saldo));
             }
 
         } catch (SQLException e) {
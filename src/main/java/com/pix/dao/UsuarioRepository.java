@@ -0,0 +1,51 @@
+package com.pix.dao;
+
+import com.pix.model.PerfilUsuario;
+import com.pix.model.Usuario;
+
+import java.util.List;
+
+/**
+ * Armazenamento das contas (cadastro, senha e saldo). O servidor só conhece esta
+ * interface; o motor concreto ({@link UsuarioDAO} no MySQL ou o de memória) é
+ * escolhido na subida por {@link Repositorios}.
+ */
+public interface UsuarioRepository {
+
+    /** Cadastra o usuário com o saldo do objeto; se o CPF já existir, atualiza nome e senha. */
+    void salvar(Usuario usuario);
+
+    /** Atualiza nome e senha; o saldo só muda por {@link #creditar} e transferências. */
+    void atualizar(Usuario usuario);
+
+    /**
+     * Troca a senha armazenada só se ela ainda for {@code atual}.
+     *
+     * @return {@code true} se a senha foi trocada.
+     */
+    boolean trocarSenha(String cpf, String atual, String nova);
+
+    /**
+     * Soma {@code centavos} ao saldo de forma atômica.
+     *
+     * @return o novo saldo, ou {@code null} se o CPF não existir.
+     */
+    Long creditar(String cpf, long centavos);
+
+    /**
+     * Perfil (sem saldo), ou {@code null} se o CPF não existir. Uma falha do
+     * armazenamento é lançada, nunca devolvida como {@code null}.
+     */
+    PerfilUsuario buscarPerfil(String cpf);
+
+    /** Usuário completo com o saldo atual, ou {@code null}. */
+    Usuario buscarPorCpf(String cpf);
+
+    List<Usuario> listarTodos();
+
+    /** Chamado na subida do servidor (tarefas de fundo do motor). */
+    default void iniciar() {}
+
+    /** Chamado na parada do servidor. */
+    default void parar() {}
+}
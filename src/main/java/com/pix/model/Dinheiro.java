@@ -0,0 +1,34 @@
+package com.pix.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversões do valor monetário interno (centavos em {@code long}) para as
+ * representações de borda: {@link BigDecimal} para o banco (DECIMAL) e para o
+ * JSON. Toda a aritmética de saldo no servidor é feita em centavos inteiros.
+ */
+public final class Dinheiro {
+
+    private Dinheiro() {}
+
+    /**
+     * Converte um valor decimal exato em centavos.
+     *
+     * @throws IllegalArgumentException se o valor tiver mais de duas casas decimais
+     *         ou não couber em um {@code long}.
+     */
+    public static long centavos(BigDecimal valor) {
+        try {
+            return valor.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Valor monetário inválido (máximo de duas casas decimais): " + valor);
+        }
+    }
+
+    /**
+     * Representação decimal com duas casas, usada no banco e nas respostas JSON.
+     */
+    public static BigDecimal decimal(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+}
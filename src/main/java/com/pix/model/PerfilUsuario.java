@@ -0,0 +1,22 @@
+package com.pix.model;
+
+/**
+ * Dados cadastrais de um usuário (nome e credencial), sem o saldo. É imutável,
+ * para poder ser compartilhado pelo cache de usuários entre threads; o saldo é
+ * sempre lido do banco.
+ */
+public final class PerfilUsuario {
+    private final String cpf;
+    private final String nome;
+    private final String senha;
+
+    public PerfilUsuario(String cpf, String nome, String senha) {
+        this.cpf = cpf;
+        this.nome = nome;
+        this.senha = senha;
+    }
+
+    public String getCpf() { return cpf; }
+    public String getNome() { return nome; }
+    public String getSenha() { return senha; }
+}
@@ -69,6 +69,14 @@ public class RespostaBase {
 		this.info = info;
 	}
 
+	/**
+	 * Coloca um valor monetário em {@code dados}, renderizado como número com duas
+	 * casas decimais (ex.: 1500 centavos -> 15.00), compatível com clientes que leem double.
+	 */
+	public void putValor(String campo, long centavos) {
+		dados.put(campo, Dinheiro.decimal(centavos));
+	}
+
 	public Map<String, Object> getDados() {
 		return dados;
 	}
@@ -0,0 +1,20 @@
+package com.pix.model;
+
+/**
+ * Resultado de uma transferência, decidido pelo próprio banco dentro da transação.
+ */
+public enum ResultadoTransferencia {
+    SUCESSO,
+    /** O débito condicional não afetou linha: saldo menor que o valor. */
+    SALDO_INSUFICIENTE,
+    /** O crédito não afetou linha: CPF de destino não cadastrado. */
+    DESTINO_INEXISTENTE,
+    /** Falha de banco; nada foi aplicado. */
+    ERRO,
+    /**
+     * O commit foi enviado e falhou sem resposta do banco (queda de conexão, por
+     * exemplo): a transferência pode ou não ter sido aplicada, então não deve ser
+     * repetida às cegas.
+     */
+    INCERTO
+}
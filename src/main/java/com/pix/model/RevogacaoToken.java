@@ -0,0 +1,34 @@
+package com.pix.model;
+
+/**
+ * Revogação de tokens assinados ({@code pix.token.modo=hmac}), guardada fora do
+ * processo para valer em todas as instâncias. É de um token só (logout) ou de
+ * todos os tokens do CPF emitidos até {@code ateMs}, menos o de hash
+ * {@code tokenHash} (troca de senha). O token nunca é guardado, só o hash dele.
+ */
+public final class RevogacaoToken {
+    private final String cpf;
+    private final String tokenHash;
+    private final long ateMs;
+    private final long expiraEmMs;
+
+    public RevogacaoToken(String cpf, String tokenHash, long ateMs, long expiraEmMs) {
+        this.cpf = cpf;
+        this.tokenHash = tokenHash;
+        this.ateMs = ateMs;
+        this.expiraEmMs = expiraEmMs;
+    }
+
+    public String getCpf() { return cpf; }
+
+    /** Hash do token revogado (logout) ou do mantido (revogação por CPF; pode ser {@code null}). */
+    public String getTokenHash() { return tokenHash; }
+
+    /** Instante (ms) até o qual os tokens do CPF foram emitidos; -1 na revogação de um token só. */
+    public long getAteMs() { return ateMs; }
+
+    public boolean isPorCpf() { return ateMs >= 0; }
+
+    /** Instante (ms) a partir do qual nenhum token afetado seria válido de qualquer forma. */
+    public long getExpiraEmMs() { return expiraEmMs; }
+}
@@ -1,5 +1,29 @@
 package com.pix.model;
 
-public class Sessao {
+/**
+ * Sessão aberta por um login: o token entregue ao cliente (no TokenManager com
+ * snapshot de sessões, o hash dele), o CPF dono dele e o prazo de validade. O prazo é um instante de {@link System#nanoTime()}
+ * (monotônico, imune a ajustes do relógio), então validar é uma comparação de
+ * {@code long}.
+ */
+public final class Sessao {
+    private final String token;
+    private final String cpf;
+    private final long expiraEm;
 
+    public Sessao(String token, String cpf, long expiraEm) {
+        this.token = token;
+        this.cpf = cpf;
+        this.expiraEm = expiraEm;
+    }
+
+    public String getToken() { return token; }
+    public String getCpf() { return cpf; }
+
+    /** Prazo de validade em {@link System#nanoTime()}. */
+    public long getExpiraEm() { return expiraEm; }
+
+    public boolean expirada(long agora) {
+        return agora - expiraEm >= 0;
+    }
 }
@@ -9,25 +9,49 @@ public class Transacao {
     private long id;
     private String cpfOrigem;
     private String cpfDestino;
-    private double valor;
+    private long valorCentavos;
     private LocalDateTime criadoEm;
     private LocalDateTime atualizadoEm;
+    // Nomes dos participantes, preenchidos apenas pelas consultas de extrato
+    private String nomeOrigem;
+    private String nomeDestino;
 
-    public Transacao(String cpfOrigem, String cpfDestino, double valor) {
+    public Transacao(String cpfOrigem, String cpfDestino, long valorCentavos) {
         this.id = idCounter.getAndIncrement();
         this.cpfOrigem = cpfOrigem;
         this.cpfDestino = cpfDestino;
-        this.valor = valor;
+        this.valorCentavos = valorCentavos;
         this.criadoEm = LocalDateTime.now();
         this.atualizadoEm = LocalDateTime.now();
     }
 
+    /**
+     * Reconstrói uma transação já persistida (id e datas vindos do banco).
+     */
+    public Transacao(long id, String cpfOrigem, String cpfDestino, long valorCentavos,
+                     LocalDateTime criadoEm, LocalDateTime atualizadoEm) {
+        this.id = id;
+        this.cpfOrigem = cpfOrigem;
+        this.cpfDestino = cpfDestino;
+        this.valorCentavos = valorCentavos;
+        this.criadoEm = criadoEm;
+        this.atualizadoEm = atualizadoEm;
+    }
+
     public long getId() { return id; }
+    /** Atribui o id gerado pelo banco ao persistir. */
+    public void setId(long id) { this.id = id; }
     public String getCpfOrigem() { return cpfOrigem; }
     public String getCpfDestino() { return cpfDestino; }
-    public double getValor() { return valor; }
+    public long getValorCentavos() { return valorCentavos; }
     public LocalDateTime getCriadoEm() { return criadoEm; }
+    /** Troca a data de criação pela que o armazenamento gravou (e a de atualização junto). */
+    public void setCriadoEm(LocalDateTime criadoEm) { this.criadoEm = criadoEm; this.atualizadoEm = criadoEm; }
     public LocalDateTime getAtualizadoEm() { return atualizadoEm; }
+    public String getNomeOrigem() { return nomeOrigem; }
+    public void setNomeOrigem(String nomeOrigem) { this.nomeOrigem = nomeOrigem; }
+    public String getNomeDestino() { return nomeDestino; }
+    public void setNomeDestino(String nomeDestino) { this.nomeDestino = nomeDestino; }
     
     // Métodos de compatibilidade com código existente
     public String getOrigem() { return cpfOrigem; }
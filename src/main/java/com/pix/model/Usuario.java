@@ -2,19 +2,27 @@ package com.pix.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Usuario {
     private String nome;
     private String cpf;
     private String senha;
-    private double saldo;
+    // Saldo em centavos: aritmética inteira exata, sem double nem BigDecimal
+    private long saldoCentavos;
     private final List<Transacao> transacoes = new ArrayList<>();
+    // ReentrantLock em vez de synchronized: não prende o carrier de threads virtuais
+    private final ReentrantLock lock = new ReentrantLock();
 
     public Usuario(String nome, String cpf, String senha) {
         this.nome = nome;
         this.cpf = cpf;
         this.senha = senha;
-        this.saldo = 0.0;
+    }
+
+    public Usuario(String nome, String cpf, String senha, long saldoCentavos) {
+        this(nome, cpf, senha);
+        this.saldoCentavos = saldoCentavos;
     }
 
     public void setCpf(String cpf) {
@@ -29,11 +37,25 @@ public class Usuario {
     public String getSenha() { return senha; }
     public void setSenha(String senha) { this.senha = senha; }
 
-    public synchronized double getSaldo() { return saldo; }
-    public synchronized void addSaldo(double valor) { this.saldo += valor; }
-    public synchronized void subSaldo(double valor) { this.saldo -= valor; }
+    public long getSaldoCentavos() {
+        lock.lock();
+        try { return saldoCentavos; } finally { lock.unlock(); }
+    }
+
+    public void addSaldo(long centavos) {
+        lock.lock();
+        try { this.saldoCentavos = Math.addExact(saldoCentavos, centavos); } finally { lock.unlock(); }
+    }
+
+    public void subSaldo(long centavos) {
+        lock.lock();
+        try { this.saldoCentavos = Math.subtractExact(saldoCentavos, centavos); } finally { lock.unlock(); }
+    }
 
     public List<Transacao> getTransacoes() { return transacoes; }
 
-    public synchronized void addTransacao(Transacao t) { this.transacoes.add(t); }
+    public void addTransacao(Transacao t) {
+        lock.lock();
+        try { this.transacoes.add(t); } finally { lock.unlock(); }
+    }
 }
@@ -0,0 +1,52 @@
+package com.pix.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de {@link ByteBuffer}s diretos de tamanho fixo, compartilhado entre os
+ * event loops e os workers do motor NIO.
+ */
+class BufferPool {
+    private final ConcurrentLinkedQueue<ByteBuffer> livres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retidos = new AtomicInteger();
+    private final int tamanho;
+    private final int maxRetidos;
+
+    BufferPool(int tamanho, int maxRetidos) {
+        this.tamanho = tamanho;
+        this.maxRetidos = maxRetidos;
+    }
+
+    int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Obtém um buffer limpo do pool, alocando um novo se não houver livres.
+     */
+    ByteBuffer acquire() {
+        ByteBuffer b = livres.poll();
+        if (b == null) {
+            return ByteBuffer.allocateDirect(tamanho);
+        }
+        retidos.decrementAndGet();
+        b.clear();
+        return b;
+    }
+
+    /**
+     * Devolve um buffer ao pool. Buffers excedentes são descartados para o GC.
+     */
+    void release(ByteBuffer b) {
+        if (b == null || !b.isDirect() || b.capacity() != tamanho) {
+            return;
+        }
+        if (retidos.incrementAndGet() > maxRetidos) {
+            retidos.decrementAndGet();
+            return;
+        }
+        livres.offer(b);
+    }
+}
@@ -0,0 +1,367 @@
+package com.pix.server;
+
+import static com.pix.server.Requisicao.*;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.pix.model.Dinheiro;
+
+import java.io.IOException;
+
+import validador.RulesEnum;
+import validador.Validator;
+
+/**
+ * Decodificador de requisições do protocolo baseado no {@link JsonParser} de
+ * streaming do Jackson. Lê diretamente os bytes da linha recebida e preenche uma
+ * {@link Requisicao} reutilizável, validando tamanhos e formatos à medida que os
+ * tokens passam, sem montar uma árvore {@code JsonNode} nem uma {@code String}
+ * da linha inteira.
+ * <p>
+ * As regras de formato e as mensagens são as mesmas do {@link Validator}; os
+ * campos que cada operação exige vêm do {@link OperationHandler.Campos} do seu
+ * tratador no {@link OperationRegistry}. Como o campo "operacao" pode vir depois
+ * dos demais, cada campo guarda o seu erro e só os campos que a operação usa são
+ * cobrados no final. Operação sem tratador não tem campos cobrados: quem
+ * despacha a responde como desconhecida. Thread-safe.
+ */
+public final class DecodificadorRequisicao {
+    // Nome do campo no protocolo, para as mensagens de erro
+    private static final String[] NOMES = new String[NUM_CAMPOS];
+    static {
+        NOMES[OPERACAO] = "operacao";
+        NOMES[TOKEN] = "token";
+        NOMES[NOME] = "nome";
+        NOMES[CPF] = "cpf";
+        NOMES[SENHA] = "senha";
+        NOMES[CPF_DESTINO] = "cpf_destino";
+        NOMES[VALOR] = "valor";
+        NOMES[VALOR_ENVIADO] = "valor_enviado";
+        NOMES[DATA_INICIAL] = "data_inicial";
+        NOMES[DATA_FINAL] = "data_final";
+        NOMES[CURSOR] = "cursor";
+        NOMES[LIMITE] = "limite";
+        NOMES[USUARIO] = "usuario";
+        NOMES[USUARIO_NOME] = "nome";
+        NOMES[USUARIO_SENHA] = "senha";
+    }
+
+    private static final int LIMITE_MIN = 1;
+    private static final int LIMITE_MAX = 1000;
+
+    private final JsonFactory factory;
+    private final OperationRegistry operacoes;
+
+    DecodificadorRequisicao(JsonFactory factory, OperationRegistry operacoes) {
+        this.factory = factory;
+        this.operacoes = operacoes;
+    }
+
+    /**
+     * Decodifica e valida uma linha do protocolo (sem o '\n').
+     *
+     * @throws Exception com a mesma mensagem do {@link Validator} se a requisição
+     *         for inválida.
+     */
+    public void decodificar(byte[] buf, int off, int len, Requisicao req) throws Exception {
+        req.limpar();
+        if (vazia(buf, off, len)) {
+            throw new Exception("A mensagem JSON não pode ser nula ou vazia.");
+        }
+        try (JsonParser p = factory.createParser(buf, off, len)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("A mensagem deve ser um objeto JSON.");
+            }
+            lerObjeto(p, req, false);
+        } catch (JsonProcessingException e) {
+            throw new Exception("Erro de sintaxe. A mensagem não é um JSON válido.", e);
+        }
+        verificar(req);
+    }
+
+    private static boolean vazia(byte[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            if ((buf[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void lerObjeto(JsonParser p, Requisicao req, boolean dentroDeUsuario) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            // Nomes de campo são canonicalizados pela tabela de símbolos do Jackson
+            String nome = p.currentName();
+            JsonToken valor = p.nextToken();
+            int campo = dentroDeUsuario ? campoDeUsuario(nome) : campo(nome);
+            if (campo < 0 || valor == JsonToken.VALUE_NULL) {
+                // Campo desconhecido é ignorado; nulo conta como ausente
+                p.skipChildren();
+                continue;
+            }
+            req.presentes |= 1 << campo;
+
+            switch (campo) {
+            case OPERACAO:
+                if (lerTexto(p, valor, req, campo, 3, 200)) {
+                    lerOperacao(req, p.getText());
+                }
+                break;
+            case TOKEN:
+                if (lerTexto(p, valor, req, campo, 3, 200)) req.token = p.getText();
+                break;
+            case NOME:
+                if (lerTexto(p, valor, req, campo, 6, 120)) req.nome = p.getText();
+                break;
+            case SENHA:
+                if (lerTexto(p, valor, req, campo, 6, 120)) req.senha = p.getText();
+                break;
+            case CURSOR:
+                if (lerTexto(p, valor, req, campo, 3, 64)) req.cursor = p.getText();
+                break;
+            case USUARIO_NOME:
+                if (lerTexto(p, valor, req, campo, 6, 120)) req.usuarioNome = p.getText();
+                break;
+            case USUARIO_SENHA:
+                if (lerTexto(p, valor, req, campo, 6, 120)) req.usuarioSenha = p.getText();
+                break;
+            case CPF:
+                if (lerCpf(p, valor, req, campo)) req.cpf = p.getText();
+                break;
+            case CPF_DESTINO:
+                if (lerCpf(p, valor, req, campo)) req.cpfDestino = p.getText();
+                break;
+            case DATA_INICIAL:
+                if (lerData(p, valor, req, campo)) req.dataInicial = p.getText();
+                break;
+            case DATA_FINAL:
+                if (lerData(p, valor, req, campo)) req.dataFinal = p.getText();
+                break;
+            case VALOR:
+                if (exigirNumero(p, valor, req, campo)) {
+                    req.valorCentavos = lerCentavos(p);
+                    req.valorExato = req.valorCentavos != INEXATO;
+                }
+                break;
+            case VALOR_ENVIADO:
+                if (exigirNumero(p, valor, req, campo)) {
+                    req.valorEnviadoCentavos = lerCentavos(p);
+                    req.valorEnviadoExato = req.valorEnviadoCentavos != INEXATO;
+                }
+                break;
+            case LIMITE:
+                if (valor != JsonToken.VALUE_NUMBER_INT || p.getNumberType() != JsonParser.NumberType.INT) {
+                    p.skipChildren();
+                    invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ser do tipo int.");
+                } else {
+                    req.limite = p.getIntValue();
+                    if (req.limite < LIMITE_MIN || req.limite > LIMITE_MAX) {
+                        invalido(req, campo, "O campo '" + NOMES[campo] + "' deve estar entre "
+                                + LIMITE_MIN + " e " + LIMITE_MAX + ".");
+                    }
+                }
+                break;
+            case USUARIO:
+                if (valor == JsonToken.START_OBJECT) {
+                    lerObjeto(p, req, true);
+                } else {
+                    p.skipChildren();
+                    invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ser um objeto JSON (ex: { ... }).");
+                }
+                break;
+            default:
+                p.skipChildren();
+            }
+        }
+    }
+
+    private static int campo(String nome) {
+        switch (nome) {
+        case "operacao": return OPERACAO;
+        case "token": return TOKEN;
+        case "nome": return NOME;
+        case "cpf": return CPF;
+        case "senha": return SENHA;
+        case "cpf_destino": return CPF_DESTINO;
+        case "valor": return VALOR;
+        case "valor_enviado": return VALOR_ENVIADO;
+        case "data_inicial": return DATA_INICIAL;
+        case "data_final": return DATA_FINAL;
+        case "cursor": return CURSOR;
+        case "limite": return LIMITE;
+        case "usuario": return USUARIO;
+        default: return -1;
+        }
+    }
+
+    private static int campoDeUsuario(String nome) {
+        switch (nome) {
+        case "nome": return USUARIO_NOME;
+        case "senha": return USUARIO_SENHA;
+        default: return -1;
+        }
+    }
+
+    private static void lerOperacao(Requisicao req, String texto) {
+        try {
+            req.operacao = RulesEnum.getEnum(texto);
+        } catch (Exception e) {
+            invalido(req, OPERACAO, e.getMessage());
+        }
+    }
+
+    /**
+     * Confere que o token é uma String com tamanho (sem espaços nas pontas) no
+     * intervalo. Devolve {@code true} se o valor pode ser lido com {@code getText()}.
+     */
+    private static boolean lerTexto(JsonParser p, JsonToken valor, Requisicao req, int campo, int min, int max)
+            throws IOException {
+        if (valor != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ser do tipo String.");
+            return false;
+        }
+        int tamanho = tamanhoSemEspacos(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        if (tamanho < min) {
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ter no mínimo " + min + " caracteres.");
+        } else if (tamanho > max) {
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ter no máximo " + max + " caracteres.");
+        }
+        return true;
+    }
+
+    private static boolean lerCpf(JsonParser p, JsonToken valor, Requisicao req, int campo) throws IOException {
+        if (valor != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ser do tipo String.");
+            return false;
+        }
+        if (!Validator.isCpfFormat(p.getTextCharacters(), p.getTextOffset(), p.getTextLength())) {
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve estar no formato '000.000.000-00'.");
+        }
+        return true;
+    }
+
+    private static boolean lerData(JsonParser p, JsonToken valor, Requisicao req, int campo) throws IOException {
+        if (valor != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ser do tipo String.");
+            return false;
+        }
+        if (!Validator.isIsoUtcDate(p.getTextCharacters(), p.getTextOffset(), p.getTextLength())) {
+            invalido(req, campo, "O campo '" + NOMES[campo]
+                    + "' deve estar no formato ISO 8601 UTC 'yyyy-MM-dd'T'HH:mm:ss'Z'.");
+        }
+        return true;
+    }
+
+    private static boolean exigirNumero(JsonParser p, JsonToken valor, Requisicao req, int campo) throws IOException {
+        if (valor != JsonToken.VALUE_NUMBER_INT && valor != JsonToken.VALUE_NUMBER_FLOAT) {
+            p.skipChildren();
+            invalido(req, campo, "O campo '" + NOMES[campo] + "' deve ser do tipo numérico (int, double, etc).");
+            return false;
+        }
+        return true;
+    }
+
+    /** Marcador de valor que não pode ser representado exatamente em centavos. */
+    static final long INEXATO = Long.MIN_VALUE;
+
+    /**
+     * Converte o número do token atual em centavos direto dos caracteres do
+     * parser, sem passar por double nem BigDecimal. Notação com expoente (rara)
+     * cai no caminho com {@link java.math.BigDecimal}.
+     */
+    private static long lerCentavos(JsonParser p) throws IOException {
+        char[] c = p.getTextCharacters();
+        int i = p.getTextOffset();
+        int fim = i + p.getTextLength();
+        boolean negativo = false;
+        if (i < fim && c[i] == '-') {
+            negativo = true;
+            i++;
+        }
+        long inteiro = 0;
+        for (; i < fim && c[i] >= '0' && c[i] <= '9'; i++) {
+            if (inteiro > (Long.MAX_VALUE / 100 - 9) / 10) {
+                return INEXATO;
+            }
+            inteiro = inteiro * 10 + (c[i] - '0');
+        }
+        long fracao = 0;
+        int casas = 0;
+        if (i < fim && c[i] == '.') {
+            for (i++; i < fim && c[i] >= '0' && c[i] <= '9'; i++) {
+                if (casas < 2) {
+                    fracao = fracao * 10 + (c[i] - '0');
+                    casas++;
+                } else if (c[i] != '0') {
+                    return INEXATO;
+                }
+            }
+        }
+        if (i < fim) {
+            // Expoente (1e2, 1.5E-1...)
+            try {
+                return Dinheiro.centavos(p.getDecimalValue());
+            } catch (IllegalArgumentException e) {
+                return INEXATO;
+            }
+        }
+        if (casas == 1) {
+            fracao *= 10;
+        }
+        long centavos = inteiro * 100 + fracao;
+        return negativo ? -centavos : centavos;
+    }
+
+    private static int tamanhoSemEspacos(char[] c, int off, int len) {
+        int ini = off;
+        int fim = off + len;
+        while (ini < fim && c[ini] <= ' ') {
+            ini++;
+        }
+        while (fim > ini && c[fim - 1] <= ' ') {
+            fim--;
+        }
+        return fim - ini;
+    }
+
+    private static void invalido(Requisicao req, int campo, String mensagem) {
+        if ((req.invalidos & (1 << campo)) == 0) {
+            req.invalidos |= 1 << campo;
+            req.erros[campo] = mensagem;
+        }
+    }
+
+    /**
+     * Cobra os campos que a operação exige e os opcionais que vieram.
+     */
+    private void verificar(Requisicao req) {
+        exigir(req, OPERACAO);
+        OperationHandler tratador = operacoes.get(req.operacao);
+        OperationHandler.Campos campos = tratador == null ? OperationHandler.Campos.NENHUM : tratador.getCampos();
+        for (int campo = 1; campo < NUM_CAMPOS; campo++) {
+            int bit = 1 << campo;
+            if ((campos.obrigatorios & bit) != 0) {
+                exigir(req, campo);
+            } else if ((campos.opcionais & bit) != 0 && (req.invalidos & bit) != 0) {
+                throw new IllegalArgumentException(req.erros[campo]);
+            }
+        }
+        if (campos.peloMenosUm != 0 && (req.presentes & campos.peloMenosUm) == 0) {
+            throw new IllegalArgumentException(campos.erroPeloMenosUm);
+        }
+    }
+
+    private static void exigir(Requisicao req, int campo) {
+        if (!req.tem(campo)) {
+            throw new IllegalArgumentException("O campo obrigatório '" + NOMES[campo] + "' não foi encontrado ou é nulo.");
+        }
+        if ((req.invalidos & (1 << campo)) != 0) {
+            throw new IllegalArgumentException(req.erros[campo]);
+        }
+    }
+}
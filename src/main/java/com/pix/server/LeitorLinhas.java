@@ -0,0 +1,79 @@
+package com.pix.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Lê linhas (terminadas em '\n', com '\r' opcional) de um {@link InputStream} para
+ * um buffer de bytes reaproveitado, sem criar uma {@code String} por linha.
+ * <p>
+ * O stream é lido em blocos para o próprio buffer, que é varrido atrás do '\n';
+ * os bytes que sobram depois da linha ficam para a próxima chamada. Por isso o
+ * {@code InputStream} não precisa (nem deve) ser um {@code BufferedInputStream}.
+ */
+class LeitorLinhas {
+    static final int TAMANHO_MAX_LINHA = 64 * 1024;
+
+    private final InputStream in;
+    // Cabe uma linha máxima mais o '\n'
+    private byte[] buffer = new byte[8 * 1024];
+    private int inicio;
+    private int pos;
+    private int lim;
+
+    LeitorLinhas(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Lê a próxima linha, que fica em {@link #getBuffer()} a partir de
+     * {@link #getInicio()} e vale até a próxima chamada.
+     *
+     * @return o tamanho da linha, ou -1 no fim do stream.
+     * @throws IOException se a linha exceder {@value #TAMANHO_MAX_LINHA} bytes.
+     */
+    int proximaLinha() throws IOException {
+        int varrido = pos;
+        while (true) {
+            for (int i = varrido; i < lim; i++) {
+                if (buffer[i] == '\n') {
+                    inicio = pos;
+                    pos = i + 1;
+                    int n = i - inicio;
+                    return n > 0 && buffer[i - 1] == '\r' ? n - 1 : n;
+                }
+            }
+            int pendente = lim - pos;
+            if (pendente > TAMANHO_MAX_LINHA) {
+                throw new IOException("Requisição excede " + TAMANHO_MAX_LINHA + " bytes.");
+            }
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, pendente);
+                pos = 0;
+                lim = pendente;
+            }
+            if (lim == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, TAMANHO_MAX_LINHA + 1));
+            }
+            varrido = lim;
+            int lidos = in.read(buffer, lim, buffer.length - lim);
+            if (lidos < 0) {
+                // Última linha sem '\n' também é entregue, como no BufferedReader.readLine()
+                inicio = pos;
+                pos = lim;
+                return pendente > 0 ? pendente : -1;
+            }
+            lim += lidos;
+        }
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    /** Posição em {@link #getBuffer()} onde começa a última linha lida. */
+    int getInicio() {
+        return inicio;
+    }
+}
@@ -0,0 +1,225 @@
+package com.pix.server;
+
+import validador.RulesEnum;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitador de taxa por balde de fichas, com orçamentos separados por operação
+ * e por chave: o endereço remoto do cliente e o CPF autenticado. A decisão é
+ * tomada no thread da conexão, antes de a requisição entrar na fila do executor,
+ * e não toca no banco.
+ * <p>
+ * Cada balde é um único {@link AtomicLong} com o "instante teórico de chegada"
+ * da próxima requisição (algoritmo GCRA, equivalente ao balde de fichas): cada
+ * requisição aceita empurra o instante um intervalo ({@code 1/porSegundo}) para
+ * frente, e ela é recusada se ele já estiver mais de {@code rajada - 1}
+ * intervalos à frente do relógio. A atualização é um CAS, sem locks.
+ * <p>
+ * Um balde cujo instante já passou está cheio e se comporta como um novo, então
+ * a limpeza periódica pode removê-lo sem mudar nenhuma decisão (no pior caso,
+ * uma corrida com a remoção perde um consumo).
+ * <p>
+ * Cada operação e chave tem no máximo {@code maxBaldes} baldes. Com a tabela
+ * cheia, os ids novos dividem um balde de transbordo com o mesmo orçamento de um
+ * cliente só: quem enche a tabela com ids descartáveis não passa sem limite.
+ */
+final class LimitadorTaxa {
+
+    /** Chave do balde. */
+    enum Chave {
+        /** Endereço IP do cliente (sem a porta: vale para todas as conexões dele). */
+        ENDERECO,
+        /** CPF do token, ou o CPF informado em login/cadastro. */
+        CPF
+    }
+
+    // Baldes e métricas de uma operação em uma chave
+    private static final class Baldes {
+        final int porSegundo;
+        final int rajada;
+        final long intervaloNanos;
+        final long toleranciaNanos;
+        final Map<String, AtomicLong> porId = new ConcurrentHashMap<>();
+        final AtomicInteger total = new AtomicInteger();
+        // Balde compartilhado pelos ids que não couberam na tabela
+        final AtomicLong transbordo = new AtomicLong(System.nanoTime());
+        final LongAdder permitidas = new LongAdder();
+        final LongAdder negadas = new LongAdder();
+
+        Baldes(int porSegundo, int rajada) {
+            this.porSegundo = porSegundo;
+            this.rajada = rajada;
+            this.intervaloNanos = 1_000_000_000L / porSegundo;
+            this.toleranciaNanos = (rajada - 1) * intervaloNanos;
+        }
+    }
+
+    private final boolean ativo;
+    private final int maxBaldes;
+    private final long limpezaMs;
+    // [chave][operação]; null = sem limite
+    private final Baldes[][] tabela = new Baldes[Chave.values().length][RulesEnum.values().length];
+    private ScheduledExecutorService agendador;
+
+    private final LongAdder transbordos = new LongAdder();
+    private final LongAdder removidos = new LongAdder();
+
+    LimitadorTaxa(boolean ativo, int maxBaldes, long limpezaMs) {
+        this.ativo = ativo;
+        this.maxBaldes = maxBaldes;
+        this.limpezaMs = limpezaMs;
+    }
+
+    /**
+     * Cria o limitador a partir de {@code pix.limite.ativo} (padrão true),
+     * {@code pix.limite.maxBaldes} (por operação e chave, padrão 100.000) e
+     * {@code pix.limite.limpezaMs} (padrão 30 s).
+     */
+    static LimitadorTaxa fromSystemProperties() {
+        return new LimitadorTaxa(Boolean.parseBoolean(System.getProperty("pix.limite.ativo", "true")),
+                Integer.getInteger("pix.limite.maxBaldes", 100_000),
+                Long.getLong("pix.limite.limpezaMs", 30_000L));
+    }
+
+    /**
+     * Define o orçamento de uma operação em uma chave. Os valores padrão podem ser
+     * trocados por {@code pix.limite.<operacao>.<chave>.porSegundo} e
+     * {@code .rajada} (por exemplo {@code pix.limite.usuario_login.cpf.porSegundo});
+     * taxa 0 desliga o limite.
+     */
+    void definir(RulesEnum operacao, Chave chave, int porSegundoPadrao, int rajadaPadrao) {
+        String prefixo = "pix.limite." + operacao.getValue() + "." + chave.name().toLowerCase(Locale.ROOT) + ".";
+        int porSegundo = Integer.getInteger(prefixo + "porSegundo", porSegundoPadrao);
+        int rajada = Math.max(1, Integer.getInteger(prefixo + "rajada", rajadaPadrao));
+        tabela[chave.ordinal()][operacao.ordinal()] = porSegundo > 0 ? new Baldes(porSegundo, rajada) : null;
+    }
+
+    /** Indica se a operação tem limite na chave (para não calcular a chave à toa). */
+    boolean limita(Chave chave, RulesEnum operacao) {
+        return ativo && tabela[chave.ordinal()][operacao.ordinal()] != null;
+    }
+
+    /**
+     * Consome uma ficha do balde de {@code id} para a operação.
+     *
+     * @return falso se o cliente estourou o orçamento e a requisição deve ser recusada.
+     */
+    boolean permitir(Chave chave, RulesEnum operacao, String id) {
+        Baldes baldes = ativo && id != null ? tabela[chave.ordinal()][operacao.ordinal()] : null;
+        if (baldes == null) {
+            return true;
+        }
+        long agora = System.nanoTime();
+        AtomicLong balde = baldes.porId.get(id);
+        if (balde == null) {
+            balde = criarBalde(baldes, id, agora);
+            if (balde == null) {
+                transbordos.increment();
+                balde = baldes.transbordo;
+            }
+        }
+        while (true) {
+            long chegada = balde.get();
+            long base = chegada - agora > 0 ? chegada : agora;
+            if (base - agora > baldes.toleranciaNanos) {
+                baldes.negadas.increment();
+                return false;
+            }
+            if (balde.compareAndSet(chegada, base + baldes.intervaloNanos)) {
+                baldes.permitidas.increment();
+                return true;
+            }
+        }
+    }
+
+    private AtomicLong criarBalde(Baldes baldes, String id, long agora) {
+        if (baldes.total.get() >= maxBaldes) {
+            return null;
+        }
+        AtomicLong novo = new AtomicLong(agora);
+        AtomicLong existente = baldes.porId.putIfAbsent(id, novo);
+        if (existente != null) {
+            return existente;
+        }
+        baldes.total.incrementAndGet();
+        return novo;
+    }
+
+    /**
+     * Inicia a remoção periódica dos baldes ociosos (cheios).
+     */
+    synchronized void iniciar() {
+        if (agendador != null || !ativo) {
+            return;
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pix-limitador-taxa");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(this::removerOciosos, limpezaMs, limpezaMs, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+            agendador = null;
+        }
+    }
+
+    void removerOciosos() {
+        long agora = System.nanoTime();
+        for (Baldes[] porOperacao : tabela) {
+            for (Baldes baldes : porOperacao) {
+                if (baldes == null) {
+                    continue;
+                }
+                Iterator<Map.Entry<String, AtomicLong>> it = baldes.porId.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, AtomicLong> e = it.next();
+                    if (agora - e.getValue().get() >= 0 && baldes.porId.remove(e.getKey(), e.getValue())) {
+                        baldes.total.decrementAndGet();
+                        removidos.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decisões por operação e chave (só as que têm limite), uma por linha, e o
+     * estado da tabela de baldes.
+     */
+    String estatisticas() {
+        int total = 0;
+        for (Baldes[] porOperacao : tabela) {
+            for (Baldes baldes : porOperacao) {
+                total += baldes != null ? baldes.total.get() : 0;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("limitador[ativo=%b, baldes=%d, max_baldes=%d, removidos=%d, transbordos=%d]",
+                ativo, total, maxBaldes, removidos.sum(), transbordos.sum()));
+        for (Chave chave : Chave.values()) {
+            for (RulesEnum operacao : RulesEnum.values()) {
+                Baldes b = tabela[chave.ordinal()][operacao.ordinal()];
+                if (b != null) {
+                    sb.append(String.format("%nlimite_%s_%s[por_segundo=%d, rajada=%d, permitidas=%d, negadas=%d]",
+                            operacao.getValue(), chave.name().toLowerCase(Locale.ROOT), b.porSegundo, b.rajada,
+                            b.permitidas.sum(), b.negadas.sum()));
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
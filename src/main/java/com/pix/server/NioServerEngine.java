@@ -0,0 +1,371 @@
+package com.pix.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Motor de rede não bloqueante do {@link PixServer}. Um thread aceitador distribui
+ * as conexões entre poucos event loops ({@link Selector}), que extraem as
+ * requisições delimitadas por '\n' de buffers reaproveitados e entregam os bytes
+ * de cada linha completa ao processador do servidor, que decodifica a requisição
+ * e executa a operação no {@link RequestExecutor}.
+ * <p>
+ * As requisições de uma mesma conexão são processadas em ordem, uma de cada vez,
+ * para que as respostas saiam na mesma sequência do modo bloqueante. Um cliente
+ * que manda linhas mais rápido do que elas são atendidas para de ser lido com
+ * {@value #MAX_PENDENTES} linhas na fila (mais as que já estavam no buffer lido)
+ * e volta a ser lido quando a fila cai à metade, então a memória por conexão é
+ * limitada e a espera fica no buffer TCP do cliente.
+ */
+class NioServerEngine {
+    private static final int TAMANHO_BUFFER = 8 * 1024;
+    private static final int TAMANHO_MAX_LINHA = LeitorLinhas.TAMANHO_MAX_LINHA;
+    private static final int MAX_BUFFERS_RETIDOS = 4096;
+    private static final int MAX_PENDENTES = 16;
+
+    private final int port;
+    private final Processador processador;
+    private final int numLoops;
+    private final BufferPool buffers = new BufferPool(TAMANHO_BUFFER, MAX_BUFFERS_RETIDOS);
+
+    private volatile boolean running;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptThread;
+    private EventLoop[] loops;
+
+    /**
+     * Processa os bytes de uma requisição usando a {@link Requisicao} da conexão.
+     */
+    interface Processador {
+        CompletableFuture<String> processar(byte[] buf, int off, int len, Requisicao req);
+    }
+
+    NioServerEngine(int port, Processador processador) {
+        this(port, processador, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    NioServerEngine(int port, Processador processador, int numLoops) {
+        this.port = port;
+        this.processador = processador;
+        this.numLoops = numLoops;
+    }
+
+    void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        loops = new EventLoop[numLoops];
+        for (int i = 0; i < numLoops; i++) {
+            loops[i] = new EventLoop(Selector.open());
+            loops[i].thread = new Thread(loops[i], "pix-nio-loop-" + i);
+        }
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+
+        acceptThread = new Thread(this::aceitar, "pix-nio-accept");
+        acceptThread.start();
+    }
+
+    void stop() throws IOException {
+        running = false;
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private void aceitar() {
+        System.out.println("Servidor Pix (NIO, " + numLoops + " event loops) rodando na porta " + port);
+        int proximo = 0;
+        while (running) {
+            try {
+                SocketChannel canal = serverChannel.accept();
+                canal.configureBlocking(false);
+                canal.socket().setTcpNoDelay(true);
+                loops[proximo].registrar(canal);
+                proximo = (proximo + 1) % loops.length;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Erro no servidor: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Inicia o processamento da próxima linha pendente da conexão, se nenhuma
+     * estiver em andamento. A linha seguinte só é processada quando a resposta da
+     * anterior for enfileirada para escrita.
+     */
+    private void agendar(Conexao c) {
+        while (!c.fechada && !c.pendentes.isEmpty() && c.emExecucao.compareAndSet(false, true)) {
+            byte[] linha = c.pendentes.poll();
+            if (linha == null) {
+                c.emExecucao.set(false);
+                continue;
+            }
+            if (c.numPendentes.decrementAndGet() == MAX_PENDENTES / 2) {
+                c.loop.retomarLeitura(c);
+            }
+            CompletableFuture<String> resposta;
+            try {
+                resposta = processador.processar(linha, 0, linha.length, c.requisicao);
+            } catch (RuntimeException e) {
+                c.emExecucao.set(false);
+                // Pode estar num worker: a conexão é fechada pelo event loop dela
+                c.loop.executar(() -> c.loop.fechar(c));
+                return;
+            }
+            if (resposta.isDone()) {
+                // Respostas imediatas (erro de validação, sobrecarga) não saem do event loop
+                c.loop.enviar(c, resposta.join());
+                c.emExecucao.set(false);
+                continue;
+            }
+            resposta.whenComplete((json, erro) -> {
+                if (erro == null) {
+                    c.loop.enviar(c, json);
+                }
+                c.emExecucao.set(false);
+                agendar(c);
+            });
+            return;
+        }
+    }
+
+    /**
+     * Estado de uma conexão. O acumulador de linha só é tocado pelo event loop
+     * dono; as filas são compartilhadas com os workers.
+     */
+    private static final class Conexao {
+        final SocketChannel canal;
+        final EventLoop loop;
+        final String remoto;
+        final Queue<byte[]> pendentes = new ConcurrentLinkedQueue<>();
+        final AtomicInteger numPendentes = new AtomicInteger();
+        // Reutilizada por todas as requisições da conexão, que são processadas em série
+        final Requisicao requisicao = new Requisicao();
+        final Queue<ByteBuffer> saida = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean emExecucao = new AtomicBoolean();
+        SelectionKey key;
+        byte[] linha = new byte[256];
+        int tamanhoLinha;
+        // OP_READ desligado por fila cheia; só o event loop toca
+        boolean leituraPausada;
+        volatile boolean fechada;
+
+        Conexao(SocketChannel canal, EventLoop loop, String remoto, String origem) {
+            this.canal = canal;
+            this.loop = loop;
+            this.remoto = remoto;
+            requisicao.origem = origem;
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Queue<Runnable> tarefas = new ConcurrentLinkedQueue<>();
+        Thread thread;
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void registrar(SocketChannel canal) {
+            tarefas.add(() -> {
+                String remoto;
+                try {
+                    InetSocketAddress endereco = (InetSocketAddress) canal.getRemoteAddress();
+                    remoto = String.valueOf(endereco);
+                    Conexao c = new Conexao(canal, this, remoto, endereco.getAddress().getHostAddress());
+                    c.key = canal.register(selector, SelectionKey.OP_READ, c);
+                } catch (IOException e) {
+                    try {
+                        canal.close();
+                    } catch (IOException ignored) {
+                    }
+                    return;
+                }
+                System.out.println("Cliente conectado: " + remoto);
+            });
+            selector.wakeup();
+        }
+
+        /** Chamado por qualquer thread: roda a tarefa no event loop. */
+        void executar(Runnable tarefa) {
+            tarefas.add(tarefa);
+            selector.wakeup();
+        }
+
+        /** Chamado por qualquer thread quando a fila da conexão esvazia até a metade. */
+        void retomarLeitura(Conexao c) {
+            executar(() -> {
+                if (c.leituraPausada && !c.fechada && c.key.isValid()) {
+                    c.leituraPausada = false;
+                    c.key.interestOps(c.key.interestOps() | SelectionKey.OP_READ);
+                }
+            });
+        }
+
+        /**
+         * Chamado por qualquer thread: copia a resposta para buffers do pool e pede ao
+         * event loop que a escreva.
+         */
+        void enviar(Conexao c, String resposta) {
+            byte[] bytes = (resposta + "\n").getBytes(StandardCharsets.UTF_8);
+            for (int pos = 0; pos < bytes.length; ) {
+                ByteBuffer b = buffers.acquire();
+                int n = Math.min(b.remaining(), bytes.length - pos);
+                b.put(bytes, pos, n);
+                b.flip();
+                c.saida.add(b);
+                pos += n;
+            }
+            tarefas.add(() -> escrever(c));
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer leitura = buffers.acquire();
+            try {
+                while (running) {
+                    selector.select();
+                    Runnable tarefa;
+                    while ((tarefa = tarefas.poll()) != null) {
+                        tarefa.run();
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Conexao c = (Conexao) key.attachment();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            ler(c, leitura);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            escrever(c);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro no event loop: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Conexao) {
+                        fechar((Conexao) key.attachment());
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+                buffers.release(leitura);
+            }
+        }
+
+        private void ler(Conexao c, ByteBuffer leitura) {
+            int lidos;
+            leitura.clear();
+            try {
+                lidos = c.canal.read(leitura);
+            } catch (IOException e) {
+                lidos = -1;
+            }
+            if (lidos < 0) {
+                fechar(c);
+                return;
+            }
+            leitura.flip();
+            while (leitura.hasRemaining()) {
+                byte b = leitura.get();
+                if (b == '\n') {
+                    int fim = c.tamanhoLinha;
+                    if (fim > 0 && c.linha[fim - 1] == '\r') {
+                        fim--;
+                    }
+                    c.pendentes.add(Arrays.copyOf(c.linha, fim));
+                    c.tamanhoLinha = 0;
+                    if (c.numPendentes.incrementAndGet() >= MAX_PENDENTES && !c.leituraPausada) {
+                        c.leituraPausada = true;
+                        c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_READ);
+                    }
+                    agendar(c);
+                    continue;
+                }
+                if (c.tamanhoLinha == c.linha.length) {
+                    if (c.linha.length >= TAMANHO_MAX_LINHA) {
+                        System.err.println("Requisição excede " + TAMANHO_MAX_LINHA + " bytes: " + c.remoto);
+                        fechar(c);
+                        return;
+                    }
+                    c.linha = Arrays.copyOf(c.linha, Math.min(c.linha.length * 2, TAMANHO_MAX_LINHA));
+                }
+                c.linha[c.tamanhoLinha++] = b;
+            }
+        }
+
+        private void escrever(Conexao c) {
+            if (c.fechada || !c.key.isValid()) {
+                return;
+            }
+            try {
+                ByteBuffer b;
+                while ((b = c.saida.peek()) != null) {
+                    c.canal.write(b);
+                    if (b.hasRemaining()) {
+                        c.key.interestOps(c.key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    c.saida.poll();
+                    buffers.release(b);
+                }
+                c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                fechar(c);
+            }
+        }
+
+        void fechar(Conexao c) {
+            if (c.fechada) {
+                return;
+            }
+            c.fechada = true;
+            c.pendentes.clear();
+            if (c.key != null) {
+                c.key.cancel();
+            }
+            try {
+                c.canal.close();
+            } catch (IOException ignored) {
+            }
+            ByteBuffer b;
+            while ((b = c.saida.poll()) != null) {
+                buffers.release(b);
+            }
+            System.out.println("Cliente desconectado: " + c.remoto);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.pix.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pix.model.RespostaBase;
+import com.pix.service.HistogramaLatencia;
+import validador.RulesEnum;
+import validador.Validator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tratador de uma operação do protocolo. Reúne o que o servidor precisa saber
+ * para despachá-la: o corpo da operação, os campos que a requisição deve
+ * trazer, a regra da resposta, em qual executor ela roda (I/O ou CPU), a
+ * prioridade na fila, o tempo limite, se ela altera estado e o nome com que
+ * aparece nas métricas. Os tratadores ficam no {@link OperationRegistry}, que é
+ * a única fonte dessas regras para o {@link DecodificadorRequisicao} e para a
+ * validação das respostas.
+ */
+final class OperationHandler {
+
+    /** Executor em que a operação roda. */
+    enum TipoExecutor {
+        /** Operações que esperam pelo banco; pool maior. */
+        IO,
+        /** Operações só de memória/CPU; pool do tamanho do número de processadores. */
+        CPU
+    }
+
+    /** Corpo da operação. */
+    interface Operacao {
+        RespostaBase executar(Requisicao req) throws Exception;
+    }
+
+    /**
+     * Campos da requisição (índices de {@link Requisicao}) cobrados pelo
+     * {@link DecodificadorRequisicao}: os obrigatórios, os opcionais validados
+     * quando presentes e um grupo do qual pelo menos um deve vir. Imutável.
+     */
+    static final class Campos {
+        static final Campos NENHUM = new Campos(0, 0, 0, null);
+
+        final int obrigatorios;
+        final int opcionais;
+        final int peloMenosUm;
+        final String erroPeloMenosUm;
+
+        private Campos(int obrigatorios, int opcionais, int peloMenosUm, String erroPeloMenosUm) {
+            this.obrigatorios = obrigatorios;
+            this.opcionais = opcionais;
+            this.peloMenosUm = peloMenosUm;
+            this.erroPeloMenosUm = erroPeloMenosUm;
+        }
+
+        static Campos exige(int... campos) {
+            return new Campos(bits(campos), 0, 0, null);
+        }
+
+        Campos opcionais(int... campos) {
+            return new Campos(obrigatorios, opcionais | bits(campos), peloMenosUm, erroPeloMenosUm);
+        }
+
+        /** Exige pelo menos um dos campos, com a mensagem de erro dada. */
+        Campos peloMenosUm(String erro, int... campos) {
+            return new Campos(obrigatorios, opcionais, bits(campos), erro);
+        }
+
+        private static int bits(int... campos) {
+            int m = 0;
+            for (int c : campos) {
+                m |= 1 << c;
+            }
+            return m;
+        }
+    }
+
+    private final RulesEnum operacao;
+    private final String nomeMetrica;
+    private final TipoExecutor tipoExecutor;
+    private final int prioridade;
+    private final long timeoutMs;
+    private final boolean escrita;
+    private final Campos campos;
+    private final Validator.Regra regraResposta;
+    private final Operacao corpo;
+
+    // Métricas
+    private final LongAdder chamadas = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder rejeitadas = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder tempoTotalNanos = new LongAdder();
+    private final AtomicLong maiorTempoNanos = new AtomicLong();
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+
+    OperationHandler(RulesEnum operacao, String nomeMetrica, TipoExecutor tipoExecutor, int prioridade,
+            long timeoutMs, boolean escrita, Campos campos, Validator.Regra regraResposta, Operacao corpo) {
+        this.operacao = operacao;
+        this.nomeMetrica = nomeMetrica;
+        this.tipoExecutor = tipoExecutor;
+        this.prioridade = prioridade;
+        this.timeoutMs = timeoutMs;
+        this.escrita = escrita;
+        this.campos = campos;
+        this.regraResposta = regraResposta;
+        this.corpo = corpo;
+    }
+
+    RulesEnum getOperacao() { return operacao; }
+    String getNomeMetrica() { return nomeMetrica; }
+    TipoExecutor getTipoExecutor() { return tipoExecutor; }
+    int getPrioridade() { return prioridade; }
+    /**
+     * Tempo limite em ms entre a entrada na fila e a resposta; 0 desliga. Para
+     * escritas só conta a espera na fila (ver {@link #isEscrita()}).
+     */
+    long getTimeoutMs() { return timeoutMs; }
+    /**
+     * Verdadeiro se a operação altera estado (saldo, cadastro): depois que um
+     * worker a começa, o cliente recebe o resultado real mesmo além do tempo
+     * limite, porque uma resposta de falha para algo que ainda pode ser gravado
+     * levaria o cliente a repetir a operação (transferência ou depósito em dobro).
+     */
+    boolean isEscrita() { return escrita; }
+    Campos getCampos() { return campos; }
+
+    /**
+     * Valida a resposta antes de ir para o cliente (ver {@code pix.validacao.resposta}):
+     * o envelope comum e, se o status for true, a regra da operação, quando ela
+     * devolve dados além de 'info'.
+     */
+    void validarResposta(JsonNode resposta) throws Exception {
+        if (Validator.validateServerEnvelope(resposta) && regraResposta != null) {
+            regraResposta.validar(resposta);
+        }
+    }
+
+    /**
+     * Executa o corpo da operação registrando tempo e falhas.
+     */
+    RespostaBase executar(Requisicao req) throws Exception {
+        long inicio = System.nanoTime();
+        boolean ok = false;
+        try {
+            RespostaBase resp = corpo.executar(req);
+            ok = true;
+            return resp;
+        } finally {
+            long dt = System.nanoTime() - inicio;
+            chamadas.increment();
+            tempoTotalNanos.add(dt);
+            maiorTempoNanos.accumulateAndGet(dt, Math::max);
+            latencias.registrar(dt);
+            if (!ok) {
+                falhas.increment();
+            }
+        }
+    }
+
+    void registrarRejeicao() {
+        rejeitadas.increment();
+    }
+
+    void registrarTimeout() {
+        timeouts.increment();
+    }
+
+    long getChamadas() { return chamadas.sum(); }
+    long getFalhas() { return falhas.sum(); }
+    long getRejeitadas() { return rejeitadas.sum(); }
+    long getTimeouts() { return timeouts.sum(); }
+
+    String estatisticas() {
+        long n = Math.max(1, chamadas.sum());
+        return String.format("%s[executor=%s, chamadas=%d, falhas=%d, rejeitadas=%d, timeouts=%d, "
+                + "tempo_medio=%.3fms, %s, tempo_max=%.3fms]",
+                nomeMetrica, tipoExecutor, getChamadas(), getFalhas(), getRejeitadas(), getTimeouts(),
+                tempoTotalNanos.sum() / (double) n / 1e6, latencias.resumo(), maiorTempoNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,43 @@
+package com.pix.server;
+
+import validador.RulesEnum;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tabela de {@link OperationHandler} por operação. O servidor despacha as
+ * requisições por aqui e o {@link DecodificadorRequisicao} lê daqui os campos
+ * de cada uma; operação sem tratador registrado é "desconhecida".
+ */
+final class OperationRegistry {
+    private final Map<RulesEnum, OperationHandler> tratadores = new EnumMap<>(RulesEnum.class);
+
+    void registrar(OperationHandler tratador) {
+        if (tratadores.putIfAbsent(tratador.getOperacao(), tratador) != null) {
+            throw new IllegalStateException("Operação registrada duas vezes: " + tratador.getOperacao());
+        }
+    }
+
+    /** Tratador da operação, ou {@code null} se ela não for suportada. */
+    OperationHandler get(RulesEnum operacao) {
+        return operacao == null ? null : tratadores.get(operacao);
+    }
+
+    Collection<OperationHandler> todos() {
+        return Collections.unmodifiableCollection(tratadores.values());
+    }
+
+    String estatisticas() {
+        StringBuilder sb = new StringBuilder();
+        for (OperationHandler h : tratadores.values()) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(h.estatisticas());
+        }
+        return sb.toString();
+    }
+}
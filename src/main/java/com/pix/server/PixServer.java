@@ -1,13 +1,22 @@
 package com.pix.server;
 
+import static com.pix.server.Requisicao.*;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.pix.dao.TransacaoDAO;
-import com.pix.dao.UsuarioDAO;
+import com.pix.dao.PaginaTransacoes;
+import com.pix.dao.Repositorios;
+import com.pix.dao.TransacaoRepository;
+import com.pix.dao.UsuarioRepository;
+import com.pix.model.Dinheiro;
+import com.pix.model.PerfilUsuario;
 import com.pix.model.RespostaBase;
 import com.pix.model.Transacao;
 import com.pix.model.Usuario;
+import com.pix.server.OperationHandler.Campos;
+import com.pix.service.ServicoSenhas;
 import com.pix.service.TokenManager;
+import validador.RulesEnum;
 import validador.Validator;
 
 import java.io.*;
@@ -15,41 +24,198 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Servidor PIX integrado com banco de dados MySQL. Esta versão substitui o
- * armazenamento em memória por persistência no banco.
+ * armazenamento em memória por persistência no banco; o motor em memória
+ * continua disponível para testes com {@code pix.armazenamento=memoria} (ver
+ * {@link Repositorios}).
  */
 public class PixServer {
 	private final int port;
 	private ServerSocket serverSocket;
 	private boolean running = false;
 	private Thread serverThread;
+	private final Modo modo;
+	private NioServerEngine nioEngine;
+
+	/**
+	 * Motor de rede usado para atender os clientes.
+	 */
+	public enum Modo {
+		/** Um thread bloqueante por conexão (comportamento original). */
+		BLOQUEANTE,
+		/** Poucos event loops com {@link java.nio.channels.Selector} e um pool de workers. */
+		NIO,
+		/** Uma thread virtual por conexão (requer Java 21, ver perfil {@code java21}). */
+		VIRTUAL
+	}
+
+	// Fila de conexões pendentes; no modo VIRTUAL o servidor deve aguentar rajadas de
+	// milhares de conexões simultâneas.
+	private static final int BACKLOG_VIRTUAL = 4096;
 
 	private static final ObjectMapper mapper = new ObjectMapper();
 	private static final DateTimeFormatter dtf = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-	private static final UsuarioDAO usuarioDAO = new UsuarioDAO();
-	private static final TransacaoDAO transacaoDAO = new TransacaoDAO();
+	// Motor de armazenamento escolhido por pix.armazenamento (MySQL ou memória),
+	// criado no primeiro start(): as operações só rodam depois dele
+	private static volatile Repositorios repositorios;
+	private static volatile UsuarioRepository usuarioDAO;
+	private static volatile TransacaoRepository transacaoDAO;
+	private static final ServicoSenhas senhas = ServicoSenhas.getInstance();
+	private static final int LIMITE_PADRAO_EXTRATO = 500;
+	private static final String VALIDACAO_RESPOSTA = System.getProperty("pix.validacao.resposta", "amostragem")
+			.toLowerCase();
+	private static final int TAXA_AMOSTRAGEM_VALIDACAO = 64;
+
+	// Tratadores por operação. Escritas passam na frente das consultas quando o
+	// executor está congestionado. Só o logout das sessões em memória roda no
+	// executor de CPU: no modo hmac ele grava a revogação no banco.
+	// Nas escritas o tempo limite vale só para a espera na fila. Os campos e a
+	// regra da resposta de cada operação são lidos daqui pelo decodificador e
+	// pela validação das respostas.
+	private static final OperationRegistry OPERACOES = new OperationRegistry();
+	static {
+		registrar(RulesEnum.USUARIO_CRIAR, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_NORMAL,
+				5000, true, Campos.exige(NOME, CPF, SENHA), null, PixServer::opUsuarioCriar);
+		registrar(RulesEnum.USUARIO_LOGIN, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_NORMAL,
+				5000, false, Campos.exige(CPF, SENHA), Validator::validateUsuarioLoginServer,
+				PixServer::opUsuarioLogin);
+		registrar(RulesEnum.USUARIO_LOGOUT, TokenManager.isAssinado() ? OperationHandler.TipoExecutor.IO
+				: OperationHandler.TipoExecutor.CPU, RequestExecutor.PRIORIDADE_NORMAL, 1000, false,
+				Campos.exige(TOKEN), null, PixServer::opUsuarioLogout);
+		registrar(RulesEnum.USUARIO_LER, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_BAIXA,
+				5000, false, Campos.exige(TOKEN), Validator::validateUsuarioLerServer, PixServer::opUsuarioLer);
+		registrar(RulesEnum.USUARIO_ATUALIZAR, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_NORMAL,
+				5000, true, Campos.exige(TOKEN, USUARIO).opcionais(USUARIO_NOME, USUARIO_SENHA).peloMenosUm(
+						"O objeto 'usuario' para atualização deve conter pelo menos o campo 'nome' ou 'senha'.",
+						USUARIO_NOME, USUARIO_SENHA),
+				null, PixServer::opUsuarioAtualizar);
+		registrar(RulesEnum.TRANSACAO_CRIAR, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_ALTA,
+				5000, true, Campos.exige(TOKEN, CPF_DESTINO, VALOR), null, PixServer::opTransacaoCriar);
+		registrar(RulesEnum.TRANSACAO_LER, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_BAIXA,
+				10000, false, Campos.exige(TOKEN, DATA_INICIAL, DATA_FINAL).opcionais(CURSOR, LIMITE),
+				Validator::validateTransacaoLerServer, PixServer::opTransacaoLer);
+		registrar(RulesEnum.DEPOSITAR, OperationHandler.TipoExecutor.IO, RequestExecutor.PRIORIDADE_ALTA,
+				5000, true, Campos.exige(TOKEN, VALOR_ENVIADO), null, PixServer::opDepositar);
+	}
+
+	private static final DecodificadorRequisicao decodificador = new DecodificadorRequisicao(mapper.getFactory(),
+			OPERACOES);
+
+	// Orçamentos do limitador de taxa (por segundo/rajada, por endereço e por CPF).
+	// Login e cadastro são apertados por CPF contra tentativa de senha; as
+	// consultas, que mais pesam no banco, por endereço.
+	private static final LimitadorTaxa LIMITES = LimitadorTaxa.fromSystemProperties();
+	static {
+		limitar(RulesEnum.USUARIO_CRIAR, 2, 5, 1, 3);
+		limitar(RulesEnum.USUARIO_LOGIN, 5, 10, 1, 5);
+		limitar(RulesEnum.USUARIO_LOGOUT, 20, 40, 0, 0);
+		limitar(RulesEnum.USUARIO_LER, 20, 40, 10, 20);
+		limitar(RulesEnum.USUARIO_ATUALIZAR, 5, 10, 1, 3);
+		limitar(RulesEnum.TRANSACAO_CRIAR, 20, 40, 10, 20);
+		limitar(RulesEnum.TRANSACAO_LER, 10, 20, 5, 10);
+		limitar(RulesEnum.DEPOSITAR, 20, 40, 10, 20);
+	}
+
+	private static void limitar(RulesEnum operacao, int porSegundoEndereco, int rajadaEndereco, int porSegundoCpf,
+			int rajadaCpf) {
+		LIMITES.definir(operacao, LimitadorTaxa.Chave.ENDERECO, porSegundoEndereco, rajadaEndereco);
+		LIMITES.definir(operacao, LimitadorTaxa.Chave.CPF, porSegundoCpf, rajadaCpf);
+	}
+
+	/**
+	 * Registra uma operação com o nome do protocolo como nome de métrica. O tempo
+	 * limite pode ser trocado por {@code pix.operacao.<nome>.timeoutMs} (0 desliga).
+	 * A regra da resposta é {@code null} quando a operação só devolve o envelope.
+	 */
+	private static void registrar(RulesEnum operacao, OperationHandler.TipoExecutor executor, int prioridade,
+			int timeoutPadraoMs, boolean escrita, Campos campos, Validator.Regra regraResposta,
+			OperationHandler.Operacao corpo) {
+		String nome = operacao.getValue();
+		int timeoutMs = Integer.getInteger("pix.operacao." + nome + ".timeoutMs", timeoutPadraoMs);
+		OPERACOES.registrar(new OperationHandler(operacao, nome, executor, prioridade, timeoutMs, escrita,
+				campos, regraResposta, corpo));
+	}
+
+	/** Decodificador com os campos das operações registradas (usado pelos benchmarks). */
+	public static DecodificadorRequisicao getDecodificador() {
+		return decodificador;
+	}
+
+	private volatile RequestExecutor requestExecutor;
+	private volatile RequestExecutor cpuExecutor;
 
 	public PixServer(int port) {
+		this(port, Modo.BLOQUEANTE);
+	}
+
+	public PixServer(int port, Modo modo) {
 		this.port = port;
+		this.modo = modo;
 	}
-	
-	
 
+	public Modo getModo() {
+		return modo;
+	}
+
+	/**
+	 * @throws IOException se a porta não puder ser aberta ou o armazenamento não
+	 *         puder ser carregado (diário ou snapshot corrompidos, por exemplo).
+	 */
 	public void start() throws IOException {
 		if (running)
 			return;
+		if (modo == Modo.VIRTUAL && !VirtualThreads.disponivel()) {
+			throw new IOException("O modo VIRTUAL exige Java 21 ou superior.");
+		}
+
+		abrirRepositorios();
+
+		// Sessões do snapshot voltam antes de aceitar conexões: os clientes não
+		// precisam refazer o login depois de um reinício
+		TokenManager.restaurarSessoes();
+		TokenManager.iniciarSnapshots();
+		TokenManager.usarRevogacoes(repositorios.getRevogacoes());
+
+		// No modo VIRTUAL as operações de banco também rodam em threads virtuais
+		requestExecutor = modo == Modo.VIRTUAL ? RequestExecutor.virtualFromSystemProperties()
+				: RequestExecutor.fromSystemProperties();
+		cpuExecutor = RequestExecutor.cpuFromSystemProperties();
+		usuarioDAO.iniciar();
+		transacaoDAO.iniciar();
+		LIMITES.iniciar();
+
+		if (modo == Modo.NIO) {
+			nioEngine = new NioServerEngine(port, this::processar);
+			nioEngine.start();
+			running = true;
+			return;
+		}
 
-		serverSocket = new ServerSocket(port);
+		ThreadFactory fabricaConexoes;
+		if (modo == Modo.VIRTUAL) {
+			fabricaConexoes = VirtualThreads.fabrica("pix-conexao-");
+			serverSocket = new ServerSocket(port, BACKLOG_VIRTUAL);
+		} else {
+			fabricaConexoes = Thread::new;
+			serverSocket = new ServerSocket(port);
+		}
 		running = true;
 
 		serverThread = new Thread(() -> {
-			System.out.println("Servidor Pix com BD rodando na porta " + port);
+			System.out.println("Servidor Pix rodando na porta " + port + " (modo " + modo + ", armazenamento "
+					+ repositorios.getMotor() + ")");
 			while (running) {
 				try {
 					Socket clientSocket = serverSocket.accept();
-					new Thread(() -> handleClient(clientSocket)).start();
+					fabricaConexoes.newThread(() -> handleClient(clientSocket)).start();
 				} catch (IOException e) {
 					if (running) {
 						System.err.println("Erro no servidor: " + e.getMessage());
@@ -60,68 +226,94 @@ public class PixServer {
 		serverThread.start();
 	}
 
+	/**
+	 * Cria os repositórios na primeira subida. Fica fora da inicialização da
+	 * classe para uma falha de carga chegar como {@link IOException} do
+	 * {@link #start()}, e não como {@link ExceptionInInitializerError}.
+	 */
+	private static synchronized void abrirRepositorios() throws IOException {
+		if (repositorios != null) {
+			return;
+		}
+		Repositorios r;
+		try {
+			r = Repositorios.fromSystemProperties();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		usuarioDAO = r.getUsuarios();
+		transacaoDAO = r.getTransacoes();
+		repositorios = r;
+	}
+
 	public void stop() throws IOException {
 		running = false;
+		if (nioEngine != null) {
+			nioEngine.stop();
+			nioEngine = null;
+		}
 		if (serverSocket != null) {
 			serverSocket.close();
 		}
 		if (serverThread != null) {
 			serverThread.interrupt();
 		}
+		if (requestExecutor != null) {
+			requestExecutor.shutdown();
+			requestExecutor = null;
+		}
+		if (cpuExecutor != null) {
+			cpuExecutor.shutdown();
+			cpuExecutor = null;
+		}
+		if (repositorios != null) {
+			usuarioDAO.parar();
+			transacaoDAO.parar();
+		}
+		LIMITES.parar();
+		TokenManager.pararRevogacoes();
+		TokenManager.salvarSnapshot();
+	}
+
+	/**
+	 * Métricas por operação (chamadas, falhas, rejeições, timeouts e tempos), uma por linha.
+	 */
+	public String estatisticasOperacoes() {
+		return OPERACOES.estatisticas();
+	}
+
+	/**
+	 * Decisões do limitador de taxa por operação e chave, uma por linha.
+	 */
+	public String estatisticasLimites() {
+		return LIMITES.estatisticas();
+	}
+
+	/**
+	 * Métricas do motor de armazenamento (group commit e locks das contas no
+	 * MySQL, diário no motor {@code diario}), ou {@code null} se ele não tiver
+	 * ou o servidor ainda não subiu.
+	 */
+	public String estatisticasArmazenamento() {
+		TransacaoRepository transacoes = transacaoDAO;
+		return transacoes == null ? null : transacoes.estatisticas();
 	}
 
 	private void handleClient(Socket socket) {
 		String remote = socket.getRemoteSocketAddress().toString();
 		System.out.println("Cliente conectado: " + remote);
 
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		try (InputStream in = socket.getInputStream();
 				PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
 
-			String inputLine;
-			while ((inputLine = in.readLine()) != null) {
-				try {
-					Validator.validateClient(inputLine);
-					JsonNode req = mapper.readTree(inputLine);
-					String operacao = req.path("operacao").asText("");
-
-					RespostaBase resp;
-					switch (operacao) {
-					case "usuario_criar":
-						resp = opUsuarioCriar(req);
-						break;
-					case "usuario_login":
-						resp = opUsuarioLogin(req);
-						break;
-					case "usuario_logout":
-						resp = opUsuarioLogout(req);
-						break;
-					case "usuario_ler":
-						resp = opUsuarioLer(req);
-						break;
-					case "transacao_criar":
-						resp = opTransacaoCriar(req);
-						break;
-					case "transacao_ler":
-						resp = opTransacaoLer(req);
-						break;
-					case "depositar":
-						resp = opDepositar(req);
-						break;
-					case "usuario_atualizar":
-						resp = opUsuarioAtualizar(req);
-						break;
-					default:
-						resp = new RespostaBase(operacao, false, "Operação desconhecida");
-					}
-					String jsonResp = mapper.writeValueAsString(resp);
-			        Validator.validateServer(jsonResp);
-
-			        out.println(jsonResp);
-					
-				} catch (Exception e) {
-					RespostaBase erro = new RespostaBase("erro", false, "Erro no processamento: " + e.getMessage());
-					out.println(mapper.writeValueAsString(erro));
-				}
+			LeitorLinhas leitor = new LeitorLinhas(in);
+			Requisicao req = new Requisicao();
+			req.origem = socket.getInetAddress().getHostAddress();
+			int tamanho;
+			while ((tamanho = leitor.proximaLinha()) >= 0) {
+				out.println(processar(leitor.getBuffer(), leitor.getInicio(), tamanho, req).join());
 			}
 		} catch (IOException e) {
 			System.out.println("Cliente desconectado: " + remote);
@@ -133,17 +325,181 @@ public class PixServer {
 		}
 	}
 
-	private static String validateToken(JsonNode req) {
-		String token = req.path("token").asText("");
-		return TokenManager.validateToken(token);
+	/**
+	 * Decodifica e valida a requisição (os bytes de uma linha do protocolo) no
+	 * thread chamador e a despacha pelo {@link OperationRegistry}: a operação vai
+	 * para o executor declarado no seu tratador, com a prioridade e o tempo limite
+	 * dele. É compartilhado pelos motores de rede. Se a fila do executor estiver
+	 * cheia a resposta de "servidor sobrecarregado" é devolvida imediatamente, e o
+	 * mesmo vale para o cliente que estourou o {@link LimitadorTaxa}.
+	 * <p>
+	 * {@code req} é preenchida aqui e copiada pelo worker antes da operação; o
+	 * chamador só pode reutilizá-la depois que o futuro terminar (mesmo por tempo
+	 * limite, ver {@link Requisicao#abandonar}).
+	 */
+	CompletableFuture<String> processar(byte[] buf, int off, int len, Requisicao req) {
+		try {
+			decodificador.decodificar(buf, off, len, req);
+		} catch (Exception e) {
+			return CompletableFuture.completedFuture(respostaErro("Erro no processamento: " + e.getMessage()));
+		}
+		RulesEnum regra = req.getOperacao();
+		OperationHandler tratador = OPERACOES.get(regra);
+		if (tratador == null) {
+			return CompletableFuture.completedFuture(
+					serializar(new RespostaBase(regra.getValue(), false, "Operação desconhecida")));
+		}
+
+		if (!dentroDoLimite(regra, req)) {
+			return CompletableFuture.completedFuture(serializar(
+					new RespostaBase(regra.getValue(), false, "Muitas requisições, tente novamente em instantes")));
+		}
+
+		RequestExecutor executor = tratador.getTipoExecutor() == OperationHandler.TipoExecutor.CPU
+				? cpuExecutor : requestExecutor;
+		long geracao = req.reservar();
+		CompletableFuture<String> resultado = executor == null ? null
+				: executor.submeter(tratador.getPrioridade(), () -> executarOperacao(tratador, req, geracao));
+		if (resultado == null) {
+			tratador.registrarRejeicao();
+			return CompletableFuture.completedFuture(serializar(
+					new RespostaBase(regra.getValue(), false, "Servidor sobrecarregado, tente novamente em instantes")));
+		}
+		if (tratador.getTimeoutMs() > 0) {
+			resultado = comTempoLimite(resultado, tratador, req, geracao);
+		}
+		return resultado.exceptionally(e -> respostaErro("Erro no processamento: " + e.getMessage()));
+	}
+
+	/**
+	 * Responde "tempo limite excedido" se a operação não terminar a tempo. Uma
+	 * consulta que já começou continua no worker e o resultado é descartado; uma
+	 * escrita que já começou pode ainda ser gravada, então o cliente espera o
+	 * resultado real dela (o tempo limite só a tira da fila).
+	 */
+	private static CompletableFuture<String> comTempoLimite(CompletableFuture<String> resultado,
+			OperationHandler tratador, Requisicao req, long geracao) {
+		return resultado.copy().orTimeout(tratador.getTimeoutMs(), TimeUnit.MILLISECONDS)
+				.handle((resposta, e) -> {
+					if (e == null) {
+						return CompletableFuture.completedFuture(resposta);
+					}
+					if (!(e instanceof TimeoutException || e.getCause() instanceof TimeoutException)) {
+						return CompletableFuture.<String>failedFuture(e);
+					}
+					if (!req.abandonar(geracao) && tratador.isEscrita()) {
+						return resultado;
+					}
+					tratador.registrarTimeout();
+					return CompletableFuture.completedFuture(serializar(new RespostaBase(
+							tratador.getOperacao().getValue(), false, "Tempo limite da operação excedido")));
+				})
+				.thenCompose(f -> f);
+	}
+
+	/**
+	 * Consulta o limitador por endereço e, se houver limite, pelo CPF: o do token
+	 * (validado só em memória) ou, sem token válido, o informado em login e
+	 * cadastro. Requisições sem nenhum CPF dividem um único balde, para um token
+	 * inválido não escapar do limite por CPF.
+	 */
+	private static boolean dentroDoLimite(RulesEnum regra, Requisicao req) {
+		if (!LIMITES.permitir(LimitadorTaxa.Chave.ENDERECO, regra, req.getOrigem())) {
+			return false;
+		}
+		if (!LIMITES.limita(LimitadorTaxa.Chave.CPF, regra)) {
+			return true;
+		}
+		String cpf = req.getToken() != null ? validateToken(req) : null;
+		if (cpf == null) {
+			cpf = req.getCpf() != null ? req.getCpf() : SEM_CPF;
+		}
+		return LIMITES.permitir(LimitadorTaxa.Chave.CPF, regra, cpf);
+	}
+
+	// Chave do balde compartilhado pelas requisições sem CPF identificável
+	private static final String SEM_CPF = "";
+
+	// Cópia da requisição usada pela operação no worker; a da conexão fica livre
+	private static final ThreadLocal<Requisicao> REQUISICAO_WORKER = ThreadLocal.withInitial(Requisicao::new);
+
+	private static String executarOperacao(OperationHandler tratador, Requisicao conexao, long geracao) {
+		Requisicao req = REQUISICAO_WORKER.get();
+		if (!conexao.assumir(geracao, req)) {
+			// Abandonada por tempo limite ainda na fila; o cliente já foi respondido
+			return null;
+		}
+		try {
+			RespostaBase resp = tratador.executar(req);
+			if (deveValidarResposta()) {
+				tratador.validarResposta(mapper.<JsonNode>valueToTree(resp));
+			}
+			return mapper.writeValueAsString(resp);
+
+		} catch (RejectedExecutionException e) {
+			// Pool de hash de senhas ou fila do group commit cheios
+			return serializar(new RespostaBase(req.getOperacao().getValue(), false,
+					"Servidor sobrecarregado, tente novamente em instantes"));
+		} catch (Exception e) {
+			return respostaErro("Erro no processamento: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Decide se a resposta atual passa pela validação do protocolo, conforme
+	 * {@code pix.validacao.resposta}: {@code sempre} (depuração), {@code amostragem}
+	 * (padrão, 1 a cada {@value #TAXA_AMOSTRAGEM_VALIDACAO}) ou {@code desligada}.
+	 */
+	private static boolean deveValidarResposta() {
+		switch (VALIDACAO_RESPOSTA) {
+		case "sempre":
+			return true;
+		case "desligada":
+			return false;
+		default:
+			return ThreadLocalRandom.current().nextInt(TAXA_AMOSTRAGEM_VALIDACAO) == 0;
+		}
+	}
+
+	private static String serializar(RespostaBase resp) {
+		try {
+			return mapper.writeValueAsString(resp);
+		} catch (IOException e) {
+			return respostaErro("Erro interno");
+		}
+	}
+
+	private static String respostaErro(String info) {
+		try {
+			return mapper.writeValueAsString(new RespostaBase("erro", false, info));
+		} catch (IOException e) {
+			return "{\"operacao\":\"erro\",\"status\":false,\"info\":\"Erro interno\"}";
+		}
+	}
+
+	/**
+	 * CPF dono do token da requisição, ou {@code null} se ele for inválido. O token
+	 * é validado uma vez só: o resultado do limitador, na conexão, vai junto com a
+	 * requisição para a operação.
+	 */
+	private static String validateToken(Requisicao req) {
+		if (!req.sessaoValidada) {
+			req.cpfSessao = TokenManager.validateToken(texto(req.getToken()));
+			req.sessaoValidada = true;
+		}
+		return req.cpfSessao;
+	}
+
+	private static String texto(String valor) {
+		return valor == null ? "" : valor;
 	}
 
 	// Operações
 
-	private static RespostaBase opUsuarioCriar(JsonNode req) {
-		String nome = req.path("nome").asText("").trim();
-		String cpf = req.path("cpf").asText("").trim();
-		String senha = req.path("senha").asText("").trim();
+	private static RespostaBase opUsuarioCriar(Requisicao req) {
+		String nome = texto(req.getNome()).trim();
+		String cpf = texto(req.getCpf()).trim();
+		String senha = texto(req.getSenha()).trim();
 
 		if (nome.isEmpty() || cpf.isEmpty() || senha.isEmpty()) {
 			return new RespostaBase("usuario_criar", false, "Nome, CPF e senha são obrigatórios");
@@ -157,45 +513,59 @@ public class PixServer {
 			return new RespostaBase("usuario_criar", false, "Senha deve ter entre 6 e 120 caracteres");
 		}
 
+		// O protocolo só exige o formato; no cadastro os dígitos verificadores também são conferidos
+		if (!Validator.isCpfValido(cpf)) {
+			return new RespostaBase("usuario_criar", false, "CPF inválido");
+		}
+
 		// Verificar se usuário já existe no banco
-		Usuario existente = usuarioDAO.buscarPorCpf(cpf);
+		PerfilUsuario existente = usuarioDAO.buscarPerfil(cpf);
 		if (existente != null) {
 			return new RespostaBase("usuario_criar", false, "Usuário já existente");
 		}
 
-		// Criar e salvar novo usuário
-		Usuario u = new Usuario(nome, cpf, senha);
+		// Criar e salvar novo usuário (a senha só é gravada como hash)
+		Usuario u = new Usuario(nome, cpf, senhas.gerarHash(senha));
 		usuarioDAO.salvar(u);
 		
 		return new RespostaBase("usuario_criar", true, "Usuário criado com sucesso");
 	}
 
-	private static RespostaBase opUsuarioLogin(JsonNode req) {
-		String cpf = req.path("cpf").asText("").trim();
-		String senha = req.path("senha").asText("").trim();
+	private static RespostaBase opUsuarioLogin(Requisicao req) {
+		String cpf = texto(req.getCpf()).trim();
+		String senha = texto(req.getSenha()).trim();
 
 		if (cpf.isEmpty() || senha.isEmpty()) {
 			return new RespostaBase("usuario_login", false, "CPF e senha são obrigatórios");
 		}
 
-		Usuario u = usuarioDAO.buscarPorCpf(cpf);
+		PerfilUsuario u = usuarioDAO.buscarPerfil(cpf);
 		if (u == null) {
 			return new RespostaBase("usuario_login", false, "Usuário inexistente");
 		}
 
-		if (!u.getSenha().equals(senha)) {
+		if (!senhas.verificar(senha, u.getSenha())) {
 			return new RespostaBase("usuario_login", false, "Senha inválida");
 		}
 
+		// Senha legada em texto puro (ou hash com custo antigo) é regravada sem atrasar o login
+		if (senhas.precisaRehash(u.getSenha())) {
+			String armazenada = u.getSenha();
+			senhas.rehashEmSegundoPlano(senha, hash -> usuarioDAO.trocarSenha(cpf, armazenada, hash));
+		}
+
 		String token = TokenManager.generateToken(cpf);
+		if (token == null) {
+			return new RespostaBase("usuario_login", false, "Limite de sessões atingido, tente novamente mais tarde");
+		}
 		RespostaBase r = new RespostaBase("usuario_login", true, "Login bem-sucedido");
 		r.setToken(token);
 		r.getDados().put("token", token);
 		return r;
 	}
 
-	private static RespostaBase opUsuarioLogout(JsonNode req) {
-		String token = req.path("token").asText("");
+	private static RespostaBase opUsuarioLogout(Requisicao req) {
+		String token = texto(req.getToken());
 
 		if (token.isEmpty()) {
 			return new RespostaBase("usuario_logout", false, "Token é obrigatório");
@@ -211,7 +581,7 @@ public class PixServer {
 		}
 	}
 
-	private static RespostaBase opUsuarioLer(JsonNode req) {
+	private static RespostaBase opUsuarioLer(Requisicao req) {
 		String cpf = validateToken(req);
 		if (cpf == null) {
 			return new RespostaBase("usuario_ler", false, "Token inválido ou expirado");
@@ -227,21 +597,24 @@ public class PixServer {
 		java.util.Map<String, Object> usuarioMap = new java.util.HashMap<>();
 		usuarioMap.put("nome", u.getNome());
 		usuarioMap.put("cpf", u.getCpf());
-		usuarioMap.put("saldo", u.getSaldo());
+		usuarioMap.put("saldo", Dinheiro.decimal(u.getSaldoCentavos()));
 		r.setUsuario(usuarioMap);
 		r.getDados().put("usuario", usuarioMap);
 		return r;
 
 	}
 
-	private static RespostaBase opTransacaoCriar(JsonNode req) {
+	private static RespostaBase opTransacaoCriar(Requisicao req) {
 		String cpf = validateToken(req);
 		if (cpf == null) {
 			return new RespostaBase("transacao_criar", false, "Token inválido ou expirado");
 		}
 
-		String cpfDestino = req.path("cpf_destino").asText("").trim();
-		double valor = req.path("valor").asDouble(0);
+		String cpfDestino = texto(req.getCpfDestino()).trim();
+		if (!req.isValorExato()) {
+			return new RespostaBase("transacao_criar", false, "Valor deve ter no máximo duas casas decimais");
+		}
+		long valor = req.getValorCentavos();
 
 		if (cpfDestino.isEmpty()) {
 			return new RespostaBase("transacao_criar", false, "CPF de destino é obrigatório");
@@ -255,125 +628,140 @@ public class PixServer {
 			return new RespostaBase("transacao_criar", false, "Não é possível transferir para si mesmo");
 		}
 
-		// Verificar se usuário de origem existe e tem saldo
-		Usuario origem = usuarioDAO.buscarPorCpf(cpf);
-		if (origem == null) {
-			return new RespostaBase("transacao_criar", false, "Usuário de origem não encontrado");
+		// Destino inexistente é recusado sem abrir transação no banco: o perfil vem
+		// do cache, e a falta dele entra no cache negativo, então as repetições
+		// para o mesmo CPF nem chegam ao banco
+		if (usuarioDAO.buscarPerfil(cpfDestino) == null) {
+			return new RespostaBase("transacao_criar", false, "Usuário de destino não encontrado");
 		}
 
-		if (origem.getSaldo() < valor) {
+		// Débito condicional, crédito e registro numa só transação do banco; o
+		// resultado diz se faltou saldo ou se o destino não existe
+		Transacao t = new Transacao(cpf, cpfDestino, valor);
+		switch (transacaoDAO.salvar(t)) {
+		case SUCESSO:
+			break;
+		case SALDO_INSUFICIENTE:
 			return new RespostaBase("transacao_criar", false, "Saldo insuficiente");
-		}
-
-		// Verificar se usuário de destino existe
-		Usuario destino = usuarioDAO.buscarPorCpf(cpfDestino);
-		if (destino == null) {
+		case DESTINO_INEXISTENTE:
 			return new RespostaBase("transacao_criar", false, "Usuário de destino não encontrado");
+		case INCERTO:
+			return new RespostaBase("transacao_criar", false,
+					"Não foi possível confirmar a transação; consulte o extrato antes de repetir");
+		default:
+			return new RespostaBase("transacao_criar", false, "Erro ao registrar a transação");
 		}
 
-		// Criar e salvar transação (o DAO já atualiza os saldos)
-		Transacao t = new Transacao(cpf, cpfDestino, valor);
-		transacaoDAO.salvar(t);
-
 		RespostaBase r = new RespostaBase("transacao_criar", true, "Transação realizada com sucesso");
 		r.getDados().put("id", t.getId());
-		r.getDados().put("valor", valor);
+		r.putValor("valor", valor);
 		r.getDados().put("data_hora", t.getCriadoEm().format(dtf));
 		return r;
 	}
 
-	private static RespostaBase opTransacaoLer(JsonNode req) {
+	private static RespostaBase opTransacaoLer(Requisicao req) {
 		String cpf = validateToken(req);
 		if (cpf == null) {
 			return new RespostaBase("transacao_ler", false, "Token inválido ou expirado");
 		}
 
-		// Buscar todas as transações do banco
-		List<Transacao> todasTransacoes = transacaoDAO.listarTodas();
+		// Período (ISO 8601 UTC) convertido para o fuso em que criado_em é gravado
+		java.time.LocalDateTime inicio = paraHoraLocal(req.getDataInicial());
+		java.time.LocalDateTime fim = paraHoraLocal(req.getDataFinal());
+		if (inicio.isAfter(fim)) {
+			return new RespostaBase("transacao_ler", false, "Data inicial deve ser anterior à data final");
+		}
+		String cursor = req.getCursor();
+		int limite = req.getLimite() > 0 ? req.getLimite() : LIMITE_PADRAO_EXTRATO;
+
+		PaginaTransacoes pagina = transacaoDAO.listarPorParticipante(cpf, inicio, fim, cursor, limite);
 		List<Map<String, Object>> transacoesUsuario = new ArrayList<>();
 
-		for (Transacao t : todasTransacoes) {
-			if (t.getCpfOrigem().equals(cpf) || t.getCpfDestino().equals(cpf)) {
-				Map<String, Object> transacao = new HashMap<>();
-				transacao.put("id", t.getId());
-				transacao.put("valor", t.getValor());
-				// criar objetos de usuario_enviador / usuario_recebedor (nome + cpf)
-				Usuario enviador = usuarioDAO.buscarPorCpf(t.getCpfOrigem());
-				Usuario recebedor = usuarioDAO.buscarPorCpf(t.getCpfDestino());
-				Map<String, Object> usuarioEnviador = new HashMap<>();
-				usuarioEnviador.put("nome", enviador != null ? enviador.getNome() : "");
-				usuarioEnviador.put("cpf", t.getCpfOrigem());
-				Map<String, Object> usuarioRecebedor = new HashMap<>();
-				usuarioRecebedor.put("nome", recebedor != null ? recebedor.getNome() : "");
-				usuarioRecebedor.put("cpf", t.getCpfDestino());
-				transacao.put("usuario_enviador", usuarioEnviador);
-				transacao.put("usuario_recebedor", usuarioRecebedor);
-				// datas em ISO8601 UTC
-				String criado = t.getCriadoEm().atZone(java.time.ZoneId.systemDefault())
-						.withZoneSameInstant(java.time.ZoneOffset.UTC).toLocalDateTime().toString() + "Z";
-				transacao.put("criado_em", criado);
-				transacao.put("atualizado_em", criado); // se não houver atualizado, repete criado
-				transacoesUsuario.add(transacao);
-			}
+		for (Transacao t : pagina.getTransacoes()) {
+			Map<String, Object> transacao = new HashMap<>();
+			transacao.put("id", t.getId());
+			transacao.put("valor", Dinheiro.decimal(t.getValorCentavos()));
+			// criar objetos de usuario_enviador / usuario_recebedor (nome + cpf);
+			// os nomes já vêm da consulta do extrato
+			Map<String, Object> usuarioEnviador = new HashMap<>();
+			usuarioEnviador.put("nome", t.getNomeOrigem() != null ? t.getNomeOrigem() : "");
+			usuarioEnviador.put("cpf", t.getCpfOrigem());
+			Map<String, Object> usuarioRecebedor = new HashMap<>();
+			usuarioRecebedor.put("nome", t.getNomeDestino() != null ? t.getNomeDestino() : "");
+			usuarioRecebedor.put("cpf", t.getCpfDestino());
+			transacao.put("usuario_enviador", usuarioEnviador);
+			transacao.put("usuario_recebedor", usuarioRecebedor);
+			// datas em ISO8601 UTC
+			transacao.put("criado_em", paraIsoUtc(t.getCriadoEm()));
+			transacao.put("atualizado_em", paraIsoUtc(t.getAtualizadoEm()));
+			transacoesUsuario.add(transacao);
 		}
 
 		RespostaBase r = new RespostaBase("transacao_ler", true, "Transações do usuário");
 		r.setTransacoes(transacoesUsuario);
-		r.getDados().put("transacoes", transacoesUsuario); 
+		r.getDados().put("transacoes", transacoesUsuario);
+		r.getDados().put("proximo_cursor", pagina.getProximoCursor());
 		return r;
 	}
 
-	private static RespostaBase opDepositar(JsonNode req) {
+	private static java.time.LocalDateTime paraHoraLocal(String isoUtc) {
+		return java.time.LocalDateTime.ofInstant(java.time.Instant.parse(isoUtc), java.time.ZoneId.systemDefault());
+	}
+
+	private static String paraIsoUtc(java.time.LocalDateTime horaLocal) {
+		return horaLocal.atZone(java.time.ZoneId.systemDefault()).withZoneSameInstant(java.time.ZoneOffset.UTC)
+				.toLocalDateTime().truncatedTo(java.time.temporal.ChronoUnit.SECONDS)
+				.format(dtf) + "Z";
+	}
+
+	private static RespostaBase opDepositar(Requisicao req) {
 		String cpf = validateToken(req);
 		if (cpf == null) {
 			return new RespostaBase("depositar", false, "Token inválido ou expirado");
 		}
 
-		double valor = req.path("valor_enviado").asDouble(0);
+		if (!req.isValorEnviadoExato()) {
+			return new RespostaBase("depositar", false, "Valor deve ter no máximo duas casas decimais");
+		}
+		long valor = req.getValorEnviadoCentavos();
 
 		if (valor <= 0) {
 			return new RespostaBase("depositar", false, "Valor deve ser positivo");
 		}
 
-		// Buscar usuário no banco
-		Usuario u = usuarioDAO.buscarPorCpf(cpf);
-		if (u == null) {
+		// Crédito atômico no banco (saldo = saldo + ?), sem ler e regravar o saldo
+		Long novoSaldo = usuarioDAO.creditar(cpf, valor);
+		if (novoSaldo == null) {
 			return new RespostaBase("depositar", false, "Usuário não encontrado");
 		}
 
-		// Atualizar saldo
-		u.addSaldo(valor);
-		usuarioDAO.atualizar(u);
-
 		RespostaBase r = new RespostaBase("depositar", true, "Depósito realizado com sucesso");
-		r.getDados().put("novo_saldo", u.getSaldo());
+		r.putValor("novo_saldo", novoSaldo);
 		return r;
 	}
 
-	private static RespostaBase opUsuarioAtualizar(JsonNode req) {
+	private static RespostaBase opUsuarioAtualizar(Requisicao req) {
 		// Valida token e obtém o CPF do usuário dono do token
 		String cpf = validateToken(req);
 		if (cpf == null) {
 			return new RespostaBase("usuario_atualizar", false, "Token inválido ou expirado");
 		}
 
-		// aceitar duas formas: { usuario: { nome, senha } } ou { nome, senha }
-		// diretamente
-		JsonNode usuarioNode = req.has("usuario") ? req.path("usuario") : req;
-
-		String novoNome = usuarioNode.path("nome").asText(null);
-		String novaSenha = usuarioNode.path("senha").asText(null);
+		// campos do objeto { usuario: { nome, senha } }
+		String novoNome = req.getUsuarioNome();
+		String novaSenha = req.getUsuarioSenha();
 
 		// Se nenhum campo para atualizar, retorna erro
 		if ((novoNome == null || novoNome.trim().isEmpty()) && (novaSenha == null || novaSenha.trim().isEmpty())) {
 			return new RespostaBase("usuario_atualizar", false, "Nenhum campo para atualizar");
 		}
 
-		// Buscar o usuário atual no banco
-		Usuario u = usuarioDAO.buscarPorCpf(cpf);
-		if (u == null) {
+		// Buscar o perfil atual (o saldo não é tocado pela atualização)
+		PerfilUsuario perfil = usuarioDAO.buscarPerfil(cpf);
+		if (perfil == null) {
 			return new RespostaBase("usuario_atualizar", false, "Usuário não encontrado");
 		}
+		Usuario u = new Usuario(perfil.getNome(), cpf, perfil.getSenha());
 
 		// Atualizar campos (preservar saldo e CPF)
 		if (novoNome != null && !novoNome.trim().isEmpty()) {
@@ -387,19 +775,25 @@ public class PixServer {
 			if (novaSenha.length() < 6 || novaSenha.length() > 120) {
 				return new RespostaBase("usuario_atualizar", false, "Senha deve ter entre 6 e 120 caracteres");
 			}
-			u.setSenha(novaSenha.trim());
+			u.setSenha(senhas.gerarHash(novaSenha.trim()));
 		}
 
 		// Persistir alteração no banco
 		usuarioDAO.atualizar(u);
 
+		// Senha nova derruba as outras sessões do usuário; a atual continua válida
+		if (novaSenha != null && !novaSenha.trim().isEmpty()) {
+			TokenManager.revogarSessoes(cpf, req.getToken());
+		}
+
 		// Responder sucesso
 		return new RespostaBase("usuario_atualizar", true, "Dados atualizados com sucesso");
 	}
 
 	public static void main(String[] args) {
 		try {
-			PixServer server = new PixServer(8080);
+			Modo modo = args.length > 0 ? Modo.valueOf(args[0].toUpperCase()) : Modo.BLOQUEANTE;
+			PixServer server = new PixServer(8080, modo);
 			server.start();
 
 			// Manter o servidor rodando
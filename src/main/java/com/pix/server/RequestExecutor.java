@@ -0,0 +1,229 @@
+package com.pix.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Executor limitado que fica entre os leitores de socket e as operações do
+ * servidor. Tem um número fixo de workers e uma fila de capacidade máxima
+ * ordenada por prioridade; quando a fila está cheia a requisição é recusada na
+ * hora, em vez de esperar e arrastar a latência de todos os clientes.
+ * <p>
+ * Na variante virtual ({@link #virtualFromSystemProperties}) não há workers: cada
+ * tarefa roda numa thread virtual nova, e um semáforo limita quantas rodam ao
+ * mesmo tempo; as demais esperam na mesma fila por prioridade.
+ */
+class RequestExecutor {
+    /** Prioridade mais alta (menor valor é executado primeiro). */
+    static final int PRIORIDADE_ALTA = 0;
+    static final int PRIORIDADE_NORMAL = 1;
+    static final int PRIORIDADE_BAIXA = 2;
+
+    // Exatamente um dos dois: workers de plataforma ou uma thread virtual por tarefa
+    private final ThreadPoolExecutor pool;
+    private final ThreadFactory virtuais;
+    private final PriorityBlockingQueue<Tarefa> filaVirtual;
+    private final Semaphore vagas;
+    private volatile boolean parado;
+    private final int capacidadeFila;
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private final AtomicLong sequencia = new AtomicLong();
+    private final LongAdder aceitas = new LongAdder();
+    private final LongAdder rejeitadas = new LongAdder();
+
+    RequestExecutor(int threads, int capacidadeFila) {
+        this("pix-worker-", threads, capacidadeFila);
+    }
+
+    RequestExecutor(String prefixoThreads, int threads, int capacidadeFila) {
+        this.capacidadeFila = capacidadeFila;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(Math.max(11, Math.min(capacidadeFila, 1024))),
+                r -> new Thread(r, prefixoThreads + seq.incrementAndGet()));
+        this.virtuais = null;
+        this.filaVirtual = null;
+        this.vagas = null;
+    }
+
+    private RequestExecutor(ThreadFactory virtuais, int limite, int capacidadeFila) {
+        this.capacidadeFila = capacidadeFila;
+        this.pool = null;
+        this.virtuais = virtuais;
+        this.filaVirtual = new PriorityBlockingQueue<>(Math.max(11, Math.min(capacidadeFila, 1024)));
+        this.vagas = new Semaphore(limite);
+    }
+
+    /**
+     * Cria o executor das operações de I/O (banco) a partir das propriedades de
+     * sistema {@code pix.executor.threads} e {@code pix.executor.fila}.
+     */
+    static RequestExecutor fromSystemProperties() {
+        int threads = Integer.getInteger("pix.executor.threads",
+                Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+        int fila = Integer.getInteger("pix.executor.fila", 1024);
+        return new RequestExecutor(threads, fila);
+    }
+
+    /**
+     * Cria o executor das operações de I/O do modo VIRTUAL: uma thread virtual por
+     * tarefa, no máximo {@code pix.executor.threads} ao mesmo tempo (o mesmo
+     * limite dos workers, que protege o pool de conexões do banco).
+     *
+     * @throws UnsupportedOperationException se a JVM não suportar threads virtuais.
+     */
+    static RequestExecutor virtualFromSystemProperties() {
+        int limite = Integer.getInteger("pix.executor.threads",
+                Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+        int fila = Integer.getInteger("pix.executor.fila", 1024);
+        return new RequestExecutor(VirtualThreads.fabrica("pix-worker-virtual-"), limite, fila);
+    }
+
+    /**
+     * Cria o executor das operações limitadas por CPU, com um thread por
+     * processador por padrão ({@code pix.executor.cpu.threads}, {@code pix.executor.cpu.fila}).
+     */
+    static RequestExecutor cpuFromSystemProperties() {
+        int threads = Integer.getInteger("pix.executor.cpu.threads", Runtime.getRuntime().availableProcessors());
+        int fila = Integer.getInteger("pix.executor.cpu.fila", 1024);
+        return new RequestExecutor("pix-cpu-", threads, fila);
+    }
+
+    /**
+     * Enfileira uma tarefa com a prioridade indicada.
+     *
+     * @return o futuro com o resultado, ou {@code null} se a fila estiver cheia.
+     */
+    <T> CompletableFuture<T> submeter(int prioridade, Supplier<T> tarefa) {
+        if (pendentes.incrementAndGet() > capacidadeFila) {
+            pendentes.decrementAndGet();
+            rejeitadas.increment();
+            return null;
+        }
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        Tarefa t = new Tarefa(prioridade, sequencia.getAndIncrement(), futuro, () -> {
+            pendentes.decrementAndGet();
+            try {
+                futuro.complete(tarefa.get());
+            } catch (Throwable e) {
+                futuro.completeExceptionally(e);
+            }
+        });
+        try {
+            if (pool != null) {
+                pool.execute(t);
+            } else {
+                if (parado) {
+                    throw new RejectedExecutionException("Servidor parado");
+                }
+                filaVirtual.add(t);
+                despachar();
+            }
+        } catch (RuntimeException e) {
+            pendentes.decrementAndGet();
+            rejeitadas.increment();
+            return null;
+        }
+        aceitas.increment();
+        return futuro;
+    }
+
+    /**
+     * Inicia threads virtuais para as tarefas da fila enquanto houver vagas. Chamado
+     * por quem enfileira e por cada tarefa que termina, então nenhuma fica parada
+     * na fila com vaga livre.
+     */
+    private void despachar() {
+        while (!parado && !filaVirtual.isEmpty() && vagas.tryAcquire()) {
+            Tarefa t = filaVirtual.poll();
+            if (t == null) {
+                vagas.release();
+                continue;
+            }
+            try {
+                virtuais.newThread(() -> {
+                    try {
+                        t.run();
+                    } finally {
+                        vagas.release();
+                        despachar();
+                    }
+                }).start();
+            } catch (RuntimeException | OutOfMemoryError e) {
+                vagas.release();
+                pendentes.decrementAndGet();
+                t.futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Para os workers; requisições ainda na fila terminam com exceção.
+     */
+    void shutdown() {
+        RejectedExecutionException parada = new RejectedExecutionException("Servidor parado");
+        if (pool != null) {
+            for (Runnable r : pool.shutdownNow()) {
+                ((Tarefa) r).futuro.completeExceptionally(parada);
+            }
+            return;
+        }
+        parado = true;
+        Tarefa t;
+        while ((t = filaVirtual.poll()) != null) {
+            t.futuro.completeExceptionally(parada);
+        }
+    }
+
+    /** Número de requisições aguardando um worker. */
+    int getPendentes() {
+        return pendentes.get();
+    }
+
+    long getAceitas() {
+        return aceitas.sum();
+    }
+
+    long getRejeitadas() {
+        return rejeitadas.sum();
+    }
+
+    /**
+     * Tarefa ordenada por prioridade e, dentro da mesma prioridade, por ordem de chegada.
+     */
+    private static final class Tarefa implements Runnable, Comparable<Tarefa> {
+        final int prioridade;
+        final long seq;
+        final CompletableFuture<?> futuro;
+        final Runnable corpo;
+
+        Tarefa(int prioridade, long seq, CompletableFuture<?> futuro, Runnable corpo) {
+            this.prioridade = prioridade;
+            this.seq = seq;
+            this.futuro = futuro;
+            this.corpo = corpo;
+        }
+
+        @Override
+        public void run() {
+            corpo.run();
+        }
+
+        @Override
+        public int compareTo(Tarefa o) {
+            if (prioridade != o.prioridade) {
+                return Integer.compare(prioridade, o.prioridade);
+            }
+            return Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.pix.server;
+
+import validador.RulesEnum;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requisição decodificada pelo {@link DecodificadorRequisicao}. É um objeto mutável
+ * e reutilizável: cada conexão mantém uma instância e a preenche de novo a cada
+ * requisição, que é processada uma de cada vez.
+ * <p>
+ * Os campos das operações se sobrepõem (token, cpf, nome, senha...), então uma
+ * única estrutura atende todas as operações de {@link RulesEnum}; o que cada
+ * operação exige fica nas máscaras de campos do decodificador.
+ */
+public final class Requisicao {
+    // Identificadores dos campos, usados como bits nas máscaras
+    static final int OPERACAO = 0;
+    static final int TOKEN = 1;
+    static final int NOME = 2;
+    static final int CPF = 3;
+    static final int SENHA = 4;
+    static final int CPF_DESTINO = 5;
+    static final int VALOR = 6;
+    static final int VALOR_ENVIADO = 7;
+    static final int DATA_INICIAL = 8;
+    static final int DATA_FINAL = 9;
+    static final int CURSOR = 10;
+    static final int LIMITE = 11;
+    static final int USUARIO = 12;
+    static final int USUARIO_NOME = 13;
+    static final int USUARIO_SENHA = 14;
+    static final int NUM_CAMPOS = 15;
+
+    RulesEnum operacao;
+    String token;
+    String nome;
+    String cpf;
+    String senha;
+    String cpfDestino;
+    long valorCentavos;
+    boolean valorExato;
+    long valorEnviadoCentavos;
+    boolean valorEnviadoExato;
+    String dataInicial;
+    String dataFinal;
+    String cursor;
+    int limite;
+    String usuarioNome;
+    String usuarioSenha;
+
+    // Endereço IP do cliente, definido pelo motor de rede ao abrir a conexão e
+    // mantido entre requisições (usado pelo limitador de taxa)
+    String origem;
+
+    // CPF dono do token, validado uma vez por requisição (PixServer.validateToken);
+    // null se o token é inválido ou ainda não foi validado
+    String cpfSessao;
+    boolean sessaoValidada;
+
+    // Campos presentes (não nulos) e campos com valor fora do protocolo
+    int presentes;
+    int invalidos;
+    // Mensagem do primeiro erro de cada campo inválido (só preenchida em caso de erro)
+    final String[] erros = new String[NUM_CAMPOS];
+
+    // Posse da requisição entre a conexão e o worker: (geração << 2) | estado.
+    // Se a operação estourar o tempo limite, a conexão segue para a próxima
+    // requisição; o worker só lê esta instância depois de assumi-la pela geração.
+    private static final long PENDENTE = 1;
+    private static final long COPIANDO = 2;
+    private static final long ABANDONADA = 3;
+    private final AtomicLong posse = new AtomicLong();
+
+    /**
+     * Marca a requisição decodificada como pendente de execução.
+     *
+     * @return a geração a ser passada ao worker.
+     */
+    long reservar() {
+        long geracao = (posse.get() >>> 2) + 1;
+        posse.set(geracao << 2 | PENDENTE);
+        return geracao;
+    }
+
+    /**
+     * Chamado pelo worker: copia a requisição para {@code destino} e a devolve à
+     * conexão. Falso se ela já foi abandonada por tempo limite.
+     */
+    boolean assumir(long geracao, Requisicao destino) {
+        if (!posse.compareAndSet(geracao << 2 | PENDENTE, geracao << 2 | COPIANDO)) {
+            return false;
+        }
+        copiarPara(destino);
+        posse.set(geracao << 2);
+        return true;
+    }
+
+    /**
+     * Chamado no tempo limite: impede que um worker ainda não iniciado execute a
+     * requisição e espera uma cópia em andamento terminar, para a conexão poder
+     * reutilizar esta instância.
+     *
+     * @return verdadeiro se a requisição não vai mais ser executada; falso se um
+     *         worker já a assumiu e a operação pode estar em andamento.
+     */
+    boolean abandonar(long geracao) {
+        if (posse.compareAndSet(geracao << 2 | PENDENTE, geracao << 2 | ABANDONADA)) {
+            return true;
+        }
+        while (posse.get() == (geracao << 2 | COPIANDO)) {
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+
+    private void copiarPara(Requisicao d) {
+        d.origem = origem;
+        d.operacao = operacao;
+        d.token = token;
+        d.nome = nome;
+        d.cpf = cpf;
+        d.senha = senha;
+        d.cpfDestino = cpfDestino;
+        d.valorCentavos = valorCentavos;
+        d.valorExato = valorExato;
+        d.valorEnviadoCentavos = valorEnviadoCentavos;
+        d.valorEnviadoExato = valorEnviadoExato;
+        d.dataInicial = dataInicial;
+        d.dataFinal = dataFinal;
+        d.cursor = cursor;
+        d.limite = limite;
+        d.usuarioNome = usuarioNome;
+        d.usuarioSenha = usuarioSenha;
+        d.cpfSessao = cpfSessao;
+        d.sessaoValidada = sessaoValidada;
+        d.presentes = presentes;
+        d.invalidos = invalidos;
+    }
+
+    void limpar() {
+        operacao = null;
+        token = nome = cpf = senha = cpfDestino = null;
+        valorCentavos = valorEnviadoCentavos = 0;
+        valorExato = valorEnviadoExato = false;
+        dataInicial = dataFinal = cursor = null;
+        limite = 0;
+        usuarioNome = usuarioSenha = null;
+        cpfSessao = null;
+        sessaoValidada = false;
+        presentes = invalidos = 0;
+    }
+
+    boolean tem(int campo) {
+        return (presentes & (1 << campo)) != 0;
+    }
+
+    public RulesEnum getOperacao() { return operacao; }
+    /** Endereço IP do cliente que enviou a requisição. */
+    public String getOrigem() { return origem; }
+    public String getToken() { return token; }
+    public String getNome() { return nome; }
+    public String getCpf() { return cpf; }
+    public String getSenha() { return senha; }
+    public String getCpfDestino() { return cpfDestino; }
+
+    /** Valor de transacao_criar em centavos; só é válido se {@link #isValorExato()}. */
+    public long getValorCentavos() { return valorCentavos; }
+    /** Falso se o valor tinha mais de duas casas decimais ou não cabia em centavos. */
+    public boolean isValorExato() { return valorExato; }
+    public long getValorEnviadoCentavos() { return valorEnviadoCentavos; }
+    public boolean isValorEnviadoExato() { return valorEnviadoExato; }
+
+    public String getDataInicial() { return dataInicial; }
+    public String getDataFinal() { return dataFinal; }
+    /** Cursor de paginação do extrato, ou {@code null}. */
+    public String getCursor() { return cursor; }
+    /** Limite de itens do extrato, ou 0 se não informado. */
+    public int getLimite() { return tem(LIMITE) ? limite : 0; }
+    /** Campo 'nome' do objeto 'usuario' (usuario_atualizar). */
+    public String getUsuarioNome() { return usuarioNome; }
+    /** Campo 'senha' do objeto 'usuario' (usuario_atualizar). */
+    public String getUsuarioSenha() { return usuarioSenha; }
+}
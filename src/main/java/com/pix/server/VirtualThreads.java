@@ -0,0 +1,43 @@
+package com.pix.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Acesso às threads virtuais (Java 21) sem exigir Java 21 para compilar o projeto.
+ * No build padrão (Java 11) a API é resolvida por reflexão; com o perfil
+ * {@code java21} ela estará sempre disponível.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    /**
+     * Indica se a JVM em execução suporta threads virtuais.
+     */
+    static boolean disponivel() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cria uma fábrica de threads virtuais nomeadas {@code prefixo + n}.
+     *
+     * @throws UnsupportedOperationException se a JVM não suportar threads virtuais.
+     */
+    static ThreadFactory fabrica(String prefixo) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefixo, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Threads virtuais exigem Java 21 ou superior.", e);
+        }
+    }
+}
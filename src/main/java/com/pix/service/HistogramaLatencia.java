@@ -0,0 +1,53 @@
+package com.pix.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências com faixas em potências de 2 de microssegundos
+ * (até ~1 min). Registrar é um incremento atômico, sem alocação nem trava; os
+ * percentis são aproximados pelo limite superior da faixa.
+ */
+public final class HistogramaLatencia {
+    private static final int FAIXAS = 27;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+
+    public void registrar(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int faixa = Math.min(FAIXAS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        contagens.incrementAndGet(faixa);
+    }
+
+    public long getTotal() {
+        long n = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            n += contagens.get(i);
+        }
+        return n;
+    }
+
+    /**
+     * Latência abaixo da qual estão {@code percentil}% das amostras, em ms.
+     */
+    public double percentilMs(double percentil) {
+        long total = getTotal();
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return (2L << i) / 1000.0;
+            }
+        }
+        return (2L << (FAIXAS - 1)) / 1000.0;
+    }
+
+    /** {@code p50=..ms, p99=..ms}, para as estatísticas. */
+    public String resumo() {
+        return String.format("p50=%.3fms, p99=%.3fms, p999=%.3fms", percentilMs(50), percentilMs(99),
+                percentilMs(99.9));
+    }
+}
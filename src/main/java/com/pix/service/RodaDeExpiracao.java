@@ -0,0 +1,76 @@
+package com.pix.service;
+
+import com.pix.model.Sessao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Roda de temporização com hash ("hashed timing wheel") para expirar sessões.
+ * Cada sessão fica no balde do tick em que vence (módulo o número de baldes); a
+ * cada tick o thread de limpeza visita só o balde da vez e remove o que já
+ * venceu. Sessões com prazo mais longo que uma volta da roda continuam no balde
+ * e são revistas na volta seguinte. Agendar e cancelar são O(1).
+ */
+final class RodaDeExpiracao {
+    private final long inicio = System.nanoTime();
+    private final long tickNanos;
+    private final List<Set<Sessao>> baldes;
+    private final int mascara;
+    // Próximo tick a processar; só o thread de limpeza escreve
+    private long proximoTick;
+
+    /**
+     * @param tickNanos duração de um tick.
+     * @param numBaldes número de baldes (arredondado para potência de 2).
+     */
+    RodaDeExpiracao(long tickNanos, int numBaldes) {
+        int n = Integer.highestOneBit(Math.max(2, numBaldes - 1)) << 1;
+        this.tickNanos = tickNanos;
+        this.mascara = n - 1;
+        this.baldes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            baldes.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    void agendar(Sessao s) {
+        balde(s).add(s);
+    }
+
+    void cancelar(Sessao s) {
+        balde(s).remove(s);
+    }
+
+    // O balde depende só do prazo, então cancelar não precisa guardar onde a sessão está
+    private Set<Sessao> balde(Sessao s) {
+        long tick = Math.floorDiv(s.getExpiraEm() - inicio + tickNanos - 1, tickNanos);
+        return baldes.get((int) (tick & mascara));
+    }
+
+    /**
+     * Processa os ticks até {@code agora}, entregando as sessões vencidas a
+     * {@code expirar}. Chamado apenas pelo thread de limpeza.
+     */
+    void avancar(long agora, Consumer<Sessao> expirar) {
+        long ate = Math.floorDiv(agora - inicio, tickNanos);
+        // Atrasos maiores que uma volta: basta visitar cada balde uma vez
+        if (ate - proximoTick > mascara) {
+            proximoTick = ate - mascara;
+        }
+        for (; proximoTick <= ate; proximoTick++) {
+            Iterator<Sessao> it = baldes.get((int) (proximoTick & mascara)).iterator();
+            while (it.hasNext()) {
+                Sessao s = it.next();
+                if (s.expirada(agora)) {
+                    it.remove();
+                    expirar.accept(s);
+                }
+            }
+        }
+    }
+}
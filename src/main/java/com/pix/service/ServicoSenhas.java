@@ -0,0 +1,200 @@
+package com.pix.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hash de senhas com PBKDF2-HMAC-SHA256. O trabalho (caro de propósito) roda num
+ * pool próprio e limitado, com um thread por processador por padrão, para não
+ * ocupar os workers das outras operações nem deixar logins simultâneos
+ * saturarem a CPU; com a fila cheia a chamada é recusada na hora.
+ * <p>
+ * Formato armazenado: {@code pbkdf2-sha256$<iterações>$<sal-base64>$<hash-base64>}.
+ * Valores fora desse formato são senhas legadas em texto puro, ainda aceitas no
+ * login e trocadas pelo hash ({@link #precisaRehash}).
+ * <p>
+ * Configuração: {@code pix.senha.iteracoes} (padrão 210.000), {@code pix.senha.threads}
+ * e {@code pix.senha.fila} (padrão 256).
+ */
+public class ServicoSenhas {
+    private static final String PREFIXO = "pbkdf2-sha256$";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int TAM_SAL = 16;
+    private static final int TAM_HASH_BITS = 256;
+
+    private final int iteracoes;
+    private final ThreadPoolExecutor pool;
+    private final SecureRandom aleatorio = new SecureRandom();
+
+    private final HistogramaLatencia espera = new HistogramaLatencia();
+    private final HistogramaLatencia calculo = new HistogramaLatencia();
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder verificacoes = new LongAdder();
+    private final LongAdder rehashes = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+
+    public ServicoSenhas(int iteracoes, int threads, int capacidadeFila) {
+        this.iteracoes = iteracoes;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), r -> {
+                    Thread t = new Thread(r, "pix-senha-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    private static final class Holder {
+        static final ServicoSenhas INSTANCE = new ServicoSenhas(
+                Integer.getInteger("pix.senha.iteracoes", 210_000),
+                Integer.getInteger("pix.senha.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("pix.senha.fila", 256));
+    }
+
+    public static ServicoSenhas getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Gera o hash de uma senha nova no pool de hash, esperando o resultado.
+     *
+     * @throws RejectedExecutionException se o pool estiver sobrecarregado.
+     */
+    public String gerarHash(String senha) {
+        String h = executar(() -> calcularHash(senha, novoSal(), iteracoes));
+        hashes.increment();
+        return h;
+    }
+
+    /**
+     * Confere a senha informada com o valor armazenado (hash ou texto puro legado).
+     *
+     * @throws RejectedExecutionException se o pool estiver sobrecarregado.
+     */
+    public boolean verificar(String senha, String armazenado) {
+        verificacoes.increment();
+        if (!armazenado.startsWith(PREFIXO)) {
+            // Legado em texto puro: não custa nada, não precisa ir para o pool
+            return MessageDigest.isEqual(senha.getBytes(StandardCharsets.UTF_8),
+                    armazenado.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] partes = armazenado.split("\\$");
+        if (partes.length != 4) {
+            return false;
+        }
+        int iter;
+        byte[] sal;
+        try {
+            iter = Integer.parseInt(partes[1]);
+            sal = Base64.getDecoder().decode(partes[2]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        String calculado = executar(() -> calcularHash(senha, sal, iter));
+        return MessageDigest.isEqual(calculado.getBytes(StandardCharsets.US_ASCII),
+                armazenado.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Indica se o valor armazenado deve ser regravado: texto puro legado ou hash
+     * com menos iterações que as configuradas.
+     */
+    public boolean precisaRehash(String armazenado) {
+        if (!armazenado.startsWith(PREFIXO)) {
+            return true;
+        }
+        int fim = armazenado.indexOf('$', PREFIXO.length());
+        try {
+            return fim < 0 || Integer.parseInt(armazenado.substring(PREFIXO.length(), fim)) < iteracoes;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Gera o hash em segundo plano e o entrega a {@code gravar}, sem esperar. Usado
+     * para trocar o valor armazenado depois de um login bem-sucedido.
+     */
+    public void rehashEmSegundoPlano(String senha, Consumer<String> gravar) {
+        try {
+            pool.execute(() -> {
+                gravar.accept(calcularHash(senha, novoSal(), iteracoes));
+                rehashes.increment();
+            });
+        } catch (RejectedExecutionException e) {
+            // Fica para o próximo login
+            recusadas.increment();
+        }
+    }
+
+    private String executar(Callable<String> tarefa) {
+        long enfileirado = System.nanoTime();
+        Future<String> f;
+        try {
+            f = pool.submit(() -> {
+                espera.registrar(System.nanoTime() - enfileirado);
+                return tarefa.call();
+            });
+        } catch (RejectedExecutionException e) {
+            recusadas.increment();
+            throw e;
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            f.cancel(true);
+            throw new IllegalStateException("Interrompido aguardando o hash da senha", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao calcular o hash da senha", e.getCause());
+        }
+    }
+
+    private byte[] novoSal() {
+        byte[] sal = new byte[TAM_SAL];
+        aleatorio.nextBytes(sal);
+        return sal;
+    }
+
+    private String calcularHash(String senha, byte[] sal, int iter) {
+        long inicio = System.nanoTime();
+        PBEKeySpec spec = new PBEKeySpec(senha.toCharArray(), sal, iter, TAM_HASH_BITS);
+        try {
+            byte[] hash = SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+            Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+            return PREFIXO + iter + '$' + b64.encodeToString(sal) + '$' + b64.encodeToString(hash);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 indisponível", e);
+        } finally {
+            spec.clearPassword();
+            calculo.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    public int getIteracoes() {
+        return iteracoes;
+    }
+
+    public String estatisticas() {
+        return String.format("senhas[iteracoes=%d, threads=%d, fila=%d, hashes=%d, verificacoes=%d, rehashes=%d, "
+                + "recusadas=%d, espera(%s), calculo(%s)]",
+                iteracoes, pool.getMaximumPoolSize(), pool.getQueue().size(), hashes.sum(), verificacoes.sum(),
+                rehashes.sum(), recusadas.sum(), espera.resumo(), calculo.resumo());
+    }
+}
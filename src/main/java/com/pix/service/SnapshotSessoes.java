@@ -0,0 +1,185 @@
+package com.pix.service;
+
+import com.pix.model.Sessao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo binário com as sessões vivas, montado e lido inteiro num buffer.
+ * <pre>
+ *   cabeçalho: magic (int) | versão (int) | gravadoEm epoch-ms (long) | nº de registros (int) | crc32 (long)
+ *   registro:  tam. hash (short) | hash do token UTF-8 | tam. cpf (short) | cpf UTF-8 | expiraEm epoch-ms (long)
+ * </pre>
+ * Os registros são autodelimitados, então novos podem ser acrescentados no fim.
+ * Só o hash de cada token é gravado (com snapshot, é a chave das sessões no {@link TokenManager}),
+ * então o arquivo não permite se passar por ninguém; mesmo assim ele é criado só
+ * com permissão do dono. O prazo é gravado em relógio de parede, já que o
+ * {@link System#nanoTime()} não sobrevive ao processo. A gravação vai para um
+ * arquivo temporário que depois substitui o anterior, para um snapshot pela
+ * metade nunca ser lido.
+ */
+final class SnapshotSessoes {
+    private static final int MAGIC = 0x50585353; // "PXSS"
+    private static final int VERSAO = 2; // 1 guardava o próprio token
+    private static final int TAM_CABECALHO = 4 + 4 + 8 + 4 + 8;
+
+    private SnapshotSessoes() {}
+
+    /**
+     * Grava as sessões ainda válidas.
+     *
+     * @return quantas sessões foram gravadas.
+     */
+    static int gravar(Path arquivo, Collection<Sessao> sessoes) throws IOException {
+        long agoraNanos = System.nanoTime();
+        long agoraMs = System.currentTimeMillis();
+
+        List<byte[]> textos = new ArrayList<>(sessoes.size() * 2);
+        List<Long> prazos = new ArrayList<>(sessoes.size());
+        long tamanho = TAM_CABECALHO;
+        for (Sessao s : sessoes) {
+            if (s.expirada(agoraNanos)) {
+                continue;
+            }
+            byte[] token = s.getToken().getBytes(StandardCharsets.UTF_8); // já é o hash
+            byte[] cpf = s.getCpf().getBytes(StandardCharsets.UTF_8);
+            textos.add(token);
+            textos.add(cpf);
+            prazos.add(agoraMs + TimeUnit.NANOSECONDS.toMillis(s.getExpiraEm() - agoraNanos));
+            tamanho += 2 + token.length + 2 + cpf.length + 8;
+        }
+        int n = prazos.size();
+
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IOException("Sessões demais para um snapshot: " + n);
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) tamanho);
+        buf.position(TAM_CABECALHO);
+        for (int i = 0; i < n; i++) {
+            byte[] token = textos.get(2 * i);
+            byte[] cpf = textos.get(2 * i + 1);
+            buf.putShort((short) token.length).put(token);
+            buf.putShort((short) cpf.length).put(cpf);
+            buf.putLong(prazos.get(i));
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer registros = buf.duplicate();
+        registros.position(TAM_CABECALHO).limit((int) tamanho);
+        crc.update(registros);
+        buf.putInt(0, MAGIC).putInt(4, VERSAO).putLong(8, agoraMs).putInt(16, n).putLong(20, crc.getValue());
+        buf.flip();
+
+        // Criado de novo a cada gravação, para as permissões valerem mesmo se um
+        // temporário antigo tiver sobrado com outras
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        Files.deleteIfExists(temporario);
+        try (FileChannel canal = FileChannel.open(temporario,
+                EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), somenteDono())) {
+            while (buf.hasRemaining()) {
+                canal.write(buf);
+            }
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return n;
+    }
+
+    // rw------- onde o sistema de arquivos tem permissões POSIX
+    private static FileAttribute<?>[] somenteDono() {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[] {
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+    }
+
+    /**
+     * Lê o snapshot e entrega cada sessão ainda válida, com o prazo convertido de
+     * volta para {@link System#nanoTime()}. Os registros são decodificados em
+     * paralelo; {@code destino} deve ser thread-safe.
+     *
+     * @return quantas sessões foram entregues, ou -1 se o arquivo não existe.
+     * @throws IOException se o arquivo estiver corrompido ou for de outra versão.
+     */
+    static int ler(Path arquivo, Consumer<Sessao> destino) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return -1;
+        }
+        ByteBuffer buf;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (canal.size() < TAM_CABECALHO || canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot de sessões com tamanho inválido: " + canal.size());
+            }
+            buf = ByteBuffer.allocate((int) canal.size());
+            while (buf.hasRemaining()) {
+                if (canal.read(buf) < 0) {
+                    throw new IOException("Snapshot de sessões truncado durante a leitura.");
+                }
+            }
+            buf.flip();
+        }
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSAO) {
+            throw new IOException("Snapshot de sessões em formato desconhecido.");
+        }
+        int n = buf.getInt(16);
+        CRC32 crc = new CRC32();
+        ByteBuffer registros = buf.duplicate();
+        registros.position(TAM_CABECALHO);
+        crc.update(registros);
+        if (crc.getValue() != buf.getLong(20)) {
+            throw new IOException("Snapshot de sessões corrompido (CRC).");
+        }
+
+        // Varredura sequencial só dos tamanhos; a decodificação é paralela
+        int[] inicios = new int[n];
+        int pos = TAM_CABECALHO;
+        for (int i = 0; i < n; i++) {
+            inicios[i] = pos;
+            pos += 2 + buf.getShort(pos);
+            pos += 2 + buf.getShort(pos) + 8;
+        }
+
+        long agoraNanos = System.nanoTime();
+        long agoraMs = System.currentTimeMillis();
+        ByteBuffer origem = buf;
+        return (int) IntStream.of(inicios).parallel().filter(inicio -> {
+            int p = inicio;
+            int tamHash = origem.getShort(p);
+            String hash = texto(origem, p + 2, tamHash);
+            p += 2 + tamHash;
+            int tamCpf = origem.getShort(p);
+            String cpf = texto(origem, p + 2, tamCpf);
+            p += 2 + tamCpf;
+            long restanteMs = origem.getLong(p) - agoraMs;
+            if (restanteMs <= 0) {
+                return false;
+            }
+            destino.accept(new Sessao(hash, cpf, agoraNanos + TimeUnit.MILLISECONDS.toNanos(restanteMs)));
+            return true;
+        }).count();
+    }
+
+    private static String texto(ByteBuffer buf, int pos, int tam) {
+        byte[] b = new byte[tam];
+        buf.duplicate().position(pos).get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
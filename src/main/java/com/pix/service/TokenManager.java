@@ -1,37 +1,168 @@
 package com.pix.service;
 
+import com.pix.dao.RevogacaoRepository;
+import com.pix.model.RevogacaoToken;
+import com.pix.model.Sessao;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Sessões (tokens) dos usuários logados. O mapa é indexado pelo hash SHA-256 do
+ * token, que nunca é guardado; validar um token é calcular o hash, uma busca no
+ * mapa e uma comparação do prazo monotônico; a remoção das sessões vencidas é feita por
+ * um thread de fundo com uma {@link RodaDeExpiracao}, então tokens abandonados
+ * não ficam acumulando memória.
+ * <p>
+ * O número de sessões vivas é limitado ({@code pix.sessoes.max}); acima disso o
+ * login é recusado. Validade em {@code pix.token.validadeMs} (padrão 24 h).
+ * <p>
+ * Cada CPF tem um índice das suas sessões vivas, com trava própria (logins de
+ * CPFs diferentes não disputam nada). Um CPF tem no máximo
+ * {@code pix.sessoes.porUsuario} sessões (padrão 5): um login além disso encerra
+ * a mais antiga. {@link #revogarSessoes} encerra todas de uma vez (troca de senha).
+ * <p>
+ * Com {@code pix.token.modo=hmac} os tokens passam a ser autocontidos e assinados
+ * ({@link TokensAssinados}): qualquer servidor com as mesmas chaves os valida sem
+ * consultar o mapa, e eles sobrevivem a reinícios. O logout então grava o hash do
+ * token numa lista de revogação, que esquece cada token quando ele venceria, e a
+ * revogação por CPF invalida os tokens emitidos antes dela. Com um
+ * {@link RevogacaoRepository} ({@link #usarRevogacoes}) as revogações são gravadas
+ * nele e as das outras instâncias são lidas a cada segundo; sem ele, valem só
+ * neste processo. O limite por usuário não se aplica a esse modo, que não guarda
+ * as sessões.
+ * <p>
+ * No modo em memória, se {@code pix.sessoes.snapshot} indicar um arquivo, as
+ * sessões são gravadas periodicamente nele ({@link SnapshotSessoes}) e
+ * recarregadas na subida, então um reinício do servidor não desloga ninguém.
+ * Nesse caso o mapa de sessões é indexado pelo hash do token, como no arquivo;
+ * sem snapshot, pelo próprio token.
+ */
 public class TokenManager {
-    private static final ConcurrentHashMap<String, TokenInfo> tokens = new ConcurrentHashMap<>();
-    private static final long TOKEN_EXPIRY_HOURS = 24; // Token expira em 24 horas
-    
-    private static class TokenInfo {
-        String cpf;
-        LocalDateTime criadoEm;
-        
-        TokenInfo(String cpf) {
-            this.cpf = cpf;
-            this.criadoEm = LocalDateTime.now();
-        }
-        
-        boolean isExpired() {
-            return ChronoUnit.HOURS.between(criadoEm, LocalDateTime.now()) > TOKEN_EXPIRY_HOURS;
+    private static final ConcurrentHashMap<String, Sessao> tokens = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, SessoesDoUsuario> porCpf = new ConcurrentHashMap<>();
+    private static final long VALIDADE_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("pix.token.validadeMs", TimeUnit.HOURS.toMillis(24))); // Token expira em 24 horas
+    private static final int MAX_SESSOES = Integer.getInteger("pix.sessoes.max", 1_000_000);
+    private static final int MAX_SESSOES_POR_USUARIO = Math.max(1, Integer.getInteger("pix.sessoes.porUsuario", 5));
+    private static final long TICK_MS = 1000;
+    // null no modo padrão (sessões em memória)
+    private static final TokensAssinados assinados =
+            "hmac".equalsIgnoreCase(System.getProperty("pix.token.modo", "memoria"))
+                    ? TokensAssinados.fromSystemProperties() : null;
+    // Arquivo do snapshot de sessões (pix.sessoes.snapshot), ou null sem snapshot
+    private static final Path ARQUIVO_SNAPSHOT = arquivoSnapshot();
+    // Com snapshot, as sessões são guardadas pelo hash do token, que é o que vai
+    // para o arquivo; sem ele (o padrão), pelo próprio token, e validar não calcula hash
+    private static final boolean CHAVE_HASH = ARQUIVO_SNAPSHOT != null && assinados == null;
+    // Hash dos tokens assinados revogados por logout, até o prazo em que venceriam
+    private static final ConcurrentHashMap<String, Sessao> revogados = new ConcurrentHashMap<>();
+    // Tokens assinados de cada CPF emitidos até este instante (ms) foram revogados
+    private static final ConcurrentHashMap<String, RevogacaoPorCpf> revogacoesPorCpf = new ConcurrentHashMap<>();
+
+    private static final RodaDeExpiracao roda = new RodaDeExpiracao(TimeUnit.MILLISECONDS.toNanos(TICK_MS), 4096);
+    private static final AtomicInteger ativas = new AtomicInteger();
+
+    private static final LongAdder criadas = new LongAdder();
+    private static final LongAdder expiradas = new LongAdder();
+    private static final LongAdder encerradas = new LongAdder();
+    private static final LongAdder recusadas = new LongAdder();
+    private static final LongAdder despejadas = new LongAdder();
+    private static final LongAdder revogadasEmLote = new LongAdder();
+    private static final LongAdder assinaturasInvalidas = new LongAdder();
+
+    private static final ScheduledExecutorService limpeza = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pix-expiracao-tokens");
+        t.setDaemon(true);
+        return t;
+    });
+    private static ScheduledFuture<?> snapshots;
+    // Registro compartilhado das revogações; null = só neste processo
+    private static volatile RevogacaoRepository registro;
+    private static ScheduledFuture<?> sincronizacao;
+    // Só o thread de limpeza (e usarRevogacoes, antes de agendá-lo) escreve
+    private static long ultimaRevogacaoLida;
+    private static long ultimaLimpezaRevogacoesMs;
+    private static final int SOBREPOSICAO_REVOGACOES = 1000;
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
+    });
+    static {
+        limpeza.scheduleWithFixedDelay(TokenManager::cleanupExpiredTokens, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
     }
-    
+
     /**
      * Gera um novo token para o usuário
+     *
+     * @return o token, ou {@code null} se o limite de sessões foi atingido.
      */
     public static String generateToken(String cpf) {
+        if (assinados != null) {
+            criadas.increment();
+            return assinados.emitir(cpf, System.currentTimeMillis(),
+                    (System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(VALIDADE_NANOS)) / 1000);
+        }
         String token = UUID.randomUUID().toString();
-        tokens.put(token, new TokenInfo(cpf));
+        if (!registrar(new Sessao(chave(token), cpf, System.nanoTime() + VALIDADE_NANOS))) {
+            recusadas.increment();
+            return null;
+        }
+        criadas.increment();
         return token;
     }
-    
+
+    /**
+     * Inclui a sessão no mapa, no índice do CPF e na roda, despejando a mais
+     * antiga do CPF se ele passou do limite.
+     *
+     * @return {@code false} se o limite global de sessões foi atingido.
+     */
+    private static boolean registrar(Sessao s) {
+        if (ativas.incrementAndGet() > MAX_SESSOES) {
+            ativas.decrementAndGet();
+            return false;
+        }
+        Sessao despejada;
+        while (true) {
+            SessoesDoUsuario u = porCpf.computeIfAbsent(s.getCpf(), c -> new SessoesDoUsuario());
+            u.lock.lock();
+            try {
+                if (u.descartado) {
+                    continue; // esvaziado e retirado do índice enquanto esperávamos a trava
+                }
+                tokens.put(s.getToken(), s);
+                roda.agendar(s);
+                u.sessoes.addLast(s);
+                despejada = u.sessoes.size() > MAX_SESSOES_POR_USUARIO ? u.sessoes.pollFirst() : null;
+            } finally {
+                u.lock.unlock();
+            }
+            break;
+        }
+        if (despejada != null && encerrar(despejada)) {
+            despejadas.increment();
+        }
+        return true;
+    }
+
     /**
      * Valida um token e retorna o CPF do usuário se válido
      */
@@ -40,31 +171,395 @@ public class TokenManager {
             return null;
         }
         
-        TokenInfo tokenInfo = tokens.get(token);
-        if (tokenInfo == null) {
-            return null;
+        if (assinados != null) {
+            TokensAssinados.Carga c = validarAssinado(token);
+            return c == null ? null : c.cpf;
         }
-        
-        if (tokenInfo.isExpired()) {
-            tokens.remove(token);
+
+        Sessao s = tokens.get(chave(token));
+        if (s == null || s.expirada(System.nanoTime())) {
+            // A sessão vencida é removida pelo thread de limpeza
             return null;
         }
-        
-        return tokenInfo.cpf;
+        return s.getCpf();
     }
     
     /**
      * Remove um token (logout)
+     *
+     * @throws IllegalStateException no modo hmac, se a revogação não pôde ser
+     *         gravada no {@link RevogacaoRepository} (ela vale só nesta instância).
      */
     public static boolean removeToken(String token) {
-        return tokens.remove(token) != null;
+        if (assinados != null) {
+            TokensAssinados.Carga c = validarAssinado(token);
+            if (c == null) {
+                return false;
+            }
+            RevogacaoToken r = new RevogacaoToken(c.cpf, hashToken(token), -1, c.expiraEmSeg * 1000);
+            if (!aplicar(r)) {
+                return false;
+            }
+            encerradas.increment();
+            compartilhar(r);
+            return true;
+        }
+
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        Sessao s = tokens.get(chave(token));
+        if (s == null) {
+            return false;
+        }
+        removerDoIndice(s);
+        if (!encerrar(s)) {
+            return false;
+        }
+        encerradas.increment();
+        return !s.expirada(System.nanoTime());
     }
-    
+
     /**
-     * Remove todos os tokens expirados
+     * Encerra todas as sessões do CPF, menos a do token {@code exceto} (pode ser
+     * {@code null}). Usado quando a senha muda.
+     *
+     * @return quantas sessões foram encerradas (no modo hmac, sempre 0: os tokens
+     *         emitidos até agora passam a ser recusados, mas não são contados).
+     * @throws IllegalStateException no modo hmac, como em {@link #removeToken}.
      */
-    public static void cleanupExpiredTokens() {
-        tokens.entrySet().removeIf(entry -> entry.getValue().isExpired());
+    public static int revogarSessoes(String cpf, String exceto) {
+        if (assinados != null) {
+            long agoraMs = System.currentTimeMillis();
+            RevogacaoToken r = new RevogacaoToken(cpf, exceto != null ? hashToken(exceto) : null, agoraMs,
+                    agoraMs + TimeUnit.NANOSECONDS.toMillis(VALIDADE_NANOS));
+            aplicar(r);
+            compartilhar(r);
+            return 0;
+        }
+        SessoesDoUsuario u = porCpf.get(cpf);
+        if (u == null) {
+            return 0;
+        }
+        String mantido = exceto != null ? chave(exceto) : null;
+        Sessao[] alvo;
+        u.lock.lock();
+        try {
+            alvo = u.sessoes.stream().filter(s -> !s.getToken().equals(mantido)).toArray(Sessao[]::new);
+            u.sessoes.removeIf(s -> !s.getToken().equals(mantido));
+            descartarSeVazio(cpf, u);
+        } finally {
+            u.lock.unlock();
+        }
+        int n = 0;
+        for (Sessao s : alvo) {
+            if (encerrar(s)) {
+                n++;
+            }
+        }
+        revogadasEmLote.add(n);
+        return n;
     }
-}
 
+    /**
+     * Remove os tokens expirados até agora. Chamado a cada tick pelo thread de
+     * limpeza; só percorre os baldes da roda que venceram desde a última chamada.
+     */
+    public static synchronized void cleanupExpiredTokens() {
+        long agora = System.nanoTime();
+        roda.avancar(agora, s -> {
+            if (tokens.get(s.getToken()) == s) {
+                removerDoIndice(s);
+                if (encerrar(s)) {
+                    expiradas.increment();
+                }
+            } else {
+                // Token assinado revogado (pelo hash) que já teria vencido de qualquer forma
+                revogados.remove(s.getToken(), s);
+            }
+        });
+        if (!revogacoesPorCpf.isEmpty()) {
+            revogacoesPorCpf.values().removeIf(r -> agora - r.esquecerEm >= 0);
+        }
+    }
+
+    /**
+     * Tira a sessão do mapa de tokens e da roda. Só uma chamada por sessão
+     * devolve {@code true}; é ela que conta a sessão como encerrada.
+     */
+    private static boolean encerrar(Sessao s) {
+        if (!tokens.remove(s.getToken(), s)) {
+            return false;
+        }
+        roda.cancelar(s);
+        ativas.decrementAndGet();
+        return true;
+    }
+
+    private static void removerDoIndice(Sessao s) {
+        SessoesDoUsuario u = porCpf.get(s.getCpf());
+        if (u == null) {
+            return;
+        }
+        u.lock.lock();
+        try {
+            u.sessoes.remove(s);
+            descartarSeVazio(s.getCpf(), u);
+        } finally {
+            u.lock.unlock();
+        }
+    }
+
+    // Chamado com a trava de u; quem pegar u do mapa depois disso cria outro
+    private static void descartarSeVazio(String cpf, SessoesDoUsuario u) {
+        if (u.sessoes.isEmpty()) {
+            u.descartado = true;
+            porCpf.remove(cpf, u);
+        }
+    }
+
+    private static TokensAssinados.Carga validarAssinado(String token) {
+        TokensAssinados.Carga c = assinados.verificar(token);
+        if (c == null) {
+            assinaturasInvalidas.increment();
+            return null;
+        }
+        if (c.expiraEmSeg <= System.currentTimeMillis() / 1000) {
+            return null;
+        }
+        RevogacaoPorCpf r = revogacoesPorCpf.get(c.cpf);
+        boolean talvezPorCpf = r != null && c.emitidoEmMs <= r.ate;
+        if (!talvezPorCpf && revogados.isEmpty()) {
+            return c;
+        }
+        String hash = hashToken(token);
+        if (revogados.containsKey(hash) || talvezPorCpf && !hash.equals(r.exceto)) {
+            return null;
+        }
+        return c;
+    }
+
+    /**
+     * Aplica uma revogação (desta instância ou lida do registro) à lista local.
+     *
+     * @return {@code false} se o token já estava revogado ou a revogação já venceu.
+     */
+    private static boolean aplicar(RevogacaoToken r) {
+        long restanteMs = r.getExpiraEmMs() - System.currentTimeMillis();
+        if (restanteMs <= 0) {
+            return false;
+        }
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(restanteMs);
+        if (r.isPorCpf()) {
+            RevogacaoPorCpf nova = new RevogacaoPorCpf(r.getAteMs(), r.getTokenHash(), prazo);
+            revogacoesPorCpf.merge(r.getCpf(), nova, (atual, n) -> n.ate >= atual.ate ? n : atual);
+            return true;
+        }
+        Sessao revogada = new Sessao(r.getTokenHash(), r.getCpf(), prazo);
+        if (revogados.putIfAbsent(r.getTokenHash(), revogada) != null) {
+            return false;
+        }
+        roda.agendar(revogada);
+        return true;
+    }
+
+    private static void compartilhar(RevogacaoToken r) {
+        RevogacaoRepository reg = registro;
+        if (reg != null && !reg.gravar(r)) {
+            throw new IllegalStateException("Revogação não gravada no banco; ela vale só nesta instância");
+        }
+    }
+
+    /**
+     * No modo hmac, passa a gravar as revogações em {@code r} e a ler as das
+     * outras instâncias a cada {@code pix.token.revogacoes.sincronizacaoMs}
+     * (padrão 1 s), no thread de limpeza. A primeira leitura, que traz as
+     * revogações ainda não vencidas, é feita antes de voltar. {@code null} deixa
+     * as revogações só neste processo.
+     */
+    public static synchronized void usarRevogacoes(RevogacaoRepository r) {
+        if (assinados == null || r == null || registro != null) {
+            return;
+        }
+        registro = r;
+        sincronizarRevogacoes();
+        long periodo = Long.getLong("pix.token.revogacoes.sincronizacaoMs", 1000L);
+        sincronizacao = limpeza.scheduleWithFixedDelay(TokenManager::sincronizarRevogacoes, periodo, periodo,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** Para de ler o registro de revogações (as já lidas continuam valendo). */
+    public static synchronized void pararRevogacoes() {
+        if (sincronizacao != null) {
+            sincronizacao.cancel(false);
+            sincronizacao = null;
+        }
+        registro = null;
+    }
+
+    // Relê uma janela de ids já vistos: um INSERT com id menor pode ter sido
+    // confirmado depois da última leitura; aplicar de novo não muda nada
+    private static void sincronizarRevogacoes() {
+        RevogacaoRepository reg = registro;
+        if (reg == null) {
+            return;
+        }
+        long agoraMs = System.currentTimeMillis();
+        long ultimo = reg.lerDesde(Math.max(0, ultimaRevogacaoLida - SOBREPOSICAO_REVOGACOES), agoraMs,
+                TokenManager::aplicar);
+        if (ultimo > ultimaRevogacaoLida) {
+            ultimaRevogacaoLida = ultimo;
+        }
+        if (agoraMs - ultimaLimpezaRevogacoesMs >= 60_000) {
+            ultimaLimpezaRevogacoesMs = agoraMs;
+            reg.apagarVencidas(agoraMs);
+        }
+    }
+
+    /** Chave da sessão do token no mapa de sessões em memória. */
+    private static String chave(String token) {
+        return CHAVE_HASH ? hashToken(token) : token;
+    }
+
+    /**
+     * SHA-256 do token em hexadecimal: o que é guardado no lugar dele no snapshot
+     * e nas revogações.
+     */
+    static String hashToken(String token) {
+        byte[] h = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(h.length * 2);
+        for (byte b : h) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Recarrega as sessões do snapshot ({@code pix.sessoes.snapshot}; sem ele,
+     * o padrão, não há snapshot). Deve ser chamado na subida, antes de o
+     * servidor aceitar conexões. Só vale para o modo em memória: tokens hmac já
+     * sobrevivem ao reinício.
+     *
+     * @return quantas sessões foram restauradas.
+     */
+    public static int restaurarSessoes() {
+        Path arquivo = ARQUIVO_SNAPSHOT;
+        if (arquivo == null || assinados != null) {
+            return 0;
+        }
+        long inicio = System.nanoTime();
+        try {
+            AtomicInteger restauradas = new AtomicInteger();
+            int lidas = SnapshotSessoes.ler(arquivo, s -> {
+                // Sessões já em memória (parada e nova subida no mesmo processo) ficam como estão
+                if (!tokens.containsKey(s.getToken()) && registrar(s)) {
+                    restauradas.incrementAndGet();
+                }
+            });
+            if (lidas >= 0) {
+                System.out.printf("[TokenManager] %d sessões restauradas de %s em %.1f ms%n", restauradas.get(),
+                        arquivo, (System.nanoTime() - inicio) / 1e6);
+            }
+            return restauradas.get();
+        } catch (IOException e) {
+            System.err.println("[TokenManager] Snapshot de sessões ignorado: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Passa a gravar o snapshot das sessões a cada {@code pix.sessoes.snapshotMs}
+     * (padrão 30 s), no thread de limpeza.
+     */
+    public static synchronized void iniciarSnapshots() {
+        if (ARQUIVO_SNAPSHOT == null || assinados != null || snapshots != null) {
+            return;
+        }
+        long periodo = Long.getLong("pix.sessoes.snapshotMs", 30_000L);
+        snapshots = limpeza.scheduleWithFixedDelay(TokenManager::salvarSnapshot, periodo, periodo,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Grava o snapshot agora (também chamado na parada do servidor).
+     *
+     * @return quantas sessões foram gravadas, ou -1 em caso de erro.
+     */
+    public static int salvarSnapshot() {
+        Path arquivo = ARQUIVO_SNAPSHOT;
+        if (arquivo == null || assinados != null) {
+            return 0;
+        }
+        try {
+            return SnapshotSessoes.gravar(arquivo, tokens.values());
+        } catch (IOException e) {
+            System.err.println("[TokenManager] Falha ao gravar snapshot de sessões: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static Path arquivoSnapshot() {
+        String caminho = System.getProperty("pix.sessoes.snapshot", "").trim();
+        return caminho.isEmpty() ? null : Paths.get(caminho);
+    }
+
+    /** Indica se os tokens são assinados ({@code pix.token.modo=hmac}). */
+    public static boolean isAssinado() {
+        return assinados != null;
+    }
+
+    /** Número de sessões vivas (ainda não removidas). */
+    public static int getSessoesAtivas() {
+        return ativas.get();
+    }
+
+    /** Número de sessões vivas do CPF (no modo hmac, sempre 0). */
+    public static int getSessoesAtivas(String cpf) {
+        SessoesDoUsuario u = porCpf.get(cpf);
+        if (u == null) {
+            return 0;
+        }
+        u.lock.lock();
+        try {
+            return u.sessoes.size();
+        } finally {
+            u.lock.unlock();
+        }
+    }
+
+    public static String estatisticas() {
+        if (assinados != null) {
+            return String.format("sessoes[modo=hmac, chave_ativa=%s, emitidas=%d, revogadas=%d, "
+                    + "lista_revogacao=%d, revogacoes_por_cpf=%d, assinaturas_invalidas=%d]",
+                    assinados.getIdChaveAtiva(), criadas.sum(), encerradas.sum(), revogados.size(),
+                    revogacoesPorCpf.size(), assinaturasInvalidas.sum());
+        }
+        return String.format("sessoes[ativas=%d, usuarios=%d, max=%d, max_por_usuario=%d, criadas=%d, "
+                + "expiradas=%d, encerradas=%d, despejadas=%d, revogadas_em_lote=%d, recusadas=%d]",
+                getSessoesAtivas(), porCpf.size(), MAX_SESSOES, MAX_SESSOES_POR_USUARIO, criadas.sum(),
+                expiradas.sum(), encerradas.sum(), despejadas.sum(), revogadasEmLote.sum(), recusadas.sum());
+    }
+
+    /**
+     * Sessões vivas de um CPF, da mais antiga para a mais nova.
+     */
+    private static final class SessoesDoUsuario {
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<Sessao> sessoes = new ArrayDeque<>(2);
+        // Já foi retirado de porCpf; quem o encontrar deve buscar outro
+        boolean descartado;
+    }
+
+    private static final class RevogacaoPorCpf {
+        final long ate;
+        // Hash do token mantido, ou null
+        final String exceto;
+        final long esquecerEm;
+
+        RevogacaoPorCpf(long ate, String exceto, long esquecerEm) {
+            this.ate = ate;
+            this.exceto = exceto;
+            this.esquecerEm = esquecerEm;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.pix.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Tokens de sessão autocontidos, assinados com HMAC-SHA256: qualquer servidor
+ * com a chave valida o token sem estado compartilhado. Formato:
+ * <pre>
+ *   &lt;id-da-chave&gt;.&lt;base64url(cpf:emitidoEmMs:expiraEmSeg:nonce)&gt;.&lt;base64url(hmac)&gt;
+ * </pre>
+ * A assinatura cobre o id da chave e a carga. Várias chaves podem ser aceitas ao
+ * mesmo tempo (rotação): os tokens novos saem com a chave ativa, e os emitidos
+ * com as anteriores continuam válidos enquanto elas estiverem configuradas.
+ */
+final class TokensAssinados {
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    private final Map<String, Chave> chaves;
+    private final Chave ativa;
+    private final SecureRandom aleatorio = new SecureRandom();
+
+    /**
+     * @param chaves   segredos por id de chave.
+     * @param idAtiva  id da chave usada para assinar os tokens novos.
+     */
+    TokensAssinados(Map<String, byte[]> chaves, String idAtiva) {
+        this.chaves = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> e : chaves.entrySet()) {
+            if (e.getKey().isEmpty() || e.getKey().indexOf('.') >= 0) {
+                throw new IllegalArgumentException("Id de chave inválido: " + e.getKey());
+            }
+            this.chaves.put(e.getKey(), new Chave(e.getKey(), e.getValue()));
+        }
+        this.ativa = this.chaves.get(idAtiva);
+        if (ativa == null) {
+            throw new IllegalArgumentException("Chave ativa não configurada: " + idAtiva);
+        }
+    }
+
+    /**
+     * Lê as chaves de {@code pix.token.chaves} ({@code id:segredo-base64,id2:...}) e a
+     * ativa de {@code pix.token.chave.ativa} (padrão: a primeira). Sem chaves
+     * configuradas, gera uma aleatória, que só serve para um servidor e não
+     * sobrevive a reinícios.
+     */
+    static TokensAssinados fromSystemProperties() {
+        Map<String, byte[]> chaves = new LinkedHashMap<>();
+        String config = System.getProperty("pix.token.chaves", "").trim();
+        if (config.isEmpty()) {
+            System.err.println("[TokenManager] pix.token.chaves não configurado; usando chave aleatória local.");
+            byte[] segredo = new byte[32];
+            new SecureRandom().nextBytes(segredo);
+            chaves.put("local", segredo);
+        } else {
+            for (String item : config.split(",")) {
+                int sep = item.indexOf(':');
+                if (sep <= 0) {
+                    throw new IllegalArgumentException("Formato de pix.token.chaves inválido: " + item);
+                }
+                chaves.put(item.substring(0, sep).trim(), Base64.getDecoder().decode(item.substring(sep + 1).trim()));
+            }
+        }
+        String ativa = System.getProperty("pix.token.chave.ativa", chaves.keySet().iterator().next());
+        return new TokensAssinados(chaves, ativa);
+    }
+
+    String emitir(String cpf, long emitidoEmMs, long expiraEmSeg) {
+        byte[] nonce = new byte[8];
+        aleatorio.nextBytes(nonce);
+        String carga = cpf + ':' + emitidoEmMs + ':' + expiraEmSeg + ':' + B64.encodeToString(nonce);
+        String cabeca = ativa.id + '.' + B64.encodeToString(carga.getBytes(StandardCharsets.UTF_8));
+        return cabeca + '.' + B64.encodeToString(ativa.assinar(cabeca));
+    }
+
+    /**
+     * Confere o formato e a assinatura do token. Não olha a validade nem a lista
+     * de revogação.
+     *
+     * @return a carga decodificada, ou {@code null} se o token não for autêntico.
+     */
+    Carga verificar(String token) {
+        int p1 = token.indexOf('.');
+        int p2 = token.lastIndexOf('.');
+        if (p1 <= 0 || p2 <= p1 + 1) {
+            return null;
+        }
+        Chave chave = chaves.get(token.substring(0, p1));
+        if (chave == null) {
+            return null;
+        }
+        try {
+            byte[] assinatura = B64D.decode(token.substring(p2 + 1));
+            if (!MessageDigest.isEqual(assinatura, chave.assinar(token.substring(0, p2)))) {
+                return null;
+            }
+            String carga = new String(B64D.decode(token.substring(p1 + 1, p2)), StandardCharsets.UTF_8);
+            String[] partes = carga.split(":", 4);
+            if (partes.length != 4) {
+                return null;
+            }
+            return new Carga(partes[0], Long.parseLong(partes[1]), Long.parseLong(partes[2]));
+        } catch (IllegalArgumentException e) {
+            // base64 ou números malformados
+            return null;
+        }
+    }
+
+    String getIdChaveAtiva() {
+        return ativa.id;
+    }
+
+    /** Conteúdo autenticado de um token. */
+    static final class Carga {
+        final String cpf;
+        final long emitidoEmMs;
+        final long expiraEmSeg;
+
+        Carga(String cpf, long emitidoEmMs, long expiraEmSeg) {
+            this.cpf = cpf;
+            this.emitidoEmMs = emitidoEmMs;
+            this.expiraEmSeg = expiraEmSeg;
+        }
+    }
+
+    private static final class Chave {
+        final String id;
+        private final SecretKeySpec segredo;
+        // Mac não é thread-safe e getInstance/init são caros: um por thread
+        private final ThreadLocal<Mac> mac;
+
+        Chave(String id, byte[] segredo) {
+            this.id = id;
+            this.segredo = new SecretKeySpec(segredo, ALGORITMO);
+            this.mac = ThreadLocal.withInitial(this::novoMac);
+        }
+
+        private Mac novoMac() {
+            try {
+                Mac m = Mac.getInstance(ALGORITMO);
+                m.init(segredo);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 indisponível", e);
+            }
+        }
+
+        byte[] assinar(String dados) {
+            // doFinal já reinicia o Mac para o próximo uso
+            return mac.get().doFinal(dados.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
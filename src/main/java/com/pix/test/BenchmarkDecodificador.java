@@ -0,0 +1,95 @@
+package com.pix.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pix.server.DecodificadorRequisicao;
+import com.pix.server.PixServer;
+import com.pix.server.Requisicao;
+import validador.Validator;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compara o caminho antigo de entrada (String + árvore JSON + Validator) com o
+ * {@link DecodificadorRequisicao}: tempo e bytes alocados por requisição.
+ *
+ * Uso: java com.pix.test.BenchmarkDecodificador [iteracoes]
+ */
+public class BenchmarkDecodificador {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final String[] REQUISICOES = {
+        "{\"operacao\":\"usuario_login\",\"cpf\":\"123.456.789-09\",\"senha\":\"senha123\"}",
+        "{\"operacao\":\"usuario_criar\",\"nome\":\"Paulo Plinio\",\"cpf\":\"123.456.789-09\",\"senha\":\"senha123\"}",
+        "{\"operacao\":\"usuario_ler\",\"token\":\"3f1c2a9e-7b5d-4e8a-9c21-0d6f4b8e2a17\"}",
+        "{\"operacao\":\"depositar\",\"token\":\"3f1c2a9e-7b5d-4e8a-9c21-0d6f4b8e2a17\",\"valor_enviado\":1500.25}",
+        "{\"operacao\":\"transacao_criar\",\"token\":\"3f1c2a9e-7b5d-4e8a-9c21-0d6f4b8e2a17\",\"cpf_destino\":\"987.654.321-00\",\"valor\":300.5}",
+        "{\"operacao\":\"transacao_ler\",\"token\":\"3f1c2a9e-7b5d-4e8a-9c21-0d6f4b8e2a17\",\"data_inicial\":\"2025-01-01T00:00:00Z\",\"data_final\":\"2025-01-31T23:59:59Z\",\"limite\":50}",
+        "{\"operacao\":\"usuario_atualizar\",\"token\":\"3f1c2a9e-7b5d-4e8a-9c21-0d6f4b8e2a17\",\"usuario\":{\"nome\":\"Maicou Jordao\",\"senha\":\"novaSenha123\"}}",
+    };
+
+    // Regra do Validator de cada requisição acima, na mesma ordem
+    private static final Validator.Regra[] REGRAS = {
+        Validator::validateUsuarioLoginClient,
+        Validator::validateUsuarioCriarClient,
+        Validator::validateUsuarioLerClient,
+        Validator::validateDepositarClient,
+        Validator::validateTransacaoCriarClient,
+        Validator::validateTransacaoLerClient,
+        Validator::validateUsuarioAtualizarClient,
+    };
+
+    // Evita que o JIT descarte o trabalho medido
+    private static long sumidouro;
+
+    public static void main(String[] args) throws Exception {
+        int iteracoes = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        byte[][] linhas = new byte[REQUISICOES.length][];
+        for (int i = 0; i < REQUISICOES.length; i++) {
+            linhas[i] = REQUISICOES[i].getBytes(StandardCharsets.UTF_8);
+        }
+        DecodificadorRequisicao decodificador = PixServer.getDecodificador();
+        Requisicao req = new Requisicao();
+
+        System.out.println(">>> Aquecimento...");
+        for (int i = 0; i < iteracoes; i++) {
+            byte[] linha = linhas[i % linhas.length];
+            caminhoAntigo(linha, REGRAS[i % linhas.length]);
+            decodificador.decodificar(linha, 0, linha.length, req);
+        }
+
+        System.out.printf("%n%-10s %12s %14s%n", "caminho", "ns/req", "bytes/req");
+        medir("antigo", iteracoes, i -> caminhoAntigo(linhas[i % linhas.length], REGRAS[i % linhas.length]));
+        medir("streaming", iteracoes, i -> {
+            byte[] linha = linhas[i % linhas.length];
+            decodificador.decodificar(linha, 0, linha.length, req);
+            sumidouro += req.getOperacao().ordinal() + req.getLimite();
+        });
+        System.out.println("\n(sumidouro=" + sumidouro + ")");
+    }
+
+    private static void medir(String nome, int iteracoes, Benchmarks.Passo passo) throws Exception {
+        Benchmarks.Medicao m = Benchmarks.medir(iteracoes, passo);
+        System.out.printf("%-10s %12.1f %14.1f%n", nome, m.nsPorOp, m.bytesPorOp);
+    }
+
+    private static void caminhoAntigo(byte[] linha, Validator.Regra regra) throws Exception {
+        String texto = new String(linha, StandardCharsets.UTF_8);
+        JsonNode node = JSON.readTree(texto);
+        Validator.validateClientEnvelope(node);
+        regra.validar(node);
+        long acumulado = 0;
+        for (String campo : new String[] {"operacao", "token", "cpf", "senha", "nome", "cpf_destino"}) {
+            JsonNode v = node.get(campo);
+            if (v != null) {
+                acumulado += v.asText().length();
+            }
+        }
+        JsonNode valor = node.has("valor") ? node.get("valor") : node.get("valor_enviado");
+        if (valor != null) {
+            acumulado += valor.decimalValue().movePointRight(2).longValue();
+        }
+        sumidouro += acumulado;
+    }
+}
@@ -0,0 +1,74 @@
+package com.pix.test;
+
+import static com.pix.test.Benchmarks.*;
+
+import com.pix.dao.ArmazenamentoMemoria;
+import com.pix.dao.DiarioMapeado;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Mede o {@link DiarioMapeado}: a taxa de escrita de registros (cadastros e
+ * transferências) e a taxa de reprodução do diário num {@link ArmazenamentoMemoria}
+ * vazio, que é o que a subida do motor {@code diario} faz. A reprodução roda
+ * algumas vezes (a primeira aquece o JIT e o cache de páginas) e confere que a
+ * soma dos saldos não mudou.
+ *
+ * Uso: java com.pix.test.BenchmarkDiario [contas] [transferencias] [diretorio]
+ */
+public class BenchmarkDiario {
+
+    public static void main(String[] args) throws Exception {
+        int contas = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long transferencias = args.length > 1 ? Long.parseLong(args[1]) : 5_000_000L;
+        boolean temporario = args.length <= 2;
+        Path dir = temporario ? Files.createTempDirectory("pix-diario-") : Paths.get(args[2]);
+
+        try {
+            escrever(dir, contas, transferencias);
+            for (int r = 1; r <= 3; r++) {
+                reproduzir(dir, contas, r);
+            }
+        } finally {
+            if (temporario) {
+                apagar(dir);
+            }
+        }
+    }
+
+    private static void escrever(Path dir, int contas, long transferencias) throws IOException {
+        DiarioMapeado diario = novoDiario(dir);
+        diario.reproduzir(new ArmazenamentoMemoria(1));
+        diario.iniciar();
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < contas; i++) {
+            diario.cadastro(cpf(i), "Usuario " + i, "senha" + i, SALDO_INICIAL);
+        }
+        SplittableRandom rnd = new SplittableRandom(42);
+        long agoraMs = System.currentTimeMillis();
+        for (long id = 1; id <= transferencias; id++) {
+            diario.transferencia(id, cpf(rnd.nextInt(contas)), cpf(rnd.nextInt(contas)), 1 + rnd.nextInt(10_000),
+                    agoraMs + id / 1000);
+        }
+        diario.parar();
+        double s = (System.nanoTime() - inicio) / 1e9;
+        long registros = contas + transferencias;
+        System.out.printf("escrita:    %,d registros em %.2f s (%,.0f registros/s, %,d MB em disco)%n",
+                registros, s, registros / s, tamanho(dir) / (1024 * 1024));
+    }
+
+    private static void reproduzir(Path dir, int contas, int rodada) throws IOException {
+        ArmazenamentoMemoria memoria = new ArmazenamentoMemoria(256);
+        DiarioMapeado diario = novoDiario(dir);
+        long inicio = System.nanoTime();
+        long registros = diario.reproduzir(memoria);
+        double s = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("reproducao %d: %,d registros em %.2f s (%,.0f registros/s)%s%n", rodada, registros, s,
+                registros / s, conferirSaldos(memoria, contas));
+    }
+}
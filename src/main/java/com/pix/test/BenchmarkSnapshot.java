@@ -0,0 +1,88 @@
+package com.pix.test;
+
+import static com.pix.test.Benchmarks.*;
+
+import com.pix.dao.ArmazenamentoMemoria;
+import com.pix.dao.DiarioMapeado;
+import com.pix.dao.SnapshotSaldos;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Compara a subida do motor {@code diario} reproduzindo o diário inteiro com a
+ * subida por {@link SnapshotSaldos} mais a cauda do diário: cria {@code contas}
+ * contas e {@code transferencias} transferências no diário, mede a reprodução
+ * completa, grava um snapshot, acrescenta {@code cauda} transferências e mede o
+ * carregamento do snapshot seguido da reprodução da cauda, conferindo a soma dos
+ * saldos. As medições rodam na mesma JVM, então a segunda subida já tem o JIT
+ * aquecido pela primeira.
+ *
+ * Uso: java com.pix.test.BenchmarkSnapshot [contas] [transferencias] [cauda] [diretorio]
+ */
+public class BenchmarkSnapshot {
+
+    public static void main(String[] args) throws Exception {
+        int contas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long transferencias = args.length > 1 ? Long.parseLong(args[1]) : 4_000_000L;
+        long cauda = args.length > 2 ? Long.parseLong(args[2]) : transferencias / 100;
+        boolean temporario = args.length <= 3;
+        Path dir = temporario ? Files.createTempDirectory("pix-snapshot-") : Paths.get(args[3]);
+        Path arquivo = dir.resolve("saldos.snap");
+
+        try {
+            DiarioMapeado diario = novoDiario(dir);
+            diario.reproduzir(new ArmazenamentoMemoria(1));
+            SplittableRandom rnd = new SplittableRandom(42);
+            for (int i = 0; i < contas; i++) {
+                diario.cadastro(cpf(i), "Usuario " + i, "senha" + i, SALDO_INICIAL);
+            }
+            escreverTransferencias(diario, rnd, contas, 1, transferencias);
+            diario.parar();
+
+            // Subida 1: o diário inteiro
+            diario = novoDiario(dir);
+            ArmazenamentoMemoria memoria = new ArmazenamentoMemoria(256, diario);
+            long inicio = System.nanoTime();
+            long n = diario.reproduzir(memoria);
+            double s = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("diario inteiro:    %,d registros em %.2f s%s%n", n, s, conferirSaldos(memoria, contas));
+
+            long t = System.nanoTime();
+            new SnapshotSaldos(arquivo, memoria, diario, 0).gravar();
+            System.out.printf("snapshot gravado:  %.2f s, %,d MB%n", (System.nanoTime() - t) / 1e9,
+                    Files.size(arquivo) / (1024 * 1024));
+            escreverTransferencias(diario, rnd, contas, transferencias + 1, cauda);
+            diario.parar();
+            memoria = null;
+
+            // Subida 2: snapshot e cauda
+            diario = novoDiario(dir);
+            memoria = new ArmazenamentoMemoria(256, diario);
+            inicio = System.nanoTime();
+            long desdeSeq = new SnapshotSaldos(arquivo, memoria, diario, 0).carregar();
+            long carregado = System.nanoTime();
+            n = diario.reproduzir(memoria, desdeSeq);
+            long fim = System.nanoTime();
+            System.out.printf("snapshot + cauda:  %.2f s (snapshot %.2f s, %,d registros da cauda em %.2f s)%s%n",
+                    (fim - inicio) / 1e9, (carregado - inicio) / 1e9, n, (fim - carregado) / 1e9,
+                    conferirSaldos(memoria, contas));
+            diario.parar();
+        } finally {
+            if (temporario) {
+                apagar(dir);
+            }
+        }
+    }
+
+    private static void escreverTransferencias(DiarioMapeado diario, SplittableRandom rnd, int contas,
+                                               long primeiroId, long quantidade) {
+        long agoraMs = System.currentTimeMillis();
+        for (long id = primeiroId; id < primeiroId + quantidade; id++) {
+            diario.transferencia(id, cpf(rnd.nextInt(contas)), cpf(rnd.nextInt(contas)), 1 + rnd.nextInt(10_000),
+                    agoraMs + id / 1000);
+        }
+    }
+}
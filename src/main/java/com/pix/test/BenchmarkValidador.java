@@ -0,0 +1,102 @@
+package com.pix.test;
+
+import validador.RulesEnum;
+import validador.Validator;
+
+/**
+ * Compara as validações antigas (String.matches e busca linear no enum) com os
+ * verificadores atuais do {@link Validator} e de {@link RulesEnum}: tempo e
+ * bytes alocados por chamada.
+ *
+ * Uso: java com.pix.test.BenchmarkValidador [iteracoes]
+ */
+public class BenchmarkValidador {
+
+    private static final String[] CPFS = {
+        "123.456.789-09", "987.654.321-00", "123.456.789-00", "123.456.78909", "abc"
+    };
+    private static final String[] DATAS = {
+        "2025-01-01T00:00:00Z", "2024-02-29T23:59:59Z", "2025-13-01T00:00:00Z", "2025-01-01 00:00:00"
+    };
+    private static final String[] OPERACOES = {
+        "usuario_login", "transacao_ler", "depositar", "USUARIO_LER", "transacao_criar"
+    };
+
+    // Evita que o JIT descarte o trabalho medido
+    private static long sumidouro;
+
+    public static void main(String[] args) throws Exception {
+        int iteracoes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        conferir();
+
+        System.out.println(">>> Aquecimento...");
+        for (int r = 0; r < 2; r++) {
+            executar(iteracoes, false);
+        }
+        executar(iteracoes, true);
+        System.out.println("\n(sumidouro=" + sumidouro + ")");
+    }
+
+    private static void executar(int iteracoes, boolean imprimir) throws Exception {
+        if (imprimir) {
+            System.out.printf("%n%-24s %10s %12s%n", "validacao", "ns/op", "bytes/op");
+        }
+        medir(imprimir, "cpf regex", iteracoes, i -> cpfRegex(CPFS[i % CPFS.length]));
+        medir(imprimir, "cpf varredura", iteracoes, i -> Validator.isCpfFormat(CPFS[i % CPFS.length]));
+        medir(imprimir, "cpf dig. verificadores", iteracoes, i -> Validator.isCpfValido(CPFS[i % CPFS.length]));
+        medir(imprimir, "data regex", iteracoes, i -> dataRegex(DATAS[i % DATAS.length]));
+        medir(imprimir, "data varredura", iteracoes, i -> Validator.isIsoUtcDate(DATAS[i % DATAS.length]));
+        medir(imprimir, "operacao linear", iteracoes, i -> operacaoLinear(OPERACOES[i % OPERACOES.length]) != null);
+        medir(imprimir, "operacao indice", iteracoes, i -> RulesEnum.getEnum(OPERACOES[i % OPERACOES.length]) != null);
+    }
+
+    private interface Verificacao {
+        boolean executar(int i) throws Exception;
+    }
+
+    private static void medir(boolean imprimir, String nome, int iteracoes, Verificacao v) throws Exception {
+        Benchmarks.Medicao m = Benchmarks.medir(iteracoes, i -> {
+            if (v.executar(i)) {
+                sumidouro++;
+            }
+        });
+        if (imprimir) {
+            System.out.printf("%-24s %10.1f %12.1f%n", nome, m.nsPorOp, m.bytesPorOp);
+        }
+    }
+
+    /** As implementações novas devem concordar com as antigas nos formatos. */
+    private static void conferir() {
+        for (String cpf : CPFS) {
+            if (cpfRegex(cpf) != Validator.isCpfFormat(cpf)) {
+                throw new IllegalStateException("Divergência no CPF " + cpf);
+            }
+        }
+        for (String data : DATAS) {
+            // A varredura também recusa datas fora do calendário, que o regex aceitava
+            if (!dataRegex(data) && Validator.isIsoUtcDate(data)) {
+                throw new IllegalStateException("Divergência na data " + data);
+            }
+        }
+    }
+
+    // Implementações anteriores, mantidas aqui só para comparação
+
+    private static boolean cpfRegex(String cpf) {
+        return cpf.matches("\\d{3}\\.\\d{3}\\.\\d{3}-\\d{2}");
+    }
+
+    private static boolean dataRegex(String data) {
+        return data.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z");
+    }
+
+    private static RulesEnum operacaoLinear(String rule) {
+        for (RulesEnum r : RulesEnum.values()) {
+            if (r.getValue().equalsIgnoreCase(rule)) {
+                return r;
+            }
+        }
+        return null;
+    }
+}
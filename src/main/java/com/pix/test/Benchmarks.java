@@ -0,0 +1,86 @@
+package com.pix.test;
+
+import com.pix.dao.ArmazenamentoMemoria;
+import com.pix.dao.DiarioMapeado;
+import com.pix.model.Usuario;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Peças comuns dos benchmarks deste pacote: a medição de tempo e bytes alocados
+ * por operação e os dados e diretórios dos benchmarks do motor {@code diario}.
+ */
+final class Benchmarks {
+
+    static final long SALDO_INICIAL = 1_000_000;
+    static final int TAMANHO_SEGMENTO = 64 * 1024 * 1024;
+
+    private Benchmarks() {
+    }
+
+    interface Passo {
+        void executar(int i) throws Exception;
+    }
+
+    /** Tempo e bytes alocados por operação de uma rodada de {@link #medir}. */
+    static final class Medicao {
+        final double nsPorOp;
+        final double bytesPorOp;
+
+        Medicao(double nsPorOp, double bytesPorOp) {
+            this.nsPorOp = nsPorOp;
+            this.bytesPorOp = bytesPorOp;
+        }
+    }
+
+    /** Executa o passo {@code iteracoes} vezes no thread atual e mede tempo e alocação. */
+    static Medicao medir(int iteracoes, Passo passo) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        long bytesAntes = threads.getThreadAllocatedBytes(tid);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            passo.executar(i);
+        }
+        long ns = System.nanoTime() - inicio;
+        long bytes = threads.getThreadAllocatedBytes(tid) - bytesAntes;
+        return new Medicao((double) ns / iteracoes, (double) bytes / iteracoes);
+    }
+
+    static DiarioMapeado novoDiario(Path dir) {
+        return new DiarioMapeado(dir, TAMANHO_SEGMENTO, DiarioMapeado.Fsync.PERIODICO, 1000);
+    }
+
+    // CPFs numéricos distintos (não precisam ter dígitos verificadores válidos aqui)
+    static long cpf(int i) {
+        return 10_000_000_000L + i * 7919L;
+    }
+
+    /** Vazio se a soma dos saldos é a de {@code contas} contas com o saldo inicial. */
+    static String conferirSaldos(ArmazenamentoMemoria memoria, int contas) {
+        long soma = 0;
+        for (Usuario u : memoria.usuarios().listarTodos()) {
+            soma += u.getSaldoCentavos();
+        }
+        return soma == contas * SALDO_INICIAL ? "" : "  SOMA DOS SALDOS DIVERGENTE: " + soma;
+    }
+
+    static long tamanho(Path dir) throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    static void apagar(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
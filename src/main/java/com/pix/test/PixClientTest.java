@@ -25,7 +25,7 @@ public class PixClientTest {
             // Usuário A
 
             System.out.println("### Teste 1: Cadastro de usuário ###");
-            String tokenJoao = criarUsuario(reader, writer, "Paulo Plinio", "123.456.789-00", "senha123");
+            String tokenJoao = criarUsuario(reader, writer, "Paulo Plinio", "123.456.789-09", "senha123");
 
             // Usuário B
             System.out.println("\n### Teste 2: Cadastro de outro usuário ###");
@@ -33,7 +33,7 @@ public class PixClientTest {
 
             // Login João
             System.out.println("\n### Teste 3: Login do usuário ###");
-            tokenJoao = autenticar(reader, writer, "123.456.789-00", "senha123");
+            tokenJoao = autenticar(reader, writer, "123.456.789-09", "senha123");
 
             // Consultar usuário
             System.out.println("\n### Teste 4: Consultar perfil ###");
@@ -61,7 +61,7 @@ public class PixClientTest {
 
             // Login João
             System.out.println("\n### Teste 3: Login do usuário ###");
-            tokenJoao = autenticar(reader, writer, "123.456.789-00", "senha123");
+            tokenJoao = autenticar(reader, writer, "123.456.789-09", "senha123");
             
         } catch (IOException e) {
             System.err.println("Erro durante os testes: " + e.getMessage());
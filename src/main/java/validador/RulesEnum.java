@@ -1,5 +1,8 @@
 package validador;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 
 public enum RulesEnum {
@@ -26,6 +29,14 @@ public enum RulesEnum {
         return rule;
     }
 
+    // Índice pelo valor em minúsculas, para a busca não varrer values() a cada requisição
+    private static final Map<String, RulesEnum> POR_VALOR = new HashMap<>();
+    static {
+        for (RulesEnum r : values()) {
+            POR_VALOR.put(r.rule.toLowerCase(Locale.ROOT), r);
+        }
+    }
+
     /**
      * Busca a constante do enum correspondente ao valor da String.
      * Este método é case-insensitive (ignora maiúsculas e minúsculas).
@@ -37,12 +48,15 @@ public enum RulesEnum {
     public static RulesEnum getEnum(String rule) throws Exception{
         Objects.requireNonNull(rule, "O valor da regra não pode ser nulo.");
 
-        for (RulesEnum enumConstant : RulesEnum.values()) {
-            if (enumConstant.getValue().equalsIgnoreCase(rule)) {
-                return enumConstant;
-            }
+        RulesEnum encontrada = POR_VALOR.get(rule);
+        if (encontrada == null) {
+            // toLowerCase devolve a própria String quando ela já está em minúsculas
+            encontrada = POR_VALOR.get(rule.toLowerCase(Locale.ROOT));
         }
-        
+        if (encontrada != null) {
+            return encontrada;
+        }
+
         throw new IllegalArgumentException("Nenhuma regra encontrada para o valor: " + rule);
     }
 
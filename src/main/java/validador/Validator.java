@@ -1,81 +1,50 @@
 package validador;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class Validator {
 
     private Validator() {}
 
-    // ObjectMapper é a classe principal do Jackson para converter JSON.
-    // É uma boa prática reutilizar a mesma instância.
-    private static final ObjectMapper mapper = new ObjectMapper();
-
     /**
-     * Valida uma mensagem JSON enviada do Cliente para o Servidor.
+     * Valida o envelope de uma mensagem do Cliente (objeto com 'operacao'
+     * conhecida) e devolve a operação. Os campos de cada operação ficam com a
+     * regra dela ({@code validateXxxClient}), que o chamador escolhe.
      *
-     * @param jsonString A mensagem JSON como uma String.
-     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
+     * @param rootNode A mensagem já parseada.
+     * @return a operação da mensagem.
+     * @throws Exception se a mensagem não seguir o protocolo.
      */
-    public static void validateClient(String jsonString) throws Exception {
-        JsonNode rootNode = parseJson(jsonString);
+    public static RulesEnum validateClientEnvelope(JsonNode rootNode) throws Exception {
+        if (rootNode == null || !rootNode.isObject()) {
+            throw new IllegalArgumentException("A mensagem deve ser um objeto JSON.");
+        }
 
         // Valida a presença e o tipo do campo 'operacao'
         JsonNode operacaoNode = getRequiredField(rootNode, "operacao");
         validateStringLength(rootNode, "operacao", 3, 200); // Operacao também é uma string
 
-        // Converte a string da operação para o nosso Enum
-        // NOTA: Certifique-se de que o RulesEnum.java contenha a operação DEPOSITAR.
-        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
-
-        // Chama o método de validação específico para a operação
-        switch (operacao) {
-            case USUARIO_LOGIN:
-                validateUsuarioLoginClient(rootNode);
-                break;
-            case USUARIO_LOGOUT:
-                validateUsuarioLogoutClient(rootNode);
-                break;
-            case USUARIO_CRIAR:
-                validateUsuarioCriarClient(rootNode);
-                break;
-            case USUARIO_LER:
-                validateUsuarioLerClient(rootNode);
-                break;
-            case USUARIO_ATUALIZAR:
-                validateUsuarioAtualizarClient(rootNode);
-                break;
-            case USUARIO_DELETAR:
-                validateUsuarioDeletarClient(rootNode);
-                break;
-            case TRANSACAO_CRIAR:
-                validateTransacaoCriarClient(rootNode);
-                break;
-            case TRANSACAO_LER:
-                validateTransacaoLerClient(rootNode);
-                break;
-            case DEPOSITAR:
-                validateDepositarClient(rootNode);
-                break;
-            // =======================================================
-            default:
-                throw new IllegalArgumentException("Operação do cliente desconhecida ou não suportada: " + operacao);
-        }
+        return RulesEnum.getEnum(operacaoNode.asText());
     }
 
     /**
-     * Valida uma mensagem JSON enviada do Servidor para o Cliente.
+     * Valida o envelope de uma resposta do Servidor ('operacao', 'status' e
+     * 'info') e devolve o status. Os dados extras de cada operação ficam com a
+     * regra dela ({@code validateXxxServer}), aplicada só quando o status é true.
      *
-     * @param jsonString A mensagem JSON como uma String.
-     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
+     * @param rootNode A resposta em árvore.
+     * @return o valor de 'status'.
+     * @throws Exception se a resposta não seguir o protocolo.
      */
-    public static void validateServer(String jsonString) throws Exception {
-        JsonNode rootNode = parseJson(jsonString);
+    public static boolean validateServerEnvelope(JsonNode rootNode) throws Exception {
+        if (rootNode == null || !rootNode.isObject()) {
+            throw new IllegalArgumentException("A resposta deve ser um objeto JSON.");
+        }
 
         // Toda resposta do servidor deve ter 'operacao', 'status' e 'info'
         JsonNode operacaoNode = getRequiredField(rootNode, "operacao");
         validateStringLength(rootNode, "operacao", 3, 200);
-        
+
         JsonNode statusNode = getRequiredField(rootNode, "status");
         if (!statusNode.isBoolean()) {
             throw new IllegalArgumentException("O campo 'status' na resposta do servidor deve ser um booleano (true/false).");
@@ -83,52 +52,39 @@ public class Validator {
 
         validateStringLength(rootNode, "info", 3, 200);
 
-        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
-
-        // Chama a validação específica apenas se o status for true (sucesso)
-        if (statusNode.asBoolean()) {
-            switch (operacao) {
-                case USUARIO_LOGIN:
-                    validateUsuarioLoginServer(rootNode);
-                    break;
-                case USUARIO_LER:
-                    validateUsuarioLerServer(rootNode);
-                    break;
-                case TRANSACAO_LER:
-                    validateTransacaoLerServer(rootNode);
-                    break;
-                // Outras operações de sucesso (como criar, atualizar, deletar e depositar)
-                // não retornam dados adicionais, então não precisam de validação extra.
-                default:
-                    break; 
-            }
-        }
+        RulesEnum.getEnum(operacaoNode.asText());
+        return statusNode.asBoolean();
+    }
+
+    /** Regra de validação dos campos de uma operação. */
+    public interface Regra {
+        void validar(JsonNode node);
     }
 
     // ===================================================================================
-    // MÉTODOS DE VALIDAÇÃO PRIVADOS (CLIENTE -> SERVIDOR)
+    // REGRAS POR OPERAÇÃO (CLIENTE -> SERVIDOR)
     // ===================================================================================
 
-    private static void validateUsuarioLoginClient(JsonNode node) {
+    public static void validateUsuarioLoginClient(JsonNode node) {
         validateCpfFormat(node, "cpf");
         validateStringLength(node, "senha", 6, 120);
     }
 
-    private static void validateUsuarioLogoutClient(JsonNode node) {
+    public static void validateUsuarioLogoutClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
     }
 
-    private static void validateUsuarioCriarClient(JsonNode node) {
+    public static void validateUsuarioCriarClient(JsonNode node) {
         validateStringLength(node, "nome", 6, 120);
         validateCpfFormat(node, "cpf");
         validateStringLength(node, "senha", 6, 120);
     }
 
-    private static void validateUsuarioLerClient(JsonNode node) {
+    public static void validateUsuarioLerClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
     }
 
-    private static void validateUsuarioAtualizarClient(JsonNode node) {
+    public static void validateUsuarioAtualizarClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
         JsonNode usuarioNode = getRequiredObject(node, "usuario");
         
@@ -143,37 +99,44 @@ public class Validator {
         }
     }
 
-    private static void validateUsuarioDeletarClient(JsonNode node) {
+    public static void validateUsuarioDeletarClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
     }
 
-    private static void validateTransacaoCriarClient(JsonNode node) {
+    public static void validateTransacaoCriarClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
         validateCpfFormat(node, "cpf_destino");
         getRequiredNumber(node, "valor");
     }
 
-    private static void validateTransacaoLerClient(JsonNode node) {
+    public static void validateTransacaoLerClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
         validateDateFormat(node, "data_inicial"); 
         validateDateFormat(node, "data_final");   
+        // Paginação (opcional)
+        if (node.hasNonNull("cursor")) {
+            validateStringLength(node, "cursor", 3, 64);
+        }
+        if (node.hasNonNull("limite")) {
+            validateIntRange(node, "limite", 1, 1000);
+        }
     }
 
-    private static void validateDepositarClient(JsonNode node) {
+    public static void validateDepositarClient(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
         getRequiredNumber(node, "valor_enviado");
     }
     // =======================================================
 
     // ===================================================================================
-    // MÉTODOS DE VALIDAÇÃO PRIVADOS (SERVIDOR -> CLIENTE)
+    // REGRAS POR OPERAÇÃO (SERVIDOR -> CLIENTE)
     // ===================================================================================
 
-    private static void validateUsuarioLoginServer(JsonNode node) {
+    public static void validateUsuarioLoginServer(JsonNode node) {
         validateStringLength(node, "token", 3, 200);
     }
 
-    private static void validateUsuarioLerServer(JsonNode node) {
+    public static void validateUsuarioLerServer(JsonNode node) {
         JsonNode usuarioNode = getRequiredObject(node, "usuario");
         validateCpfFormat(usuarioNode, "cpf");
         validateStringLength(usuarioNode, "nome", 6, 120);
@@ -183,7 +146,7 @@ public class Validator {
         }
     }
     
-    private static void validateTransacaoLerServer(JsonNode node) {
+    public static void validateTransacaoLerServer(JsonNode node) {
         JsonNode transacoesNode = getRequiredArray(node, "transacoes");
         for (JsonNode transacao : transacoesNode) {
             getRequiredInt(transacao, "id");
@@ -203,20 +166,161 @@ public class Validator {
     }
 
     // ===================================================================================
-    // MÉTODOS AUXILIARES (HELPERS)
+    // FORMATOS (também usados pelo decodificador de requisições do servidor)
     // ===================================================================================
 
-    private static JsonNode parseJson(String jsonString) throws Exception {
-        if (jsonString == null || jsonString.trim().isEmpty()) {
-            throw new Exception("A mensagem JSON não pode ser nula ou vazia.");
+    // Os formatos são verificados por varredura direta dos caracteres, sem regex:
+    // String.matches compilava um Pattern novo a cada campo validado.
+
+    /**
+     * Indica se o texto está no formato de CPF do protocolo, '000.000.000-00'.
+     * Não confere os dígitos verificadores (ver {@link #isCpfValido}).
+     */
+    public static boolean isCpfFormat(CharSequence cpf) {
+        if (cpf.length() != 14) {
+            return false;
         }
-        try {
-            return mapper.readTree(jsonString);
-        } catch (Exception e) {
-            throw new Exception("Erro de sintaxe. A mensagem não é um JSON válido.", e);
+        for (int i = 0; i < 14; i++) {
+            char c = cpf.charAt(i);
+            if (i == 3 || i == 7 ? c != '.' : i == 11 ? c != '-' : c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Versão de {@link #isCpfFormat(CharSequence)} sobre um trecho de array, para
+     * validar o texto direto do buffer do parser.
+     */
+    public static boolean isCpfFormat(char[] buf, int off, int len) {
+        if (len != 14) {
+            return false;
+        }
+        for (int i = 0; i < 14; i++) {
+            char c = buf[off + i];
+            if (i == 3 || i == 7 ? c != '.' : i == 11 ? c != '-' : c < '0' || c > '9') {
+                return false;
+            }
         }
+        return true;
     }
 
+    /**
+     * Indica se o CPF está no formato do protocolo e tem dígitos verificadores
+     * corretos. CPFs com todos os dígitos iguais (000.000.000-00, 111...) são
+     * recusados, embora passem no cálculo.
+     */
+    public static boolean isCpfValido(CharSequence cpf) {
+        if (!isCpfFormat(cpf)) {
+            return false;
+        }
+        int soma1 = 0;
+        int soma2 = 0;
+        boolean iguais = true;
+        int primeiro = cpf.charAt(0) - '0';
+        for (int i = 0, d = 0; d < 9; i++) {
+            if (i == 3 || i == 7) {
+                continue;
+            }
+            int digito = cpf.charAt(i) - '0';
+            iguais &= digito == primeiro;
+            soma1 += digito * (10 - d);
+            soma2 += digito * (11 - d);
+            d++;
+        }
+        int dv1 = digitoVerificador(soma1);
+        int dv2 = digitoVerificador(soma2 + dv1 * 2);
+        int informado1 = cpf.charAt(12) - '0';
+        int informado2 = cpf.charAt(13) - '0';
+        iguais &= informado1 == primeiro && informado2 == primeiro;
+        return !iguais && dv1 == informado1 && dv2 == informado2;
+    }
+
+    private static int digitoVerificador(int soma) {
+        int resto = soma % 11;
+        return resto < 2 ? 0 : 11 - resto;
+    }
+
+    /**
+     * Indica se o texto está no formato de data do protocolo, 'yyyy-MM-dd'T'HH:mm:ss'Z',
+     * com mês, dia, hora, minuto e segundo dentro dos limites do calendário.
+     */
+    public static boolean isIsoUtcDate(CharSequence date) {
+        if (date.length() != 20) {
+            return false;
+        }
+        for (int i = 0; i < 20; i++) {
+            if (!caractereDeData(i, date.charAt(i))) {
+                return false;
+            }
+        }
+        return camposDeDataValidos(
+                numero(date.charAt(0), date.charAt(1)) * 100 + numero(date.charAt(2), date.charAt(3)),
+                numero(date.charAt(5), date.charAt(6)), numero(date.charAt(8), date.charAt(9)),
+                numero(date.charAt(11), date.charAt(12)), numero(date.charAt(14), date.charAt(15)),
+                numero(date.charAt(17), date.charAt(18)));
+    }
+
+    /**
+     * Versão de {@link #isIsoUtcDate(CharSequence)} sobre um trecho de array.
+     */
+    public static boolean isIsoUtcDate(char[] buf, int off, int len) {
+        if (len != 20) {
+            return false;
+        }
+        for (int i = 0; i < 20; i++) {
+            if (!caractereDeData(i, buf[off + i])) {
+                return false;
+            }
+        }
+        return camposDeDataValidos(
+                numero(buf[off], buf[off + 1]) * 100 + numero(buf[off + 2], buf[off + 3]),
+                numero(buf[off + 5], buf[off + 6]), numero(buf[off + 8], buf[off + 9]),
+                numero(buf[off + 11], buf[off + 12]), numero(buf[off + 14], buf[off + 15]),
+                numero(buf[off + 17], buf[off + 18]));
+    }
+
+    // Posições fixas de 'yyyy-MM-ddTHH:mm:ssZ'; as demais são dígitos
+    private static boolean caractereDeData(int i, char c) {
+        switch (i) {
+            case 4:
+            case 7:
+                return c == '-';
+            case 10:
+                return c == 'T';
+            case 13:
+            case 16:
+                return c == ':';
+            case 19:
+                return c == 'Z';
+            default:
+                return c >= '0' && c <= '9';
+        }
+    }
+
+    private static int numero(char dezena, char unidade) {
+        return (dezena - '0') * 10 + (unidade - '0');
+    }
+
+    private static boolean camposDeDataValidos(int ano, int mes, int dia, int hora, int minuto, int segundo) {
+        if (mes < 1 || mes > 12 || dia < 1 || hora > 23 || minuto > 59 || segundo > 59) {
+            return false;
+        }
+        int diasNoMes;
+        if (mes == 2) {
+            boolean bissexto = ano % 4 == 0 && (ano % 100 != 0 || ano % 400 == 0);
+            diasNoMes = bissexto ? 29 : 28;
+        } else {
+            diasNoMes = mes == 4 || mes == 6 || mes == 9 || mes == 11 ? 30 : 31;
+        }
+        return dia <= diasNoMes;
+    }
+
+    // ===================================================================================
+    // MÉTODOS AUXILIARES (HELPERS)
+    // ===================================================================================
+
     private static JsonNode getRequiredField(JsonNode parentNode, String fieldName) {
         if (parentNode.has(fieldName) && !parentNode.get(fieldName).isNull()) {
             return parentNode.get(fieldName);
@@ -245,9 +349,7 @@ public class Validator {
         if (!field.isTextual()) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
         }
-        String cpf = field.asText();
-        String cpfRegex = "\\d{3}\\.\\d{3}\\.\\d{3}-\\d{2}";
-        if (!cpf.matches(cpfRegex)) {
+        if (!isCpfFormat(field.asText())) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar no formato '000.000.000-00'.");
         }
     }
@@ -257,9 +359,7 @@ public class Validator {
         if (!field.isTextual()) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
         }
-        String date = field.asText();
-        String isoRegex = "\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z";
-        if (!date.matches(isoRegex)) {
+        if (!isIsoUtcDate(field.asText())) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar no formato ISO 8601 UTC 'yyyy-MM-dd'T'HH:mm:ss'Z'.");
         }
     }
@@ -273,11 +373,21 @@ public class Validator {
 
     private static void getRequiredInt(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
-        if (!field.isInt()) {
+        // Aceita qualquer inteiro que caiba em int: árvores montadas a partir de
+        // objetos Java podem trazer LongNode para valores pequenos
+        if (!field.isIntegralNumber() || !field.canConvertToInt()) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo int.");
         }
     }
 
+    private static void validateIntRange(JsonNode parentNode, String fieldName, int min, int max) {
+        getRequiredInt(parentNode, fieldName);
+        int value = parentNode.get(fieldName).asInt();
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar entre " + min + " e " + max + ".");
+        }
+    }
+
     private static JsonNode getRequiredObject(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isObject()) {
@@ -0,0 +1,49 @@
+-- Esquema do banco sistema_pix (MySQL 8).
+
+CREATE DATABASE IF NOT EXISTS sistema_pix;
+USE sistema_pix;
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    cpf   VARCHAR(14)  NOT NULL,
+    nome  VARCHAR(120) NOT NULL,
+    senha VARCHAR(120) NOT NULL,
+    saldo DECIMAL(15,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (cpf)
+);
+
+CREATE TABLE IF NOT EXISTS transacoes (
+    id            BIGINT      NOT NULL AUTO_INCREMENT,
+    cpf_origem    VARCHAR(14) NOT NULL,
+    cpf_destino   VARCHAR(14) NOT NULL,
+    valor         DECIMAL(15,2) NOT NULL,
+    criado_em     DATETIME    NOT NULL,
+    atualizado_em DATETIME    NOT NULL,
+    PRIMARY KEY (id),
+    -- Extrato por participante e período (transacao_ler): cada índice atende um
+    -- lado da consulta; o id (chave primária) completa a ordenação do cursor.
+    INDEX idx_transacoes_origem_data (cpf_origem, criado_em),
+    INDEX idx_transacoes_destino_data (cpf_destino, criado_em)
+);
+
+-- Revogações de tokens assinados (pix.token.modo=hmac), lidas por todas as
+-- instâncias: logout (token_hash do token, ate_ms = -1) ou troca de senha
+-- (tokens do CPF emitidos até ate_ms, menos o de token_hash). Só o hash
+-- SHA-256 do token é guardado; a linha pode ser apagada depois de expira_em_ms.
+CREATE TABLE IF NOT EXISTS revogacoes_tokens (
+    id           BIGINT      NOT NULL AUTO_INCREMENT,
+    cpf          VARCHAR(14) NOT NULL,
+    token_hash   CHAR(64)    NULL,
+    ate_ms       BIGINT      NOT NULL,
+    expira_em_ms BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_revogacoes_expira (expira_em_ms)
+);
+
+-- Para bases criadas com saldo/valor em DOUBLE:
+-- ALTER TABLE usuarios MODIFY saldo DECIMAL(15,2) NOT NULL DEFAULT 0;
+-- ALTER TABLE transacoes MODIFY valor DECIMAL(15,2) NOT NULL;
+
+-- Para bases criadas antes dos índices acima:
+-- ALTER TABLE transacoes
+--     ADD INDEX idx_transacoes_origem_data (cpf_origem, criado_em),
+--     ADD INDEX idx_transacoes_destino_data (cpf_destino, criado_em);